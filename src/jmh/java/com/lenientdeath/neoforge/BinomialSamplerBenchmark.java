@@ -0,0 +1,54 @@
+package com.lenientdeath.neoforge;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 随机保留数量：{@link BinomialSampler} 与原先逐个物品 {@code nextFloat()} 循环的对比。
+ * <p>
+ * 两者使用同一种随机源（{@link Random}，与 Minecraft 的 LegacyRandomSource 同为 48 位 LCG），
+ * 仅比较采样算法本身的开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BinomialSamplerBenchmark {
+
+    @Param({"1", "16", "64", "1000", "100000"})
+    public int count;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public float chance;
+
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42L);
+    }
+
+    @Benchmark
+    public int perItemLoop() {
+        int keepCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (random.nextFloat() < chance) {
+                keepCount++;
+            }
+        }
+        return keepCount;
+    }
+
+    @Benchmark
+    public int binomialSampler() {
+        return BinomialSampler.sample(count, chance, random::nextDouble);
+    }
+}
@@ -0,0 +1,181 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.item.alchemy.PotionContents;
+import net.minecraft.world.item.alchemy.Potions;
+import net.minecraft.world.item.component.CustomData;
+import net.minecraft.world.item.component.ItemLore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * 保留流水线基准的公共夹具：引导 Minecraft 注册表、构造配置快照与合成背包。
+ * <p>
+ * 基准在普通 JVM 中运行（不启动 FML），因此不涉及需要服务器的功能：
+ * 标签未绑定（手动列表使用物品 ID 条目）、Curios 视为未加载、随机保留关闭（玩家传入 {@code null}）。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+public final class PipelineFixtures {
+    private PipelineFixtures() {}
+
+    private static boolean bootstrapped;
+
+    /** 合成背包。 */
+    public enum Inventory {
+        /** 原版玩家背包：36 格 + 4 件护甲 + 副手。 */
+        VANILLA_41(PipelineFixtures::vanilla41),
+        /** 模组背包：200 个不同物品的堆叠。 */
+        BACKPACK_200(PipelineFixtures::backpack200),
+        /** 原版背包布局，每个堆叠带有数 KB 的自定义数据、名称与描述。 */
+        HEAVY_COMPONENTS_41(PipelineFixtures::heavyComponents41);
+
+        private final Supplier<List<ItemStack>> factory;
+
+        Inventory(Supplier<List<ItemStack>> factory) {
+            this.factory = factory;
+        }
+
+        List<ItemStack> create() {
+            return factory.get();
+        }
+    }
+
+    static synchronized void bootstrap() {
+        if (bootstrapped) return;
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+        PreserveItems.registerBuiltinRules();
+        bootstrapped = true;
+    }
+
+    /** 基准使用的配置：开启 NBT 与类型规则，手动列表包含若干物品 ID，关闭随机保留。 */
+    static ConfigSnapshot config() {
+        Config.Common c = Config.COMMON;
+        return ConfigSnapshot.defaults(c, Map.of(
+                c.NBT_ENABLED, true,
+                c.BY_ITEM_TYPE_ENABLED, true,
+                c.RANDOMIZER_ENABLED, false,
+                c.ALWAYS_PRESERVED_ITEMS, List.of("minecraft:totem_of_undying", "minecraft:ender_pearl", "minecraft:diamond"),
+                c.ALWAYS_DROPPED_ITEMS, List.of("minecraft:cobblestone", "minecraft:dirt", "minecraft:rotten_flesh")
+        ));
+    }
+
+    /** 刷新手动列表并编译规则链。 */
+    static void compile(ConfigSnapshot config) {
+        ManualAllowAndBlocklist.INSTANCE.refreshItems(config);
+        PreservationChain.compile(config);
+    }
+
+    // ── 背包 ──
+
+    static List<ItemStack> vanilla41() {
+        List<ItemStack> stacks = new ArrayList<>(41);
+        // 快捷栏
+        stacks.add(damaged(Items.DIAMOND_SWORD, 120));
+        stacks.add(damaged(Items.DIAMOND_PICKAXE, 800));
+        stacks.add(new ItemStack(Items.BOW));
+        stacks.add(new ItemStack(Items.ARROW, 64));
+        stacks.add(new ItemStack(Items.COOKED_BEEF, 32));
+        stacks.add(new ItemStack(Items.WATER_BUCKET));
+        stacks.add(new ItemStack(Items.TORCH, 64));
+        stacks.add(new ItemStack(Items.ENDER_PEARL, 16));
+        stacks.add(new ItemStack(Items.COBBLESTONE, 64));
+        // 主背包
+        stacks.add(PotionContents.createItemStack(Items.POTION, Potions.HEALING));
+        stacks.add(PotionContents.createItemStack(Items.POTION, Potions.HEALING));
+        stacks.add(PotionContents.createItemStack(Items.SPLASH_POTION, Potions.STRONG_HEALING));
+        stacks.add(new ItemStack(Items.GOLDEN_APPLE, 8));
+        stacks.add(new ItemStack(Items.TOTEM_OF_UNDYING));
+        stacks.add(new ItemStack(Items.FISHING_ROD));
+        stacks.add(new ItemStack(Items.SHEARS));
+        stacks.add(new ItemStack(Items.FLINT_AND_STEEL));
+        stacks.add(new ItemStack(Items.ENCHANTED_BOOK));
+        stacks.add(new ItemStack(Items.ZOMBIE_SPAWN_EGG, 3));
+        stacks.add(new ItemStack(Items.IRON_INGOT, 37));
+        stacks.add(new ItemStack(Items.DIAMOND, 12));
+        stacks.add(new ItemStack(Items.OAK_LOG, 64));
+        stacks.add(new ItemStack(Items.ROTTEN_FLESH, 23));
+        while (stacks.size() < 31) stacks.add(new ItemStack(Items.COBBLESTONE, 64));
+        while (stacks.size() < 36) stacks.add(new ItemStack(Items.DIRT, 64));
+        // 护甲 + 副手
+        stacks.add(damaged(Items.DIAMOND_HELMET, 30));
+        stacks.add(damaged(Items.DIAMOND_CHESTPLATE, 40));
+        stacks.add(damaged(Items.DIAMOND_LEGGINGS, 35));
+        stacks.add(damaged(Items.DIAMOND_BOOTS, 20));
+        stacks.add(new ItemStack(Items.SHIELD));
+        return stacks;
+    }
+
+    static List<ItemStack> backpack200() {
+        Random random = new Random(42L);
+        List<Item> items = new ArrayList<>();
+        for (Item item : BuiltInRegistries.ITEM) {
+            if (item != Items.AIR) items.add(item);
+        }
+
+        List<ItemStack> stacks = new ArrayList<>(200);
+        int stride = Math.max(1, items.size() / 200);
+        for (int i = 0; stacks.size() < 200; i++) {
+            Item item = items.get((i * stride) % items.size());
+            ItemStack stack = new ItemStack(item);
+            stack.setCount(1 + random.nextInt(stack.getMaxStackSize()));
+            stacks.add(stack);
+        }
+        return stacks;
+    }
+
+    static List<ItemStack> heavyComponents41() {
+        List<ItemStack> stacks = vanilla41();
+        for (int i = 0; i < stacks.size(); i++) {
+            ItemStack stack = stacks.get(i);
+            stack.set(DataComponents.CUSTOM_DATA, CustomData.of(heavyTag(i)));
+            stack.set(DataComponents.CUSTOM_NAME, Component.literal("Heavy stack #" + i));
+            List<Component> lore = new ArrayList<>();
+            for (int line = 0; line < 8; line++) {
+                lore.add(Component.literal("Lore line " + line + " of stack " + i));
+            }
+            stack.set(DataComponents.LORE, new ItemLore(lore));
+        }
+        return stacks;
+    }
+
+    // ── 辅助方法 ──
+
+    private static ItemStack damaged(Item item, int damage) {
+        ItemStack stack = new ItemStack(item);
+        stack.setDamageValue(damage);
+        return stack;
+    }
+
+    /** 模拟模组装备的自定义数据：数百个键与嵌套列表，每 8 个堆叠中有一个带灵魂绑定标记。 */
+    private static CompoundTag heavyTag(int seed) {
+        CompoundTag root = new CompoundTag();
+        root.putBoolean("Soulbound", seed % 8 == 0);
+        for (int i = 0; i < 256; i++) {
+            root.putInt("stat_" + i, seed * 31 + i);
+        }
+        CompoundTag nested = new CompoundTag();
+        ListTag history = new ListTag();
+        for (int i = 0; i < 64; i++) {
+            history.add(StringTag.valueOf("event-" + seed + "-" + i));
+        }
+        nested.put("history", history);
+        nested.putLongArray("uuids", new long[]{seed, seed + 1L, seed + 2L, seed + 3L});
+        root.put("modded", nested);
+        return root;
+    }
+}
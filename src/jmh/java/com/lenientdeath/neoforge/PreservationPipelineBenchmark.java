@@ -0,0 +1,79 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.world.item.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 死亡保留流水线基准：整份背包的保留判定，以及各内置规则单独的开销。
+ * <p>
+ * 每次调用处理一整份合成背包（见 {@link PipelineFixtures.Inventory}），结果单位为每份背包的微秒数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreservationPipelineBenchmark {
+
+    @Param({"VANILLA_41", "BACKPACK_200", "HEAVY_COMPONENTS_41"})
+    public PipelineFixtures.Inventory inventory;
+
+    private ConfigSnapshot config;
+    private List<ItemStack> stacks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        PipelineFixtures.bootstrap();
+        config = PipelineFixtures.config();
+        PipelineFixtures.compile(config);
+        stacks = inventory.create();
+    }
+
+    /** 逐堆叠调用完整流水线。 */
+    @Benchmark
+    public void howManyToPreserve(Blackhole blackhole) {
+        for (ItemStack stack : stacks) {
+            blackhole.consume(PreserveItems.howManyToPreserve(config, null, stack));
+        }
+    }
+
+    /** 整份背包批量判定（按物品 + 组件分组）。 */
+    @Benchmark
+    public int[] howManyToPreserveBatch() {
+        return PreserveItems.howManyToPreserve(config, null, stacks);
+    }
+
+    /** 物品类型规则（不经过预编译表）。 */
+    @Benchmark
+    public void itemTypeChecker(Blackhole blackhole) {
+        for (ItemStack stack : stacks) {
+            blackhole.consume(ItemTypeChecker.INSTANCE.shouldKeep(config, null, stack));
+        }
+    }
+
+    /** NBT 标记规则。 */
+    @Benchmark
+    public void nbtChecker(Blackhole blackhole) {
+        for (ItemStack stack : stacks) {
+            blackhole.consume(NbtChecker.INSTANCE.shouldKeep(config, stack));
+        }
+    }
+
+    /** 手动列表规则。 */
+    @Benchmark
+    public void manualLists(Blackhole blackhole) {
+        for (ItemStack stack : stacks) {
+            blackhole.consume(ManualAllowAndBlocklist.INSTANCE.shouldKeep(stack.getItem()));
+        }
+    }
+}
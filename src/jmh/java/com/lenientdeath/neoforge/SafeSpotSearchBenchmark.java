@@ -0,0 +1,227 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.material.FluidState;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 恢复落点搜索：按区块段与地表高度图逐列扫描（{@link SafeSpotSearch#findNearest}）与原先逐个位置读取方块的对比。
+ * <p>
+ * 两者在同一份合成区块段副本上搜索同一区域（水平半径 16、上下 20 格），{@code blockReads} 辅助计数器报告每次搜索读取的方块数
+ * （原先的实现每个位置读取三个方块状态与三个流体状态）。初始化时校验两者找到同一个落点（同距离时都取较低的位置）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+public class SafeSpotSearchBenchmark {
+    private static final int MIN_BUILD_HEIGHT = -64;
+    private static final int HEIGHT = 384;
+    private static final int MIN_SECTION_Y = 0;
+    private static final int MAX_SECTION_Y = 6;
+
+    /** 合成地形。 */
+    public enum Terrain {
+        /** 虚空世界：搜索范围内全是空气，找不到落点。 */
+        VOID_WORLD,
+        /** 空岛：空气中只有一个 5×5 的小岛，位于中心斜下方。 */
+        SKYBLOCK,
+        /** 洞穴：实心石头中随机挖出若干空腔，中心在石头内部。 */
+        CAVES
+    }
+
+    @Param
+    public Terrain terrain;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Reads {
+        public long blockReads;
+    }
+
+    private SafeSpotSearch.SectionSnapshot snapshot;
+    private SafeSpotSearch.Area area;
+
+    @Setup
+    public void setup() {
+        PipelineFixtures.bootstrap();
+        BlockPos center = switch (terrain) {
+            case VOID_WORLD, SKYBLOCK -> new BlockPos(0, 64, 0);
+            case CAVES -> new BlockPos(0, 40, 0);
+        };
+        area = new SafeSpotSearch.Area(center, SafeSpotSearch.NEARBY_RADIUS,
+                Math.max(MIN_BUILD_HEIGHT + 1, center.getY() - SafeSpotSearch.VERTICAL_RANGE),
+                Math.min(MIN_BUILD_HEIGHT + HEIGHT - 2, center.getY() + SafeSpotSearch.VERTICAL_RANGE));
+        snapshot = build(terrain);
+
+        BlockPos expected = perBlockScan(new CountingGetter(snapshot), area);
+        BlockPos actual = SafeSpotSearch.findNearest(snapshot, area).pos();
+        if (!Objects.equals(expected, actual)) {
+            throw new IllegalStateException("Scans disagree on " + terrain + ": " + expected + " vs " + actual);
+        }
+    }
+
+    @Benchmark
+    public BlockPos perBlock(Reads reads) {
+        CountingGetter getter = new CountingGetter(snapshot);
+        BlockPos result = perBlockScan(getter, area);
+        reads.blockReads += getter.reads;
+        return result;
+    }
+
+    @Benchmark
+    public BlockPos sectionColumns(Reads reads) {
+        SafeSpotSearch.SearchResult result = SafeSpotSearch.findNearest(snapshot, area);
+        reads.blockReads += result.blockReads();
+        return result.pos();
+    }
+
+    /** 原先的搜索：环形遍历列，每列从下到上逐个位置检查。 */
+    private static BlockPos perBlockScan(BlockGetter level, SafeSpotSearch.Area area) {
+        BlockPos center = area.center();
+        BlockPos best = null;
+        double bestDistanceSq = Double.MAX_VALUE;
+
+        for (int r = 0; r <= area.radius(); r++) {
+            if (best != null && bestDistanceSq < (double) r * r) {
+                break;
+            }
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    if (r > 0 && Math.abs(dx) < r && Math.abs(dz) < r) continue;
+                    for (int y = area.minY(); y <= area.maxY(); y++) {
+                        BlockPos candidate = new BlockPos(center.getX() + dx, y, center.getZ() + dz);
+                        if (!SafeSpotSearch.isOpenSpot(level, candidate)) continue;
+                        double distanceSq = candidate.distSqr(center);
+                        if (distanceSq < bestDistanceSq) {
+                            bestDistanceSq = distanceSq;
+                            best = candidate;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static SafeSpotSearch.SectionSnapshot build(Terrain terrain) {
+        Random random = new Random(42L);
+        boolean[][][] caves = new boolean[48][112][48];
+        if (terrain == Terrain.CAVES) {
+            // 随机球形空腔，坐标相对于 (-24, 0, -24)
+            for (int i = 0; i < 24; i++) {
+                int cx = random.nextInt(48), cy = 10 + random.nextInt(60), cz = random.nextInt(48);
+                int radius = 2 + random.nextInt(3);
+                for (int x = Math.max(0, cx - radius); x <= Math.min(47, cx + radius); x++) {
+                    for (int y = Math.max(0, cy - radius); y <= Math.min(111, cy + radius); y++) {
+                        for (int z = Math.max(0, cz - radius); z <= Math.min(47, cz + radius); z++) {
+                            int ddx = x - cx, ddy = y - cy, ddz = z - cz;
+                            if (ddx * ddx + ddy * ddy + ddz * ddz <= radius * radius) {
+                                caves[x][y][z] = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        SafeSpotSearch.SectionSnapshot snapshot = new SafeSpotSearch.SectionSnapshot(MIN_BUILD_HEIGHT, HEIGHT);
+        for (int chunkX = -2; chunkX <= 1; chunkX++) {
+            for (int chunkZ = -2; chunkZ <= 1; chunkZ++) {
+                int[] surface = new int[16 * 16];
+                Arrays.fill(surface, MIN_BUILD_HEIGHT - 1);
+                for (int sectionY = MIN_SECTION_Y; sectionY <= MAX_SECTION_Y; sectionY++) {
+                    PalettedContainer<BlockState> states = new PalettedContainer<>(Block.BLOCK_STATE_REGISTRY,
+                            Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+                    boolean empty = true;
+                    for (int localX = 0; localX < 16; localX++) {
+                        for (int localY = 0; localY < 16; localY++) {
+                            for (int localZ = 0; localZ < 16; localZ++) {
+                                int x = chunkX * 16 + localX, y = sectionY * 16 + localY, z = chunkZ * 16 + localZ;
+                                BlockState state = blockAt(terrain, caves, x, y, z);
+                                if (state.isAir()) continue;
+                                states.getAndSet(localX, localY, localZ, state);
+                                empty = false;
+                                surface[localZ * 16 + localX] = Math.max(surface[localZ * 16 + localX], y);
+                            }
+                        }
+                    }
+                    snapshot.putSection(chunkX, sectionY, chunkZ, empty ? null : states);
+                }
+                snapshot.putSurface(chunkX, chunkZ, surface);
+            }
+        }
+        return snapshot;
+    }
+
+    private static BlockState blockAt(Terrain terrain, boolean[][][] caves, int x, int y, int z) {
+        return switch (terrain) {
+            case VOID_WORLD -> Blocks.AIR.defaultBlockState();
+            case SKYBLOCK -> Math.abs(x - 10) <= 2 && Math.abs(z - 10) <= 2 && y >= 55 && y <= 58
+                    ? (y == 58 ? Blocks.GRASS_BLOCK : Blocks.DIRT).defaultBlockState()
+                    : Blocks.AIR.defaultBlockState();
+            case CAVES -> {
+                if (y > 80) yield Blocks.AIR.defaultBlockState();
+                if (y == 80) yield Blocks.GRASS_BLOCK.defaultBlockState();
+                boolean carved = x >= -24 && x < 24 && z >= -24 && z < 24 && caves[x + 24][y][z + 24];
+                yield carved ? Blocks.CAVE_AIR.defaultBlockState() : Blocks.STONE.defaultBlockState();
+            }
+        };
+    }
+
+    /** 统计方块与流体状态读取次数的包装。 */
+    private static final class CountingGetter implements BlockGetter {
+        private final BlockGetter delegate;
+        long reads;
+
+        CountingGetter(BlockGetter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public BlockState getBlockState(BlockPos pos) {
+            reads++;
+            return delegate.getBlockState(pos);
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos) {
+            reads++;
+            return delegate.getFluidState(pos);
+        }
+
+        @Override
+        public BlockEntity getBlockEntity(BlockPos pos) {
+            return null;
+        }
+
+        @Override
+        public int getHeight() {
+            return delegate.getHeight();
+        }
+
+        @Override
+        public int getMinBuildHeight() {
+            return delegate.getMinBuildHeight();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.scores.PlayerTeam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * SCAN 模式下的异步高亮计算（{@code privateHighlightAsync}）。
+ * <p>
+ * 主线程只做廉价的快照：到期观察者的位置范围、队伍与当前已高亮的实体 ID，以及相关维度内所有死亡掉落物的
+ * 实体 ID、坐标与归属玩家（归属玩家队伍在主线程经 {@link OwnerTeamCache} 解析）。工作线程按观察者并行完成范围筛选、
+ * 可见性判定与差异计算，主线程在之后的 tick 取回结果并生成数据包。颜色不在这里计算：变色由
+ * {@link GlowColorTracker} 的时间轮推送，新增高亮在应用时读取缓存颜色。
+ * <p>
+ * 同一时间最多一个任务在执行，期间到期的观察者累积到下一个任务。配置或队伍变化后提升代数，
+ * 旧代数的结果直接丢弃。除工作线程内的 {@link #compute} 外，所有方法只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class AsyncHighlightPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger("LenientDeath/AsyncHighlight");
+
+    static final AsyncHighlightPipeline INSTANCE = new AsyncHighlightPipeline();
+
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 4));
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, new Factory());
+
+    /** 掉落物快照；{@code ownerTeam} 只用于引用比较，工作线程不读取其内容。 */
+    record DropSnapshot(int entityId, UUID owner, PlayerTeam ownerTeam, double x, double y, double z) {}
+
+    /** 观察者快照。 */
+    record ViewerSnapshot(UUID viewer, ResourceKey<Level> level, AABB range, PlayerTeam team, IntSet highlighted) {}
+
+    /** 单个观察者的计算结果：需要新增（附带关系）与移除的实体 ID。 */
+    record ViewerDelta(UUID viewer, ResourceKey<Level> level, Map<Integer, DeathDropGlowPayload.Relation> added, IntSet removed) {}
+
+    /** 一次任务的结果。 */
+    record Result(long generation, List<ViewerDelta> deltas) {}
+
+    private record Settings(Config.GlowVisibility visibility, boolean noTeamIsValidTeam, int maxScannedEntities) {}
+
+    private final Set<UUID> due = new LinkedHashSet<>();
+    private CompletableFuture<Result> inFlight;
+    private long generation;
+
+    private long jobs;
+    private long discarded;
+    private long lastSnapshotDrops;
+
+    private AsyncHighlightPipeline() {}
+
+    /** 标记观察者需要刷新，由下一个任务处理。 */
+    void markDue(UUID viewer) {
+        due.add(viewer);
+    }
+
+    /** 配置、队伍或模式变化：丢弃进行中与待提交的计算。 */
+    void invalidate() {
+        generation++;
+        due.clear();
+    }
+
+    /** 取回已完成的任务结果（过期代数的结果丢弃）。 */
+    void applyCompleted(Consumer<Result> apply) {
+        if (inFlight == null || !inFlight.isDone()) return;
+        CompletableFuture<Result> finished = inFlight;
+        inFlight = null;
+        Result result;
+        try {
+            result = finished.join();
+        } catch (RuntimeException e) {
+            LOGGER.error("Async highlight computation failed", e);
+            return;
+        }
+        if (result.generation() != generation) {
+            discarded++;
+            return;
+        }
+        apply.accept(result);
+    }
+
+    /**
+     * 没有任务在执行时，为累积的到期观察者拍快照并提交。
+     *
+     * @param highlightedOf 观察者当前已高亮的实体 ID
+     */
+    void submitIfIdle(MinecraftServer server, ConfigSnapshot config, long now, Function<UUID, Collection<Integer>> highlightedOf) {
+        if (inFlight != null || due.isEmpty()) return;
+
+        Settings settings = new Settings(config.glowVisibility(), config.noTeamIsValidTeam(), config.privateHighlightMaxScannedEntities());
+        double radius = config.privateHighlightScanRadius();
+        boolean needsOwnerTeams = settings.visibility() == Config.GlowVisibility.DEAD_PLAYER_AND_TEAM;
+
+        List<ViewerSnapshot> viewers = new ArrayList<>(due.size());
+        Map<ResourceKey<Level>, List<DropSnapshot>> drops = new HashMap<>();
+        for (UUID viewerId : due) {
+            ServerPlayer player = server.getPlayerList().getPlayer(viewerId);
+            if (player == null || !(player.level() instanceof ServerLevel level)) continue;
+            drops.computeIfAbsent(level.dimension(), ignored -> snapshotDrops(level, needsOwnerTeams, now));
+            viewers.add(new ViewerSnapshot(viewerId, level.dimension(), player.getBoundingBox().inflate(radius),
+                    player.getTeam() instanceof PlayerTeam pt ? pt : null,
+                    new IntOpenHashSet(highlightedOf.apply(viewerId))));
+        }
+        due.clear();
+        if (viewers.isEmpty()) return;
+
+        jobs++;
+        lastSnapshotDrops = drops.values().stream().mapToInt(List::size).sum();
+        long jobGeneration = generation;
+        List<CompletableFuture<ViewerDelta>> tasks = new ArrayList<>(viewers.size());
+        for (ViewerSnapshot viewer : viewers) {
+            List<DropSnapshot> levelDrops = drops.get(viewer.level());
+            tasks.add(CompletableFuture.supplyAsync(() -> compute(viewer, levelDrops, settings), EXECUTOR));
+        }
+        inFlight = CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> new Result(jobGeneration, tasks.stream().map(CompletableFuture::join).toList()));
+    }
+
+    private static List<DropSnapshot> snapshotDrops(ServerLevel level, boolean needsOwnerTeams, long now) {
+        List<DropSnapshot> snapshot = new ArrayList<>();
+        DeathDropIndex.of(level).forEach(item -> {
+            if (!item.isAlive()) return;
+            UUID owner = LenientItemState.ownerOf(item);
+            PlayerTeam ownerTeam = needsOwnerTeams ? OwnerTeamCache.INSTANCE.teamOf(level, owner, now) : null;
+            snapshot.add(new DropSnapshot(item.getId(), owner, ownerTeam, item.getX(), item.getY(), item.getZ()));
+        });
+        return snapshot;
+    }
+
+    /** 工作线程：按范围筛选掉落物、判定可见性，并与观察者当前的高亮做差异。 */
+    private static ViewerDelta compute(ViewerSnapshot viewer, List<DropSnapshot> drops, Settings settings) {
+        Map<Integer, DeathDropGlowPayload.Relation> added = new HashMap<>();
+        IntSet visible = new IntOpenHashSet();
+        Map<UUID, DeathDropGlowPayload.Relation> relations = new HashMap<>();
+        int scanned = 0;
+        for (DropSnapshot drop : drops) {
+            if (scanned >= settings.maxScannedEntities()) break;
+            if (!viewer.range().contains(drop.x(), drop.y(), drop.z())) continue;
+            scanned++;
+
+            DeathDropGlowPayload.Relation relation = viewer.viewer().equals(drop.owner())
+                    ? DeathDropGlowPayload.Relation.OWNER
+                    : relations.computeIfAbsent(drop.owner(), ignored -> classRelation(
+                            settings.visibility(), settings.noTeamIsValidTeam(), viewer.team(), drop.ownerTeam()));
+            if (relation == DeathDropGlowPayload.Relation.NONE) continue;
+
+            visible.add(drop.entityId());
+            if (!viewer.highlighted().contains(drop.entityId())) {
+                added.put(drop.entityId(), relation);
+            }
+        }
+
+        IntSet removed = new IntOpenHashSet();
+        viewer.highlighted().forEach((int entityId) -> {
+            if (!visible.contains(entityId)) removed.add(entityId);
+        });
+        return new ViewerDelta(viewer.viewer(), viewer.level(), added, removed);
+    }
+
+    /**
+     * 归属玩家以外的观察者能否看到高亮：只取决于可见性设置与双方队伍（引用比较），可在任意线程调用。
+     *
+     * @return 让观察者可见的关系，不可见时为 {@link DeathDropGlowPayload.Relation#NONE}
+     */
+    static DeathDropGlowPayload.Relation classRelation(Config.GlowVisibility visibility, boolean noTeamIsValidTeam,
+                                                       PlayerTeam viewerTeam, PlayerTeam ownerTeam) {
+        return switch (visibility) {
+            case DEAD_PLAYER -> DeathDropGlowPayload.Relation.NONE;
+            case EVERYONE -> DeathDropGlowPayload.Relation.OTHER;
+            case DEAD_PLAYER_AND_TEAM -> {
+                boolean sameTeam = ownerTeam == null
+                        // 双方都无队伍，且 noTeamIsValidTeam 为 true
+                        ? viewerTeam == null && noTeamIsValidTeam
+                        : ownerTeam == viewerTeam;
+                yield sameTeam ? DeathDropGlowPayload.Relation.TEAMMATE : DeathDropGlowPayload.Relation.NONE;
+            }
+        };
+    }
+
+    /** 服务器关闭：丢弃所有状态，进行中的任务结果不再应用。 */
+    void clear() {
+        invalidate();
+        inFlight = null;
+    }
+
+    // ── 调试状态 ──
+
+    String getStats() {
+        return "workers=" + WORKERS + ", jobs=" + jobs + ", inFlight=" + (inFlight != null) + ", queued=" + due.size()
+                + ", discarded=" + discarded + ", lastSnapshotDrops=" + lastSnapshotDrops;
+    }
+
+    private static final class Factory implements ThreadFactory {
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "LenientDeath-Highlight-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
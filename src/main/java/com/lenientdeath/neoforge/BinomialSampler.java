@@ -0,0 +1,155 @@
+package com.lenientdeath.neoforge;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * 二项分布采样器：以与试验次数无关的期望开销生成 {@code Binomial(n, p)} 随机数。
+ * <p>
+ * 与逐个物品掷骰的循环服从同一分布，但大堆叠（模组存储物品可达数千个）不再需要 n 次随机数。
+ * <ul>
+ *   <li>{@code n·min(p, 1-p) < 30}：逆变换法（Kachitvichyanukul &amp; Schmeiser 的 BINV），期望迭代次数约为均值；</li>
+ *   <li>否则：BTPE 接受-拒绝算法（同上论文，1988），期望采样次数有常数上界。</li>
+ * </ul>
+ * {@code p > 0.5} 时对 {@code 1-p} 采样后取补，保证两种算法都在较小概率一侧工作。
+ */
+public final class BinomialSampler {
+    private BinomialSampler() {}
+
+    /** 逆变换法与 BTPE 的分界：{@code n·min(p, 1-p)} 低于此值时使用逆变换法。 */
+    static final double INVERSION_THRESHOLD = 30.0;
+
+    /**
+     * 采样 {@code n} 次独立、成功概率为 {@code p} 的试验中的成功次数。
+     *
+     * @param n       试验次数，负数视为 0
+     * @param p       单次成功概率，超出 [0, 1] 时截断
+     * @param uniform [0, 1) 上的均匀随机数来源
+     * @return [0, n] 内的成功次数
+     */
+    public static int sample(int n, double p, DoubleSupplier uniform) {
+        if (n <= 0 || !(p > 0.0)) return 0;
+        if (p >= 1.0) return n;
+
+        boolean flipped = p > 0.5;
+        double r = flipped ? 1.0 - p : p;
+        int x = n * r < INVERSION_THRESHOLD
+                ? inversion(n, r, uniform)
+                : btpe(n, r, uniform);
+        return flipped ? n - x : x;
+    }
+
+    /** 逆变换法，要求 {@code p <= 0.5}。 */
+    private static int inversion(int n, double p, DoubleSupplier uniform) {
+        double q = 1.0 - p;
+        double qn = Math.exp(n * Math.log(q));
+        double np = n * p;
+        // 尾部截断：超过均值 10 个标准差仍未命中时重新开始（浮点累积误差保护）
+        double bound = Math.min(n, np + 10.0 * Math.sqrt(np * q + 1.0));
+
+        int x = 0;
+        double px = qn;
+        double u = uniform.getAsDouble();
+        while (u > px) {
+            x++;
+            if (x > bound) {
+                x = 0;
+                px = qn;
+                u = uniform.getAsDouble();
+            } else {
+                u -= px;
+                px = ((n - x + 1) * p * px) / (x * q);
+            }
+        }
+        return x;
+    }
+
+    /** BTPE 接受-拒绝法，要求 {@code p <= 0.5} 且 {@code n·p >= INVERSION_THRESHOLD}。 */
+    private static int btpe(int n, double p, DoubleSupplier uniform) {
+        // 初始化：三角形 + 两个平行四边形 + 两条指数尾构成的包络
+        double q = 1.0 - p;
+        double nrq = n * p * q;
+        double fm = n * p + p;
+        int m = (int) Math.floor(fm);
+        double p1 = Math.floor(2.195 * Math.sqrt(nrq) - 4.6 * q) + 0.5;
+        double xm = m + 0.5;
+        double xl = xm - p1;
+        double xr = xm + p1;
+        double c = 0.134 + 20.5 / (15.3 + m);
+        double a = (fm - xl) / (fm - xl * p);
+        double laml = a * (1.0 + a / 2.0);
+        a = (xr - fm) / (xr * q);
+        double lamr = a * (1.0 + a / 2.0);
+        double p2 = p1 * (1.0 + 2.0 * c);
+        double p3 = p2 + c / laml;
+        double p4 = p3 + c / lamr;
+
+        while (true) {
+            double u = uniform.getAsDouble() * p4;
+            double v = uniform.getAsDouble();
+            int y;
+
+            if (u <= p1) {
+                // 三角形区域：直接接受
+                return (int) Math.floor(xm - p1 * v + u);
+            } else if (u <= p2) {
+                // 平行四边形区域
+                double x = xl + (u - p1) / c;
+                v = v * c + 1.0 - Math.abs(m - x + 0.5) / p1;
+                if (v > 1.0) continue;
+                y = (int) Math.floor(x);
+            } else if (u <= p3) {
+                // 左侧指数尾
+                y = (int) Math.floor(xl + Math.log(v) / laml);
+                if (y < 0 || v == 0.0) continue;
+                v = v * (u - p2) * laml;
+            } else {
+                // 右侧指数尾
+                y = (int) Math.floor(xr - Math.log(v) / lamr);
+                if (y > n || v == 0.0) continue;
+                v = v * (u - p3) * lamr;
+            }
+
+            int k = Math.abs(y - m);
+            if (k <= 20 || k >= nrq / 2.0 - 1.0) {
+                // 距众数较近：递推计算 f(y)/f(m) 精确判定
+                double s = p / q;
+                double aa = s * (n + 1);
+                double f = 1.0;
+                if (m < y) {
+                    for (int i = m + 1; i <= y; i++) f *= (aa / i - s);
+                } else if (m > y) {
+                    for (int i = y + 1; i <= m; i++) f /= (aa / i - s);
+                }
+                if (v > f) continue;
+                return y;
+            }
+
+            // 距众数较远：先用挤压边界快速接受/拒绝，再用 Stirling 近似做最终判定
+            double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 0.16666666666666666) / nrq + 0.5);
+            double t = -(double) k * k / (2.0 * nrq);
+            double logV = Math.log(v);
+            if (logV < t - rho) return y;
+            if (logV > t + rho) continue;
+
+            double x1 = y + 1;
+            double f1 = m + 1;
+            double z = n + 1 - m;
+            double w = n - y + 1;
+            double bound = xm * Math.log(f1 / x1)
+                    + (n - m + 0.5) * Math.log(z / w)
+                    + (y - m) * Math.log(w * p / (x1 * q))
+                    + stirlingCorrection(f1)
+                    + stirlingCorrection(z)
+                    + stirlingCorrection(x1)
+                    + stirlingCorrection(w);
+            if (logV > bound) continue;
+            return y;
+        }
+    }
+
+    /** Stirling 公式的修正项。 */
+    private static double stirlingCorrection(double x) {
+        double x2 = x * x;
+        return (13680.0 - (462.0 - (132.0 - (99.0 - 140.0 / x2) / x2) / x2) / x2) / x / 166320.0;
+    }
+}
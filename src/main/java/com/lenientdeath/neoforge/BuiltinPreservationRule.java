@@ -0,0 +1,37 @@
+package com.lenientdeath.neoforge;
+
+import com.lenientdeath.neoforge.api.PreservationConfig;
+import com.lenientdeath.neoforge.api.PreservationRule;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 内置保留规则：判定时读取完整的 {@link ConfigSnapshot}。
+ * <p>
+ * 公开接口 {@link PreservationRule} 只暴露 {@link PreservationConfig} 只读视图；规则链传入的视图就是本次事件的快照，
+ * 这里把公开方法转发到接收快照的重载。
+ */
+interface BuiltinPreservationRule extends PreservationRule {
+    @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack);
+
+    default @Nullable Boolean shouldKeepItem(ConfigSnapshot config, Item item) {
+        return null;
+    }
+
+    @Override
+    default @Nullable Integer howManyToKeep(PreservationConfig config, Player player, ItemStack stack) {
+        return howManyToKeep(snapshotOf(config), player, stack);
+    }
+
+    @Override
+    default @Nullable Boolean shouldKeepItem(PreservationConfig config, Item item) {
+        return shouldKeepItem(snapshotOf(config), item);
+    }
+
+    /** 规则链总是传入 {@link ConfigSnapshot}；其他调用方传入的视图退回当前快照。 */
+    private static ConfigSnapshot snapshotOf(PreservationConfig config) {
+        return config instanceof ConfigSnapshot snapshot ? snapshot : Config.snapshot();
+    }
+}
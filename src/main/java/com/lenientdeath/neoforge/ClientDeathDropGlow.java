@@ -0,0 +1,124 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.ChatFormatting;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.network.syncher.EntityDataAccessor;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.scores.PlayerTeam;
+import net.minecraft.world.scores.Scoreboard;
+import net.minecraft.world.scores.Team;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
+
+import java.util.Iterator;
+
+/**
+ * 客户端渲染服务端同步的死亡掉落物高亮（{@link DeathDropGlowPayload}）。
+ * <p>
+ * 每个客户端 tick 按到期 tick 计算颜色：只在本地设置发光标志，并把实体放入本地记分板上的颜色队伍，
+ * 服务端不再为这些观察者发送发光标志、颜色队伍与变色数据包。服务端其他原因同步的实体标志会覆盖本地发光位，
+ * 下一 tick 重新设置即可。只在客户端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class ClientDeathDropGlow {
+    static final ClientDeathDropGlow INSTANCE = new ClientDeathDropGlow();
+
+    private static final class Highlight {
+        final long expiryTick;
+        ChatFormatting color;
+        /** 已加入本地颜色队伍的记分板条目（实体 UUID 字符串）。 */
+        String member;
+
+        Highlight(long expiryTick) {
+            this.expiryTick = expiryTick;
+        }
+    }
+
+    private final Int2ObjectMap<Highlight> highlights = new Int2ObjectOpenHashMap<>();
+
+    private ClientDeathDropGlow() {}
+
+    void accept(DeathDropGlowPayload payload) {
+        if (payload.relation() == DeathDropGlowPayload.Relation.NONE) {
+            Highlight removed = highlights.remove(payload.entityId());
+            ClientLevel level = Minecraft.getInstance().level;
+            if (removed != null && level != null) {
+                Entity entity = level.getEntity(payload.entityId());
+                if (entity != null) {
+                    setGlowing(entity, false);
+                }
+                leaveTeam(level.getScoreboard(), removed);
+            }
+            return;
+        }
+        highlights.put(payload.entityId(), new Highlight(payload.expiryTick()));
+    }
+
+    void onClientTick(ClientTickEvent.Post event) {
+        ClientLevel level = Minecraft.getInstance().level;
+        if (level == null || highlights.isEmpty()) return;
+
+        long gameTime = level.getGameTime();
+        Scoreboard scoreboard = level.getScoreboard();
+        Iterator<Int2ObjectMap.Entry<Highlight>> iterator = highlights.int2ObjectEntrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            Entity entity = level.getEntity(entry.getIntKey());
+            Highlight highlight = entry.getValue();
+            if (entity == null || entity.isRemoved()) {
+                // 实体已在客户端移除（停止跟踪、被拾取或切换维度）
+                leaveTeam(scoreboard, highlight);
+                iterator.remove();
+                continue;
+            }
+
+            ChatFormatting color = highlight.expiryTick == GlowColorTracker.NO_EXPIRY
+                    ? ChatFormatting.BLUE
+                    : GlowColorTracker.colorForRemaining(highlight.expiryTick - gameTime, entity.tickCount);
+            if (color != highlight.color) {
+                highlight.color = color;
+                highlight.member = entity.getStringUUID();
+                scoreboard.addPlayerToTeam(highlight.member, teamFor(scoreboard, color));
+            }
+            setGlowing(entity, true);
+        }
+    }
+
+    void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        highlights.clear();
+    }
+
+    private static PlayerTeam teamFor(Scoreboard scoreboard, ChatFormatting color) {
+        String name = DeathEventHandler.glowTeamName(color);
+        PlayerTeam team = scoreboard.getPlayerTeam(name);
+        if (team == null) {
+            team = scoreboard.addPlayerTeam(name);
+            team.setColor(color);
+            team.setNameTagVisibility(Team.Visibility.NEVER);
+        }
+        return team;
+    }
+
+    private static void leaveTeam(Scoreboard scoreboard, Highlight highlight) {
+        if (highlight.member == null) return;
+        PlayerTeam team = scoreboard.getPlayersTeam(highlight.member);
+        if (team != null && team.getName().startsWith(DeathEventHandler.GLOW_TEAM_PREFIX)) {
+            scoreboard.removePlayerFromTeam(highlight.member, team);
+        }
+    }
+
+    private static void setGlowing(Entity entity, boolean glow) {
+        EntityDataAccessor<Byte> accessor = DeathEventHandler.SHARED_FLAGS_ACCESSOR;
+        if (accessor == null) return;
+        byte sharedFlags = entity.getEntityData().get(accessor);
+        byte next = glow
+                ? (byte) (sharedFlags | DeathEventHandler.GLOWING_FLAG_MASK)
+                : (byte) (sharedFlags & ~DeathEventHandler.GLOWING_FLAG_MASK);
+        if (next != sharedFlags) {
+            entity.getEntityData().set(accessor, next);
+        }
+    }
+}
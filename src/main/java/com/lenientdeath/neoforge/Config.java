@@ -14,6 +14,24 @@ public class Config {
     public static final ModConfigSpec SPEC;
     public static final Common COMMON;
 
+    /** 当前生效的配置快照；配置加载前为默认值快照。 */
+    private static volatile ConfigSnapshot snapshot;
+
+    /** 获取当前配置快照。热路径应在每个事件开始时读取一次并沿调用链传递。 */
+    public static ConfigSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 从已加载的配置值重建并发布快照。
+     * <p>
+     * 在 {@code ModConfigEvent.Loading/Reloading} 及配置命令修改/重载后调用；配置尚未加载时跳过。
+     */
+    public static void refreshSnapshot() {
+        if (!SPEC.isLoaded()) return;
+        snapshot = ConfigSnapshot.capture(COMMON);
+    }
+
     /**
      * 配置值定义容器。
      * <p>
@@ -33,6 +51,7 @@ public class Config {
         // --- NBT 检查 ---
         public final ModConfigSpec.BooleanValue NBT_ENABLED;
         public final ModConfigSpec.ConfigValue<String> NBT_KEY;
+        public final ModConfigSpec.ConfigValue<List<? extends String>> NBT_EXTRA_KEYS;
 
         // --- 总是保留/丢弃列表 ---
         public final ModConfigSpec.ConfigValue<List<? extends String>> ALWAYS_PRESERVED_ITEMS;
@@ -68,9 +87,12 @@ public class Config {
 
         public final ModConfigSpec.BooleanValue DEATH_COORDS_ENABLED;
         public final ModConfigSpec.BooleanValue ITEM_GLOW_ENABLED;
+        public final ModConfigSpec.EnumValue<HighlightMode> PRIVATE_HIGHLIGHT_MODE;
         public final ModConfigSpec.IntValue PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS;
         public final ModConfigSpec.DoubleValue PRIVATE_HIGHLIGHT_SCAN_RADIUS;
         public final ModConfigSpec.IntValue PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES;
+        public final ModConfigSpec.IntValue PRIVATE_HIGHLIGHT_MAX_VIEWERS_PER_TICK;
+        public final ModConfigSpec.BooleanValue PRIVATE_HIGHLIGHT_ASYNC;
 
         // --- 发光可见性 ---
         public final ModConfigSpec.EnumValue<GlowVisibility> GLOW_VISIBILITY;
@@ -128,6 +150,11 @@ public class Config {
                     "NBT boolean key name used for soulbound check\n"
                     + "灵魂绑定检查使用的 NBT 布尔键名\n"
                     + "示例：若设为 \"Soulbound\"，则物品 CustomData 中包含 {Soulbound:1b} 时视为绑定").define("nbtKey", "Soulbound");
+            NBT_EXTRA_KEYS = builder.comment(
+                    "Additional NBT boolean keys checked together with nbtKey (any true = preserved)\n"
+                    + "与 nbtKey 一同检查的额外 NBT 布尔键名，任一为 true 即视为绑定\n"
+                    + "示例：[\"Soulbound\", \"KeepOnDeath\"]")
+                    .defineList("extraNbtKeys", List.of(), o -> o instanceof String);
             builder.pop();
 
             builder.push("Lists");
@@ -191,6 +218,10 @@ public class Config {
             ITEM_GLOW_ENABLED = builder.comment(
                     "Enable private owner-only item glow highlight\n"
                     + "启用私有高亮：仅物品归属的玩家能看到掉落物发光，其他玩家看不到").define("itemGlow", true);
+            PRIVATE_HIGHLIGHT_MODE = builder.comment(
+                    "How death drops to highlight are found\n"
+                    + "TRACKING = when the client starts/stops tracking the item (no scans) / 物品进入或离开玩家客户端跟踪范围时处理，无需扫描\n"
+                    + "SCAN = periodic radius scans using the privateHighlightScan* settings / 按 privateHighlightScan* 设置定期扫描半径范围").defineEnum("privateHighlightMode", HighlightMode.SCAN);
             PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS = builder.comment(
                     "Private highlight scan interval in ticks (1–200)\n"
                     + "私有高亮扫描间隔（tick），值越小刻新越快但服务器开销越大\n"
@@ -201,13 +232,19 @@ public class Config {
             PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES = builder.comment(
                     "Max item entities processed per highlight scan (16–4096)\n"
                     + "每次扫描最多处理的掉落物实体数，用于限制服务器开销").defineInRange("privateHighlightMaxScannedEntities", 256, 16, 4096);
+            PRIVATE_HIGHLIGHT_MAX_VIEWERS_PER_TICK = builder.comment(
+                    "Max players whose private highlight is refreshed per tick (1–1024)\n"
+                    + "每 tick 最多刷新多少名玩家的私有高亮，超出的玩家顺延到下一 tick").defineInRange("privateHighlightMaxViewersPerTick", 16, 1, 1024);
+            PRIVATE_HIGHLIGHT_ASYNC = builder.comment(
+                    "SCAN mode only: compute highlight visibility on worker threads and apply the result on a later tick\n"
+                    + "仅 SCAN 模式：在工作线程计算高亮可见性，之后的 tick 再应用结果，减少主线程开销").define("privateHighlightAsync", false);
 
             builder.push("DroppedItemGlow");
             GLOW_VISIBILITY = builder.comment(
                     "Who should see the glow on death drop items?\n"
                     + "DEAD_PLAYER = Only the player who died / 仅死亡玩家自己\n"
                     + "DEAD_PLAYER_AND_TEAM = The dead player and anyone on the same team / 死亡玩家及同队伍玩家\n"
-                    + "EVERYONE = All online players / 所有在线玩家").defineEnum("glowVisibility", GlowVisibility.DEAD_PLAYER_AND_TEAM);
+                    + "EVERYONE = All online players, using the real glowing flag and server scoreboard teams (ldg_*) / 所有在线玩家，使用真实发光标志与服务端记分板队伍（ldg_*）").defineEnum("glowVisibility", GlowVisibility.DEAD_PLAYER_AND_TEAM);
             NO_TEAM_IS_VALID_TEAM = builder.comment(
                     "Only applies if glowVisibility is DEAD_PLAYER_AND_TEAM.\n"
                     + "If the dead player isn't on a team, show outline to everyone without a team?\n"
@@ -299,13 +336,21 @@ public class Config {
         ALL_DROPS
     }
 
+    /** 私有高亮的掉落物发现方式。 */
+    public enum HighlightMode {
+        /** 按间隔扫描观察者附近的掉落物。 */
+        SCAN,
+        /** 由实体开始/停止跟踪事件驱动。 */
+        TRACKING
+    }
+
     /** 发光高亮可见性模式。 */
     public enum GlowVisibility {
         /** 仅死亡玩家自己可见。 */
         DEAD_PLAYER,
         /** 死亡玩家及同队伍玩家可见。 */
         DEAD_PLAYER_AND_TEAM,
-        /** 所有在线玩家可见。 */
+        /** 所有在线玩家可见：直接设置真实发光标志与服务端队伍，由原版实体跟踪同步。 */
         EVERYONE
     }
 
@@ -313,5 +358,6 @@ public class Config {
         Pair<Common, ModConfigSpec> specPair = new ModConfigSpec.Builder().configure(Common::new);
         SPEC = specPair.getRight();
         COMMON = specPair.getLeft();
+        snapshot = ConfigSnapshot.defaults(COMMON);
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.lenientdeath.neoforge;
 
 import com.electronwill.nightconfig.core.file.CommentedFileConfig;
+import com.lenientdeath.neoforge.compat.CuriosCompat;
 import com.mojang.brigadier.arguments.BoolArgumentType;
 import com.mojang.brigadier.arguments.DoubleArgumentType;
 import com.mojang.brigadier.arguments.IntegerArgumentType;
@@ -18,6 +19,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * 注册并处理 {@code /lenientdeath} 命令树，包括配置读写、玩家列表操作和调试信息。
@@ -35,6 +37,7 @@ public final class ConfigCommands {
                 .then(booleanSetting("byItemTypeEnabled", Config.COMMON.BY_ITEM_TYPE_ENABLED))
                 .then(booleanSetting("deathCoordinates", Config.COMMON.DEATH_COORDS_ENABLED))
                 .then(booleanSetting("itemGlow", Config.COMMON.ITEM_GLOW_ENABLED))
+                .then(enumSetting("privateHighlightMode", Config.COMMON.PRIVATE_HIGHLIGHT_MODE))
                 .then(enumSetting("glowVisibility", Config.COMMON.GLOW_VISIBILITY))
                 .then(booleanSetting("noTeamIsValidTeam", Config.COMMON.NO_TEAM_IS_VALID_TEAM))
                 .then(booleanSetting("itemResilience", Config.COMMON.ITEM_RESILIENCE_ENABLED))
@@ -57,11 +60,35 @@ public final class ConfigCommands {
                                             String.valueOf(newValue), String.valueOf(oldValue)), true);
                                     return 1;
                                 })))
+                .then(Commands.literal("glowPacketBytesDebug")
+                        .then(Commands.argument("value", BoolArgumentType.bool())
+                                .executes(context -> {
+                                    boolean oldValue = SharedGlowPackets.INSTANCE.isByteStatsEnabled();
+                                    boolean newValue = BoolArgumentType.getBool(context, "value");
+                                    SharedGlowPackets.INSTANCE.setByteStatsEnabled(newValue);
+                                    context.getSource().sendSuccess(() -> Component.translatable(
+                                            "lenientdeath.command.config.set.applied", "glowPacketBytesDebug",
+                                            String.valueOf(newValue), String.valueOf(oldValue)), true);
+                                    return 1;
+                                })))
+                .then(Commands.literal("preservationRulesDebug")
+                        .then(Commands.argument("value", BoolArgumentType.bool())
+                                .executes(context -> {
+                                    boolean oldValue = PreservationChain.isStatsEnabled();
+                                    boolean newValue = BoolArgumentType.getBool(context, "value");
+                                    PreservationChain.setStatsEnabled(newValue);
+                                    context.getSource().sendSuccess(() -> Component.translatable(
+                                            "lenientdeath.command.config.set.applied", "preservationRulesDebug",
+                                            String.valueOf(newValue), String.valueOf(oldValue)), true);
+                                    return 1;
+                                })))
                 .then(enumSetting("voidRecoveryMode", Config.COMMON.VOID_RECOVERY_MODE))
                 .then(booleanSetting("restoreSlots", Config.COMMON.RESTORE_SLOTS_ENABLED))
                 .then(intSetting("privateHighlightScanIntervalTicks", Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS, 1, 200))
                 .then(doubleSetting("privateHighlightScanRadius", Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_RADIUS, 8.0, 256.0))
                 .then(intSetting("privateHighlightMaxScannedEntities", Config.COMMON.PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES, 16, 4096))
+                .then(intSetting("privateHighlightMaxViewersPerTick", Config.COMMON.PRIVATE_HIGHLIGHT_MAX_VIEWERS_PER_TICK, 1, 1024))
+                .then(booleanSetting("privateHighlightAsync", Config.COMMON.PRIVATE_HIGHLIGHT_ASYNC))
                 .then(intSetting("voidRecoveryWindowTicks", Config.COMMON.VOID_RECOVERY_WINDOW_TICKS, 1, 1200))
                 .then(intSetting("voidRecoveryMaxRecoveries", Config.COMMON.VOID_RECOVERY_MAX_RECOVERIES, 1, 100))
                 .then(intSetting("voidRecoveryCooldownTicks", Config.COMMON.VOID_RECOVERY_COOLDOWN_TICKS, 1, 1200));
@@ -71,6 +98,7 @@ public final class ConfigCommands {
                 .then(booleanGetter("byItemTypeEnabled", Config.COMMON.BY_ITEM_TYPE_ENABLED))
                 .then(booleanGetter("deathCoordinates", Config.COMMON.DEATH_COORDS_ENABLED))
                 .then(booleanGetter("itemGlow", Config.COMMON.ITEM_GLOW_ENABLED))
+                .then(enumGetter("privateHighlightMode", Config.COMMON.PRIVATE_HIGHLIGHT_MODE))
                 .then(enumGetter("glowVisibility", Config.COMMON.GLOW_VISIBILITY))
                 .then(booleanGetter("noTeamIsValidTeam", Config.COMMON.NO_TEAM_IS_VALID_TEAM))
                 .then(booleanGetter("itemResilience", Config.COMMON.ITEM_RESILIENCE_ENABLED))
@@ -89,11 +117,27 @@ public final class ConfigCommands {
                                     "lenientdeath.command.config.get.value", "voidRecoveryDebug", String.valueOf(val)), false);
                             return 1;
                         }))
+                .then(Commands.literal("glowPacketBytesDebug")
+                        .executes(context -> {
+                            boolean val = SharedGlowPackets.INSTANCE.isByteStatsEnabled();
+                            context.getSource().sendSuccess(() -> Component.translatable(
+                                    "lenientdeath.command.config.get.value", "glowPacketBytesDebug", String.valueOf(val)), false);
+                            return 1;
+                        }))
+                .then(Commands.literal("preservationRulesDebug")
+                        .executes(context -> {
+                            boolean val = PreservationChain.isStatsEnabled();
+                            context.getSource().sendSuccess(() -> Component.translatable(
+                                    "lenientdeath.command.config.get.value", "preservationRulesDebug", String.valueOf(val)), false);
+                            return 1;
+                        }))
                 .then(enumGetter("voidRecoveryMode", Config.COMMON.VOID_RECOVERY_MODE))
                 .then(booleanGetter("restoreSlots", Config.COMMON.RESTORE_SLOTS_ENABLED))
                 .then(intGetter("privateHighlightScanIntervalTicks", Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS, 1, 200))
                 .then(doubleGetter("privateHighlightScanRadius", Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_RADIUS, 8.0, 256.0))
                 .then(intGetter("privateHighlightMaxScannedEntities", Config.COMMON.PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES, 16, 4096))
+                .then(intGetter("privateHighlightMaxViewersPerTick", Config.COMMON.PRIVATE_HIGHLIGHT_MAX_VIEWERS_PER_TICK, 1, 1024))
+                .then(booleanGetter("privateHighlightAsync", Config.COMMON.PRIVATE_HIGHLIGHT_ASYNC))
                 .then(intGetter("voidRecoveryWindowTicks", Config.COMMON.VOID_RECOVERY_WINDOW_TICKS, 1, 1200))
                 .then(intGetter("voidRecoveryMaxRecoveries", Config.COMMON.VOID_RECOVERY_MAX_RECOVERIES, 1, 100))
                 .then(intGetter("voidRecoveryCooldownTicks", Config.COMMON.VOID_RECOVERY_COOLDOWN_TICKS, 1, 1200));
@@ -229,15 +273,64 @@ public final class ConfigCommands {
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.header"), false);
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.shared_flags", DeathEventHandler.isSharedFlagsAccessorReady()), false);
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.highlight_players", DeathEventHandler.getPrivateHighlightTrackedPlayerCount()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.highlight_scheduler", HighlightScheduler.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.async_highlight", AsyncHighlightPipeline.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.glow_packets", GlowPacketBatch.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.shared_glow_packets", SharedGlowPackets.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.glow_colors", GlowColorTracker.isAgeAccessorReady(), GlowColorTracker.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.owner_teams", OwnerTeamCache.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.tracked_drops", DeathEventHandler.getTrackedDeathDropStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.client_glow", DeathDropGlowPayload.getSentCount()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.global_glow", GlobalGlow.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.recovery_watchlist", RecoveryWatchlist.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.safe_spot_search", SafeSpotSearch.INSTANCE.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.recovery_spot_cache", RecoverySpotCache.INSTANCE.getStats()), false);
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.void_recovery_debug", DeathEventHandler.getVoidRecoveryDebug()), false);
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.saved_items", DeathEventHandler.getSavedItemsPlayerCount()), false);
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.snapshots", DeathEventHandler.getInventorySnapshotPlayerCount()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.death_drop_index", DeathDropIndex.getStats()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.slot_attribution", SlotAttribution.getStats()), false);
                                             context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.pending_death_pos", DeathEventHandler.getPendingDeathPositionPlayerCount()), false);
+                                            var listReload = ManualAllowAndBlocklist.INSTANCE.getLastReload();
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.manual_list_reload",
+                                                    listReload.cause().name().toLowerCase(Locale.ROOT),
+                                                    String.format(Locale.ROOT, "%.3f", listReload.durationNanos() / 1_000_000.0),
+                                                    listReload.resolvedEntries(), listReload.totalEntries()), false);
+                                            context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.status.curios_cache", CuriosCompat.getCacheStats()), false);
                                             return 1;
-                                        })))
+                                        }))
+                                .then(Commands.literal("rules")
+                                        .executes(context -> showRuleStats(context.getSource()))
+                                        .then(Commands.literal("reset")
+                                                .executes(context -> {
+                                                    PreservationChain.resetStats();
+                                                    context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.debug.rules.reset"), false);
+                                                    return 1;
+                                                }))))
         );
     }
 
+    /** 显示规则链各步骤的调用次数、命中次数与耗时。 */
+    private static int showRuleStats(CommandSourceStack source) {
+        source.sendSuccess(() -> Component.translatable("lenientdeath.command.debug.rules.header"), false);
+        if (!PreservationChain.isStatsEnabled()) {
+            source.sendSuccess(() -> Component.translatable("lenientdeath.command.debug.rules.disabled"), false);
+        }
+        for (var entry : PreservationChain.get().stats()) {
+            var stats = entry.getValue();
+            source.sendSuccess(() -> Component.translatable("lenientdeath.command.debug.rules.entry",
+                    entry.getKey(), stats.getCalls(), stats.getDecided(),
+                    String.format(Locale.ROOT, "%.1f", stats.getTotalNanos() / 1000.0), stats.getAverageNanos()), false);
+        }
+        return 1;
+    }
+
+    /** 配置值在内存中被修改后，刷新依赖配置的运行时缓存。 */
+    private static void onConfigValueChanged() {
+        Config.refreshSnapshot();
+        PreserveItems.INSTANCE.refresh();
+    }
+
     /** 保存配置文件。 */
     private static int saveConfig(CommandSourceStack source) {
         try {
@@ -288,6 +381,7 @@ public final class ConfigCommands {
 
             applyBoolean(fileConfig, "NBT.enabled", Config.COMMON.NBT_ENABLED);
             applyString(fileConfig, "NBT.nbtKey", Config.COMMON.NBT_KEY);
+            applyStringList(fileConfig, "NBT.extraNbtKeys", Config.COMMON.NBT_EXTRA_KEYS);
 
             applyStringList(fileConfig, "Lists.alwaysPreservedItems", Config.COMMON.ALWAYS_PRESERVED_ITEMS);
             applyStringList(fileConfig, "Lists.alwaysPreservedTags", Config.COMMON.ALWAYS_PRESERVED_TAGS);
@@ -320,9 +414,12 @@ public final class ConfigCommands {
 
             applyBoolean(fileConfig, "Features.deathCoordinates", Config.COMMON.DEATH_COORDS_ENABLED);
             applyBoolean(fileConfig, "Features.itemGlow", Config.COMMON.ITEM_GLOW_ENABLED);
+            applyEnum(fileConfig, "Features.privateHighlightMode", Config.COMMON.PRIVATE_HIGHLIGHT_MODE);
             applyInt(fileConfig, "Features.privateHighlightScanIntervalTicks", Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS);
             applyDouble(fileConfig, "Features.privateHighlightScanRadius", Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_RADIUS);
             applyInt(fileConfig, "Features.privateHighlightMaxScannedEntities", Config.COMMON.PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES);
+            applyInt(fileConfig, "Features.privateHighlightMaxViewersPerTick", Config.COMMON.PRIVATE_HIGHLIGHT_MAX_VIEWERS_PER_TICK);
+            applyBoolean(fileConfig, "Features.privateHighlightAsync", Config.COMMON.PRIVATE_HIGHLIGHT_ASYNC);
             applyEnum(fileConfig, "DroppedItemGlow.glowVisibility", Config.COMMON.GLOW_VISIBILITY);
             applyBoolean(fileConfig, "DroppedItemGlow.noTeamIsValidTeam", Config.COMMON.NO_TEAM_IS_VALID_TEAM);
             applyBoolean(fileConfig, "Features.itemResilience", Config.COMMON.ITEM_RESILIENCE_ENABLED);
@@ -341,7 +438,7 @@ public final class ConfigCommands {
             applyInt(fileConfig, "Features.voidRecoveryCooldownTicks", Config.COMMON.VOID_RECOVERY_COOLDOWN_TICKS);
             applyBoolean(fileConfig, "Features.restoreSlots", Config.COMMON.RESTORE_SLOTS_ENABLED);
 
-            ManualAllowAndBlocklist.INSTANCE.refreshItems();
+            onConfigValueChanged();
 
             Config.SPEC.save();
             return true;
@@ -413,6 +510,7 @@ public final class ConfigCommands {
                             boolean oldValue = value.get();
                             boolean newValue = BoolArgumentType.getBool(context, "value");
                             value.set(newValue);
+                            onConfigValueChanged();
                             int result = saveConfig(context.getSource());
                             if (result == 1) {
                                 context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.config.set.applied", key, String.valueOf(newValue), String.valueOf(oldValue)), true);
@@ -437,6 +535,7 @@ public final class ConfigCommands {
                             int oldValue = value.get();
                             int newValue = IntegerArgumentType.getInteger(context, "value");
                             value.set(newValue);
+                            onConfigValueChanged();
                             int result = saveConfig(context.getSource());
                             if (result == 1) {
                                 context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.config.set.applied_range", key, String.valueOf(newValue), String.valueOf(oldValue), String.valueOf(min), String.valueOf(max)), true);
@@ -461,6 +560,7 @@ public final class ConfigCommands {
                             double oldValue = value.get();
                             double newValue = DoubleArgumentType.getDouble(context, "value");
                             value.set(newValue);
+                            onConfigValueChanged();
                             int result = saveConfig(context.getSource());
                             if (result == 1) {
                                 context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.config.set.applied_range", key, String.valueOf(newValue), String.valueOf(oldValue), String.valueOf(min), String.valueOf(max)), true);
@@ -485,9 +585,9 @@ public final class ConfigCommands {
         return Commands.literal(key)
                 .then(Commands.argument("value", StringArgumentType.word())
                         .suggests((context, builder) -> {
-                            String remaining = builder.getRemaining().toUpperCase(java.util.Locale.ROOT);
+                            String remaining = builder.getRemaining().toUpperCase(Locale.ROOT);
                             for (Enum<?> e : constants) {
-                                if (e.name().toUpperCase(java.util.Locale.ROOT).startsWith(remaining)) {
+                                if (e.name().toUpperCase(Locale.ROOT).startsWith(remaining)) {
                                     builder.suggest(e.name());
                                 }
                             }
@@ -503,13 +603,14 @@ public final class ConfigCommands {
 
                             try {
                                 Class<? extends Enum> enumClass = oldEnum.getDeclaringClass();
-                                Enum<?> parsed = Enum.valueOf(enumClass, input.toUpperCase(java.util.Locale.ROOT));
+                                Enum<?> parsed = Enum.valueOf(enumClass, input.toUpperCase(Locale.ROOT));
                                 ((ModConfigSpec.EnumValue) value).set(parsed);
                             } catch (IllegalArgumentException ex) {
                                 context.getSource().sendFailure(Component.translatable("lenientdeath.command.config.set.invalid", key, input));
                                 return 0;
                             }
 
+                            onConfigValueChanged();
                             int result = saveConfig(context.getSource());
                             if (result == 1) {
                                 context.getSource().sendSuccess(() -> Component.translatable("lenientdeath.command.config.set.applied", key, String.valueOf(value.get()), String.valueOf(oldValue)), true);
@@ -548,7 +649,7 @@ public final class ConfigCommands {
 
         values.add(entry);
         target.set(values);
-        ManualAllowAndBlocklist.INSTANCE.refreshItems();
+        onConfigValueChanged();
 
         int saved = saveConfig(source);
         if (saved == 1) {
@@ -569,7 +670,7 @@ public final class ConfigCommands {
         }
 
         target.set(values);
-        ManualAllowAndBlocklist.INSTANCE.refreshItems();
+        onConfigValueChanged();
 
         int saved = saveConfig(source);
         if (saved == 1) {
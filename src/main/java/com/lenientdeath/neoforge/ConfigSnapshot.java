@@ -0,0 +1,210 @@
+package com.lenientdeath.neoforge;
+
+import com.lenientdeath.neoforge.api.PreservationConfig;
+import net.neoforged.neoforge.common.ModConfigSpec;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 配置的不可变快照，供事件处理等热路径读取。
+ * <p>
+ * {@link ModConfigSpec} 的每次 {@code get()} 都要经过 night-config 查找；
+ * 快照在配置加载/重载及命令修改后由 {@link Config#refreshSnapshot()} 一次性构建，
+ * 通过 volatile 引用发布。每个事件处理只读取一次 {@link Config#snapshot()}，
+ * 并在整个处理过程中使用同一份快照。
+ */
+public record ConfigSnapshot(
+        // --- 主开关 ---
+        boolean preserveItemsEnabled,
+
+        // --- 随机保留 ---
+        boolean randomizerEnabled,
+        int randomizerChancePercent,
+        int luckAdditivePercent,
+        double luckMultiplier,
+
+        // --- NBT 检查 ---
+        boolean nbtEnabled,
+        List<String> nbtKeys,
+
+        // --- 总是保留/丢弃列表 ---
+        List<String> alwaysPreservedItems,
+        List<String> alwaysPreservedTags,
+        List<String> alwaysDroppedItems,
+        List<String> alwaysDroppedTags,
+
+        // --- 按类型分类 ---
+        boolean byItemTypeEnabled,
+        Config.TypeBehavior helmets,
+        Config.TypeBehavior chestplates,
+        Config.TypeBehavior leggings,
+        Config.TypeBehavior boots,
+        Config.TypeBehavior elytras,
+        Config.TypeBehavior shields,
+        Config.TypeBehavior tools,
+        Config.TypeBehavior weapons,
+        Config.TypeBehavior meleeWeapons,
+        Config.TypeBehavior rangedWeapons,
+        Config.TypeBehavior utilityTools,
+        Config.TypeBehavior fishingRods,
+        Config.TypeBehavior buckets,
+        Config.TypeBehavior enchantedBooks,
+        Config.TypeBehavior totems,
+        Config.TypeBehavior blockItems,
+        Config.TypeBehavior spawnEggs,
+        Config.TypeBehavior arrows,
+        Config.TypeBehavior food,
+        Config.TypeBehavior potions,
+        Config.TypeBehavior curios,
+
+        // --- 功能 ---
+        boolean deathCoordsEnabled,
+        boolean itemGlowEnabled,
+        Config.HighlightMode privateHighlightMode,
+        int privateHighlightScanIntervalTicks,
+        double privateHighlightScanRadius,
+        int privateHighlightMaxScannedEntities,
+        int privateHighlightMaxViewersPerTick,
+        boolean privateHighlightAsync,
+        Config.GlowVisibility glowVisibility,
+        boolean noTeamIsValidTeam,
+
+        // --- 物品韧性 ---
+        boolean itemResilienceEnabled,
+        boolean deathItemsFireProof,
+        boolean deathItemsCactusProof,
+        boolean deathItemsExplosionProof,
+
+        // --- 延长死亡物品寿命 ---
+        boolean extendedLifetimeEnabled,
+        int deathDropItemLifetimeSeconds,
+        boolean deathDropItemsNeverDespawn,
+
+        // --- 虚空/危险恢复 ---
+        boolean voidRecoveryEnabled,
+        boolean hazardRecoveryEnabled,
+        Config.VoidRecoveryMode voidRecoveryMode,
+        int voidRecoveryWindowTicks,
+        int voidRecoveryMaxRecoveries,
+        int voidRecoveryCooldownTicks,
+        boolean restoreSlotsEnabled
+) implements PreservationConfig {
+    /** 从已加载的配置读取当前值构建快照。 */
+    static ConfigSnapshot capture(Config.Common config) {
+        return read(config, new Source(false, Map.of()));
+    }
+
+    /** 使用配置默认值构建快照（配置尚未加载时使用）。 */
+    static ConfigSnapshot defaults(Config.Common config) {
+        return read(config, new Source(true, Map.of()));
+    }
+
+    /**
+     * 使用配置默认值构建快照，{@code overrides} 中的配置项改用给定值（基准等不加载配置文件的场景使用）。
+     * 值的类型须与配置项一致。
+     */
+    static ConfigSnapshot defaults(Config.Common config, Map<ModConfigSpec.ConfigValue<?>, Object> overrides) {
+        return read(config, new Source(true, overrides));
+    }
+
+    /** 读取配置项的来源：已加载的值或默认值，{@code overrides} 中的配置项优先。 */
+    private record Source(boolean defaults, Map<ModConfigSpec.ConfigValue<?>, Object> overrides) {
+        @SuppressWarnings("unchecked")
+        <T> T get(ModConfigSpec.ConfigValue<T> value) {
+            Object override = overrides.get(value);
+            if (override != null) return (T) override;
+            return defaults ? value.getDefault() : value.get();
+        }
+    }
+
+    private static ConfigSnapshot read(Config.Common c, Source source) {
+        return new ConfigSnapshot(
+                value(c.PRESERVE_ITEMS_ENABLED, source),
+
+                value(c.RANDOMIZER_ENABLED, source),
+                value(c.RANDOMIZER_CHANCE, source),
+                value(c.LUCK_ADDITIVE, source),
+                value(c.LUCK_MULTIPLIER, source),
+
+                value(c.NBT_ENABLED, source),
+                nbtKeys(value(c.NBT_KEY, source), stringList(c.NBT_EXTRA_KEYS, source)),
+
+                stringList(c.ALWAYS_PRESERVED_ITEMS, source),
+                stringList(c.ALWAYS_PRESERVED_TAGS, source),
+                stringList(c.ALWAYS_DROPPED_ITEMS, source),
+                stringList(c.ALWAYS_DROPPED_TAGS, source),
+
+                value(c.BY_ITEM_TYPE_ENABLED, source),
+                value(c.HELMETS, source),
+                value(c.CHESTPLATES, source),
+                value(c.LEGGINGS, source),
+                value(c.BOOTS, source),
+                value(c.ELYTRAS, source),
+                value(c.SHIELDS, source),
+                value(c.TOOLS, source),
+                value(c.WEAPONS, source),
+                value(c.MELEE_WEAPONS, source),
+                value(c.RANGED_WEAPONS, source),
+                value(c.UTILITY_TOOLS, source),
+                value(c.FISHING_RODS, source),
+                value(c.BUCKETS, source),
+                value(c.ENCHANTED_BOOKS, source),
+                value(c.TOTEMS, source),
+                value(c.BLOCK_ITEMS, source),
+                value(c.SPAWN_EGGS, source),
+                value(c.ARROWS, source),
+                value(c.FOOD, source),
+                value(c.POTIONS, source),
+                value(c.CURIOS, source),
+
+                value(c.DEATH_COORDS_ENABLED, source),
+                value(c.ITEM_GLOW_ENABLED, source),
+                value(c.PRIVATE_HIGHLIGHT_MODE, source),
+                Math.max(1, value(c.PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS, source)),
+                Math.max(8.0, value(c.PRIVATE_HIGHLIGHT_SCAN_RADIUS, source)),
+                Math.max(16, value(c.PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES, source)),
+                Math.max(1, value(c.PRIVATE_HIGHLIGHT_MAX_VIEWERS_PER_TICK, source)),
+                value(c.PRIVATE_HIGHLIGHT_ASYNC, source),
+                value(c.GLOW_VISIBILITY, source),
+                value(c.NO_TEAM_IS_VALID_TEAM, source),
+
+                value(c.ITEM_RESILIENCE_ENABLED, source),
+                value(c.DEATH_ITEMS_FIRE_PROOF, source),
+                value(c.DEATH_ITEMS_CACTUS_PROOF, source),
+                value(c.DEATH_ITEMS_EXPLOSION_PROOF, source),
+
+                value(c.EXTENDED_LIFETIME_ENABLED, source),
+                value(c.DEATH_DROP_ITEM_LIFETIME_SECONDS, source),
+                value(c.DEATH_DROP_ITEMS_NEVER_DESPAWN, source),
+
+                value(c.VOID_RECOVERY_ENABLED, source),
+                value(c.HAZARD_RECOVERY_ENABLED, source),
+                value(c.VOID_RECOVERY_MODE, source),
+                value(c.VOID_RECOVERY_WINDOW_TICKS, source),
+                value(c.VOID_RECOVERY_MAX_RECOVERIES, source),
+                value(c.VOID_RECOVERY_COOLDOWN_TICKS, source),
+                value(c.RESTORE_SLOTS_ENABLED, source)
+        );
+    }
+
+    private static <T> T value(ModConfigSpec.ConfigValue<T> value, Source source) {
+        return source.get(value);
+    }
+
+    /** 合并主键名与额外键名：主键优先、去重并忽略空白项。 */
+    private static List<String> nbtKeys(String primary, List<String> extra) {
+        Set<String> keys = new LinkedHashSet<>();
+        if (!primary.isBlank()) keys.add(primary);
+        for (String key : extra) {
+            if (!key.isBlank()) keys.add(key);
+        }
+        return List.copyOf(keys);
+    }
+
+    private static List<String> stringList(ModConfigSpec.ConfigValue<List<? extends String>> value, Source source) {
+        return List.copyOf(source.get(value));
+    }
+}
@@ -0,0 +1,63 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 数据包规则：{@code lenientdeath:always_dropped} / {@code lenientdeath:always_preserved} 物品标签。
+ * <p>
+ * 数据包无需修改服务器配置即可参与判定；与手动列表相同，掉落优先于保留。
+ * 标签内容只与物品有关，随标签重载一起重新预编译。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+public class DatapackTagRule implements BuiltinPreservationRule {
+    public static final DatapackTagRule INSTANCE = new DatapackTagRule();
+    private static final ResourceLocation ID = ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "datapack_tags");
+
+    public static final TagKey<Item> ALWAYS_PRESERVED = TagKey.create(Registries.ITEM,
+            ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "always_preserved"));
+    public static final TagKey<Item> ALWAYS_DROPPED = TagKey.create(Registries.ITEM,
+            ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "always_dropped"));
+
+    private DatapackTagRule() {}
+
+    @Override
+    public ResourceLocation id() {
+        return ID;
+    }
+
+    @Override
+    public int priority() {
+        return 150;
+    }
+
+    @Override
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack) {
+        Boolean keep = shouldKeep(stack.getItemHolder());
+        if (keep == null) return null;
+        return keep ? stack.getCount() : 0;
+    }
+
+    @Override
+    public boolean isItemStatic() {
+        return true;
+    }
+
+    @Override
+    public @Nullable Boolean shouldKeepItem(ConfigSnapshot config, Item item) {
+        return shouldKeep(BuiltInRegistries.ITEM.wrapAsHolder(item));
+    }
+
+    private static @Nullable Boolean shouldKeep(Holder<Item> item) {
+        if (item.is(ALWAYS_DROPPED)) return false;
+        if (item.is(ALWAYS_PRESERVED)) return true;
+        return null;
+    }
+}
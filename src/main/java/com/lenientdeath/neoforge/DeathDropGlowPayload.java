@@ -0,0 +1,88 @@
+package com.lenientdeath.neoforge;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.ByIdMap;
+import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 死亡掉落物高亮的客户端同步包：告诉装有本模组的客户端某个掉落物是否高亮、与观察者的关系及绝对到期 tick，
+ * 颜色与闪烁由客户端按 {@link GlowColorTracker#colorForRemaining} 自行计算并渲染。
+ * <p>
+ * 通道为可选通道：握手时客户端声明了该通道才使用，原版客户端或未安装本模组的客户端继续走发光标志 + 颜色队伍数据包。
+ *
+ * @param entityId   掉落物实体 ID
+ * @param relation   观察者与归属玩家的关系，{@link Relation#NONE} 表示取消高亮
+ * @param expiryTick 到期时的维度游戏时间，无限寿命为 {@link GlowColorTracker#NO_EXPIRY}
+ */
+public record DeathDropGlowPayload(int entityId, Relation relation, long expiryTick) implements CustomPacketPayload {
+    /** 通道协议版本，格式变化时递增。 */
+    private static final String PROTOCOL_VERSION = "1";
+
+    public static final Type<DeathDropGlowPayload> TYPE =
+            new Type<>(ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "death_drop_glow"));
+
+    public static final StreamCodec<ByteBuf, DeathDropGlowPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, DeathDropGlowPayload::entityId,
+            Relation.STREAM_CODEC, DeathDropGlowPayload::relation,
+            ByteBufCodecs.VAR_LONG, DeathDropGlowPayload::expiryTick,
+            DeathDropGlowPayload::new
+    );
+
+    private static final LongAdder SENT = new LongAdder();
+
+    /** 观察者与掉落物归属玩家的关系（即哪条可见性规则让观察者看到了高亮）。 */
+    public enum Relation {
+        NONE,
+        OWNER,
+        TEAMMATE,
+        OTHER;
+
+        static final StreamCodec<ByteBuf, Relation> STREAM_CODEC = ByteBufCodecs.idMapper(
+                ByIdMap.continuous(Relation::ordinal, values(), ByIdMap.OutOfBoundsStrategy.ZERO), Relation::ordinal);
+    }
+
+    static DeathDropGlowPayload show(int entityId, Relation relation, long expiryTick) {
+        SENT.increment();
+        return new DeathDropGlowPayload(entityId, relation, expiryTick);
+    }
+
+    static DeathDropGlowPayload hide(int entityId) {
+        SENT.increment();
+        return new DeathDropGlowPayload(entityId, Relation.NONE, GlowColorTracker.NO_EXPIRY);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+
+    /** 观察者客户端是否在握手时声明了该通道。 */
+    static boolean isSupportedBy(ServerPlayer player) {
+        return player.connection.hasChannel(TYPE);
+    }
+
+    static void register(RegisterPayloadHandlersEvent event) {
+        event.registrar(PROTOCOL_VERSION)
+                .optional()
+                .playToClient(TYPE, STREAM_CODEC, DeathDropGlowPayload::handle);
+    }
+
+    /** 只会在客户端调用，专用服务端不会加载客户端渲染类。 */
+    private static void handle(DeathDropGlowPayload payload, IPayloadContext context) {
+        ClientDeathDropGlow.INSTANCE.accept(payload);
+    }
+
+    // ── 调试状态 ──
+
+    static long getSentCount() {
+        return SENT.sum();
+    }
+}
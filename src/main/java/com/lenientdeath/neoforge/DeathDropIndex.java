@@ -0,0 +1,151 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 按维度维护的死亡掉落物索引，按区块段（16³）分桶。
+ * <p>
+ * 只收录带有归属玩家标记的 ItemEntity：实体加入/离开世界、跨越区块段时由 {@link DeathEventHandler} 更新。
+ * 私有高亮刷新只查询观察者附近的区块段，不再对整个范围做实体 AABB 扫描，也不会接触普通掉落物。
+ * <p>
+ * 所有方法只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class DeathDropIndex {
+    private static final Map<ResourceKey<Level>, DeathDropIndex> INDEXES = new ConcurrentHashMap<>();
+
+    /** 区块段 → 段内的死亡掉落物。 */
+    private final Long2ObjectMap<Set<ItemEntity>> sections = new Long2ObjectOpenHashMap<>();
+    /** 实体 → 当前所在区块段。 */
+    private final Reference2LongMap<ItemEntity> sectionOf = new Reference2LongOpenHashMap<>();
+
+    private DeathDropIndex() {}
+
+    static DeathDropIndex of(ServerLevel level) {
+        return INDEXES.computeIfAbsent(level.dimension(), ignored -> new DeathDropIndex());
+    }
+
+    /** 维度卸载时丢弃整份索引。 */
+    static void unload(ServerLevel level) {
+        INDEXES.remove(level.dimension());
+    }
+
+    /** 收录实体（已收录时按当前位置更新分桶）。 */
+    void add(ItemEntity item) {
+        move(item, SectionPos.asLong(item.blockPosition()));
+    }
+
+    void remove(ItemEntity item) {
+        if (!sectionOf.containsKey(item)) return;
+        removeFromSection(item, sectionOf.removeLong(item));
+    }
+
+    /** 遍历维度内已收录的全部死亡掉落物（回调中不得修改索引）。 */
+    void forEach(Consumer<ItemEntity> action) {
+        sectionOf.keySet().forEach(action);
+    }
+
+    /** 实体跨越区块段：未收录的实体忽略。 */
+    void onSectionChange(ItemEntity item, long newSection) {
+        if (sectionOf.containsKey(item)) {
+            move(item, newSection);
+        }
+    }
+
+    private void move(ItemEntity item, long newSection) {
+        if (sectionOf.containsKey(item)) {
+            long oldSection = sectionOf.getLong(item);
+            if (oldSection == newSection) return;
+            removeFromSection(item, oldSection);
+        }
+        sectionOf.put(item, newSection);
+        sections.computeIfAbsent(newSection, key -> new ReferenceOpenHashSet<>()).add(item);
+    }
+
+    private void removeFromSection(ItemEntity item, long section) {
+        Set<ItemEntity> bucket = sections.get(section);
+        if (bucket == null) return;
+        bucket.remove(item);
+        if (bucket.isEmpty()) {
+            sections.remove(section);
+        }
+    }
+
+    /**
+     * 收集与范围相交的区块段中、位于范围内的存活死亡掉落物。
+     * <p>
+     * 范围覆盖的区块段数多于已有分桶数时改为遍历分桶，稀疏索引不必逐段查找。
+     *
+     * @param limit 最多收集的实体数量
+     */
+    void collect(AABB box, int limit, List<ItemEntity> out) {
+        if (sectionOf.isEmpty() || limit <= 0) return;
+
+        int minX = SectionPos.blockToSectionCoord(box.minX);
+        int minY = SectionPos.blockToSectionCoord(box.minY);
+        int minZ = SectionPos.blockToSectionCoord(box.minZ);
+        int maxX = SectionPos.blockToSectionCoord(box.maxX);
+        int maxY = SectionPos.blockToSectionCoord(box.maxY);
+        int maxZ = SectionPos.blockToSectionCoord(box.maxZ);
+        long sectionsInBox = (long) (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+
+        if (sectionsInBox > sections.size()) {
+            for (Long2ObjectMap.Entry<Set<ItemEntity>> entry : sections.long2ObjectEntrySet()) {
+                long section = entry.getLongKey();
+                int x = SectionPos.x(section);
+                int y = SectionPos.y(section);
+                int z = SectionPos.z(section);
+                if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) continue;
+                if (collectBucket(entry.getValue(), box, limit, out)) return;
+            }
+            return;
+        }
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    Set<ItemEntity> bucket = sections.get(SectionPos.asLong(x, y, z));
+                    if (bucket != null && collectBucket(bucket, box, limit, out)) return;
+                }
+            }
+        }
+    }
+
+    /** @return 是否已达到收集上限 */
+    private static boolean collectBucket(Set<ItemEntity> bucket, AABB box, int limit, List<ItemEntity> out) {
+        for (ItemEntity item : bucket) {
+            if (!item.isAlive() || !box.intersects(item.getBoundingBox())) continue;
+            out.add(item);
+            if (out.size() >= limit) return true;
+        }
+        return false;
+    }
+
+    // ── 调试状态 ──
+
+    static String getStats() {
+        int entries = 0;
+        int buckets = 0;
+        for (DeathDropIndex index : INDEXES.values()) {
+            entries += index.sectionOf.size();
+            buckets += index.sections.size();
+        }
+        return "levels=" + INDEXES.size() + ", sections=" + buckets + ", items=" + entries;
+    }
+}
@@ -1,17 +1,20 @@
 package com.lenientdeath.neoforge;
 
+import com.mojang.brigadier.context.CommandContextBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import net.minecraft.ChatFormatting;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.GlobalPos;
 import net.minecraft.network.chat.Component;
-import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
 import net.minecraft.network.protocol.game.ClientboundSetPlayerTeamPacket;
 import net.minecraft.network.syncher.EntityDataAccessor;
-import net.minecraft.network.syncher.EntityDataSerializers;
-import net.minecraft.network.syncher.SynchedEntityData;
 import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.players.PlayerList;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.item.ItemEntity;
 import net.minecraft.world.entity.player.Inventory;
@@ -21,17 +24,29 @@ import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.scores.PlayerTeam;
 import net.minecraft.world.scores.Scoreboard;
 import net.minecraft.world.scores.Team;
+import net.neoforged.bus.api.EventPriority;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
 import net.neoforged.neoforge.common.util.TriState;
+import net.neoforged.neoforge.event.CommandEvent;
+import net.neoforged.neoforge.event.entity.EntityEvent;
+import net.neoforged.neoforge.event.entity.EntityInvulnerabilityCheckEvent;
+import net.neoforged.neoforge.event.entity.EntityJoinLevelEvent;
+import net.neoforged.neoforge.event.entity.EntityLeaveLevelEvent;
 import net.neoforged.neoforge.event.entity.living.LivingDeathEvent;
 import net.neoforged.neoforge.event.entity.living.LivingDropsEvent;
 import net.neoforged.neoforge.event.entity.player.ItemEntityPickupEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerEvent;
-import net.neoforged.neoforge.event.tick.EntityTickEvent;
+import net.neoforged.neoforge.event.level.BlockEvent;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
 import net.neoforged.neoforge.event.tick.PlayerTickEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.ArrayDeque;
 import java.util.Collection;
@@ -77,25 +92,31 @@ public class DeathEventHandler {
     /** Entity shared flags 同步数据的 slot ID（固定为 0）。 */
     private static final int ENTITY_SHARED_FLAGS_DATA_ID = 0;
     /** Entity shared flags 中发光位的掩码。 */
-    private static final byte GLOWING_FLAG_MASK = 0x40;
+    static final byte GLOWING_FLAG_MASK = 0x40;
 
     // ── 反射获取的访问器 ──────────────────────────────────────────
 
     /** 通过反射获取的 Entity.DATA_SHARED_FLAGS_ID，用于发送私有发光数据包。 */
-    private static final EntityDataAccessor<Byte> SHARED_FLAGS_ACCESSOR = resolveSharedFlagsAccessor();
+    static final EntityDataAccessor<Byte> SHARED_FLAGS_ACCESSOR = resolveSharedFlagsAccessor();
     /** 反射失败时只警告一次的标志位（volatile 保证多线程可见性）。 */
     private static volatile boolean SHARED_FLAGS_ACCESSOR_WARNED = false;
 
-    /** 通过反射获取的 ItemEntity.age 字段，用于计算发光颜色。 */
-    private static final Field ITEM_ENTITY_AGE_FIELD = resolveItemEntityAgeField();
-
     // ── 发光颜色队伍基础设施 ────────────────────────────────────
 
+    /** 发光颜色队伍名前缀（客户端本地渲染时使用同名队伍）。 */
+    static final String GLOW_TEAM_PREFIX = "ld_";
+    /** 由客户端自行渲染的高亮在 {@code PRIVATE_HIGHLIGHT_COLORS} 中的颜色占位（颜色由客户端计算）。 */
+    private static final ChatFormatting CLIENT_RENDERED = ChatFormatting.RESET;
+
     /** 用于构造队伍数据包的虚拟记分板。 */
     private static final Scoreboard GLOW_COLOR_SCOREBOARD = new Scoreboard();
 
     /** 每种发光颜色对应的虚拟队伍（仅用于客户端数据包，不影响服务端记分板）。 */
     private static final Map<ChatFormatting, PlayerTeam> GLOW_COLOR_TEAMS = createGlowColorTeams();
+    /** 颜色队伍创建包（内容固定，所有玩家共用同一组实例）。 */
+    private static final List<ClientboundSetPlayerTeamPacket> GLOW_TEAM_CREATE_PACKETS = GLOW_COLOR_TEAMS.values().stream()
+            .map(team -> ClientboundSetPlayerTeamPacket.createAddOrModifyPacket(team, true))
+            .toList();
 
     /**
      * 虚空恢复调试开关（仅运行时，不持久化到配置文件）。
@@ -109,7 +130,7 @@ public class DeathEventHandler {
     /** 死亡时保留的物品，在重生（Clone 事件）时还原。 */
     private static final Map<UUID, List<SavedItem>> SAVED_ITEMS = new ConcurrentHashMap<>();
     /** 死亡时的背包快照，用于匹配掉落物的原始槽位。 */
-    private static final Map<UUID, Map<Integer, ItemStack>> INVENTORY_SNAPSHOTS = new ConcurrentHashMap<>();
+    private static final Map<UUID, SlotAttribution> INVENTORY_SNAPSHOTS = new ConcurrentHashMap<>();
     /** 玩家安全位置的历史队列，用于恢复时查找最近的安全点。 */
     private static final Map<UUID, Deque<GlobalPos>> SAFE_POS_HISTORY = new ConcurrentHashMap<>();
     /** 待发送的死亡坐标消息（等到重生后发送更稳定）。 */
@@ -118,6 +139,32 @@ public class DeathEventHandler {
     private static final Map<UUID, Map<Integer, ChatFormatting>> PRIVATE_HIGHLIGHT_COLORS = new ConcurrentHashMap<>();
     /** 已向哪些玩家发送过发光颜色队伍创建包。 */
     private static final Set<UUID> GLOW_TEAMS_INITIALIZED = ConcurrentHashMap.newKeySet();
+    /** 每个玩家客户端正在跟踪的死亡掉落物（StartTracking/StopTracking 维护，两种高亮模式下都保持更新）。 */
+    private static final Map<UUID, Set<ItemEntity>> TRACKED_DEATH_DROPS = new ConcurrentHashMap<>();
+    /** 本 tick 内跟踪状态变化的掉落物（true = 开始跟踪），TRACKING 模式下在 tick 结束时统一处理。 */
+    private static final Map<UUID, Map<ItemEntity, Boolean>> PENDING_TRACKING_CHANGES = new ConcurrentHashMap<>();
+    /** TRACKING 模式下需要对所有已跟踪掉落物重新判定（队伍或高亮配置变化后）。 */
+    private static volatile boolean trackedHighlightsDirty = true;
+    /** TRACKING 模式下需要对已跟踪掉落物重新判定的观察者（本人或所跟踪掉落物的归属玩家队伍变化）。 */
+    private static final Set<UUID> DIRTY_TRACKED_VIEWERS = ConcurrentHashMap.newKeySet();
+    /** 本 tick 内按可见性类别（观察者队伍）共享的归属玩家判定结果，不含观察者本人即归属玩家的情况。 */
+    private static final Map<VisibilityClass, Map<UUID, DeathDropGlowPayload.Relation>> CLASS_RELATIONS = new HashMap<>();
+    /** 上次 tick 使用的高亮相关配置，变化时标记重新判定。 */
+    private static HighlightSettings lastHighlightSettings;
+    /** 恢复候选列表当前按哪种恢复模式收录；切换到 ALL_DROPS 时补录已加载的掉落物。 */
+    private static Config.VoidRecoveryMode watchedRecoveryMode = Config.VoidRecoveryMode.DEATH_DROPS_ONLY;
+
+    /** 可见性类别：除归属玩家本人外，同队伍（或同为无队伍）的观察者对同一掉落物的判定相同。 */
+    private record VisibilityClass(PlayerTeam team) {}
+
+    /** 影响已跟踪掉落物高亮结果的配置项。 */
+    private record HighlightSettings(boolean enabled, Config.HighlightMode mode, boolean async,
+                                     Config.GlowVisibility visibility, boolean noTeamIsValidTeam) {
+        static HighlightSettings of(ConfigSnapshot config) {
+            return new HighlightSettings(config.itemGlowEnabled(), config.privateHighlightMode(), config.privateHighlightAsync(),
+                    config.glowVisibility(), config.noTeamIsValidTeam());
+        }
+    }
 
     @SuppressWarnings("unchecked")
     private static EntityDataAccessor<Byte> resolveSharedFlagsAccessor() {
@@ -131,18 +178,6 @@ public class DeathEventHandler {
         }
     }
 
-    /** 反射获取 ItemEntity 的 age 字段，用于计算物品剩余寿命和发光颜色。 */
-    private static Field resolveItemEntityAgeField() {
-        try {
-            Field field = ItemEntity.class.getDeclaredField("age");
-            field.setAccessible(true);
-            return field;
-        } catch (NoSuchFieldException e) {
-            LOGGER.error("Failed to resolve ItemEntity.age field, glow color will default to green", e);
-            return null;
-        }
-    }
-
     /** 创建每种发光颜色对应的虚拟队伍（仅用于客户端数据包中的轮廓颜色）。 */
     private static Map<ChatFormatting, PlayerTeam> createGlowColorTeams() {
         Map<ChatFormatting, PlayerTeam> teams = new HashMap<>();
@@ -151,7 +186,7 @@ public class DeathEventHandler {
             ChatFormatting.GOLD, ChatFormatting.RED, ChatFormatting.DARK_RED
         };
         for (ChatFormatting color : colors) {
-            PlayerTeam team = new PlayerTeam(GLOW_COLOR_SCOREBOARD, "ld_" + color.getName());
+            PlayerTeam team = new PlayerTeam(GLOW_COLOR_SCOREBOARD, glowTeamName(color));
             team.setColor(color);
             team.setNameTagVisibility(Team.Visibility.NEVER);
             teams.put(color, team);
@@ -159,62 +194,319 @@ public class DeathEventHandler {
         return teams;
     }
 
-    /** 读取 ItemEntity 的 age 字段值（反射）。 */
-    private static int getItemEntityAge(ItemEntity item) {
-        if (ITEM_ENTITY_AGE_FIELD == null) return 0;
-        try {
-            return ITEM_ENTITY_AGE_FIELD.getInt(item);
-        } catch (IllegalAccessException e) {
-            return 0;
+    static String glowTeamName(ChatFormatting color) {
+        return GLOW_TEAM_PREFIX + color.getName();
+    }
+
+    /**
+     * 服务器 tick 后处理：推送到期的发光变色，然后按高亮模式处理：
+     * TRACKING 模式处理本 tick 的跟踪变化；SCAN 模式按 {@link HighlightScheduler} 的相位与每 tick 上限刷新。
+     */
+    @SubscribeEvent
+    public static void onServerTick(ServerTickEvent.Post event) {
+        ConfigSnapshot config = Config.snapshot();
+        var playerList = event.getServer().getPlayerList();
+        long now = event.getServer().getTickCount();
+        SharedGlowPackets.INSTANCE.beginTick();
+        CLASS_RELATIONS.clear();
+        SafeSpotSearch.INSTANCE.tick(DeathEventHandler::applySafeSpotResult);
+        pushGlowColorChanges(now, playerList);
+
+        HighlightSettings settings = HighlightSettings.of(config);
+        if (!settings.equals(lastHighlightSettings)) {
+            lastHighlightSettings = settings;
+            trackedHighlightsDirty = true;
+            AsyncHighlightPipeline.INSTANCE.invalidate();
         }
+
+        // EVERYONE 可见性改用真实发光标志与服务端队伍，无需逐个观察者处理
+        boolean globalGlow = config.itemGlowEnabled() && config.glowVisibility() == Config.GlowVisibility.EVERYONE;
+        if (globalGlow != GlobalGlow.INSTANCE.isActive()) {
+            if (globalGlow) {
+                for (ServerPlayer player : playerList.getPlayers()) {
+                    clearPrivateHighlights(player);
+                }
+                GlobalGlow.INSTANCE.activate(event.getServer(), now);
+            } else {
+                GlobalGlow.INSTANCE.deactivate(event.getServer());
+                trackedHighlightsDirty = true;
+            }
+        }
+        if (globalGlow) {
+            PENDING_TRACKING_CHANGES.clear();
+            return;
+        }
+
+        if (config.privateHighlightMode() == Config.HighlightMode.TRACKING) {
+            flushTrackedHighlights(config, playerList, now);
+            return;
+        }
+
+        PENDING_TRACKING_CHANGES.clear();
+        if (config.itemGlowEnabled() && config.privateHighlightAsync()) {
+            // 先应用上一个任务的结果，再为本 tick 到期的观察者提交新任务
+            AsyncHighlightPipeline pipeline = AsyncHighlightPipeline.INSTANCE;
+            pipeline.applyCompleted(result -> applyHighlightDeltas(playerList, result, now));
+            HighlightScheduler.INSTANCE.tick(now, config.privateHighlightScanIntervalTicks(),
+                    config.privateHighlightMaxViewersPerTick(), pipeline::markDue);
+            pipeline.submitIfIdle(event.getServer(), config, now,
+                    viewerId -> PRIVATE_HIGHLIGHT_COLORS.getOrDefault(viewerId, Map.of()).keySet());
+            return;
+        }
+
+        HighlightScheduler.INSTANCE.tick(
+                event.getServer().getTickCount(),
+                config.privateHighlightScanIntervalTicks(),
+                config.privateHighlightMaxViewersPerTick(),
+                viewerId -> {
+                    ServerPlayer player = playerList.getPlayer(viewerId);
+                    if (player == null) return;
+                    if (config.itemGlowEnabled()) {
+                        refreshPrivateHighlights(config, player);
+                    } else {
+                        clearPrivateHighlights(player);
+                    }
+                });
     }
 
     /**
-     * 根据物品剩余寿命计算发光颜色。
-     * <ul>
-     *   <li>蓝色：剩余 &gt; 5 min（仅延长寿命时可见）</li>
-     *   <li>绿色：[3 min, 5 min)</li>
-     *   <li>黄色：[2 min, 3 min)</li>
-     *   <li>橙色：[1 min, 2 min)</li>
-     *   <li>红色：[30 sec, 1 min)</li>
-     *   <li>闪烁红：[0, 30 sec)（每约 0.5 秒交替红/暗红）</li>
-     * </ul>
+     * TRACKING 模式：在 tick 结束时处理本 tick 内的跟踪变化。
+     * <p>
+     * 配置变化或队伍命令后，以每个玩家已跟踪的全部死亡掉落物为候选做完整差异；否则只处理开始/停止跟踪的掉落物。
+     * {@code DEAD_PLAYER_AND_TEAM} 可见性下每个队伍缓存有效期重新解析一次已缓存的队伍，
+     * 只对队伍引用实际变化所影响的观察者做完整差异，空闲时几乎没有开销。
      */
-    private static ChatFormatting getGlowColorForItem(ItemEntity item) {
-        int age = getItemEntityAge(item);
-        int lifespan = item.lifespan;
-        int remainingTicks = lifespan - age;
+    private static void flushTrackedHighlights(ConfigSnapshot config, PlayerList playerList, long now) {
+        if (config.itemGlowEnabled() && config.glowVisibility() == Config.GlowVisibility.DEAD_PLAYER_AND_TEAM
+                && now % OwnerTeamCache.TTL_TICKS == 0) {
+            markTeamChangedViewers(playerList.getServer(), now);
+        }
 
-        // 无限寿命 (age < 0 表示 setUnlimitedLifetime)
-        if (age < 0 || remainingTicks > 6000) return ChatFormatting.BLUE;
-        if (remainingTicks >= 3600) return ChatFormatting.GREEN;
-        if (remainingTicks >= 2400) return ChatFormatting.YELLOW;
-        if (remainingTicks >= 1200) return ChatFormatting.GOLD;  // 橙色近似
-        if (remainingTicks >= 600) return ChatFormatting.RED;
-        // 闪烁红：每 10 tick 交替
-        return (item.tickCount / 10) % 2 == 0 ? ChatFormatting.RED : ChatFormatting.DARK_RED;
+        if (trackedHighlightsDirty) {
+            trackedHighlightsDirty = false;
+            PENDING_TRACKING_CHANGES.clear();
+            DIRTY_TRACKED_VIEWERS.clear();
+            for (ServerPlayer player : playerList.getPlayers()) {
+                if (!config.itemGlowEnabled()) {
+                    clearPrivateHighlights(player);
+                } else if (player.level() instanceof ServerLevel serverLevel) {
+                    applyPrivateHighlights(config, player, serverLevel, TRACKED_DEATH_DROPS.getOrDefault(player.getUUID(), Set.of()));
+                }
+            }
+            return;
+        }
+
+        if (!PENDING_TRACKING_CHANGES.isEmpty()) {
+            if (config.itemGlowEnabled()) {
+                for (var entry : PENDING_TRACKING_CHANGES.entrySet()) {
+                    ServerPlayer player = playerList.getPlayer(entry.getKey());
+                    if (player != null && player.level() instanceof ServerLevel serverLevel) {
+                        applyTrackingChanges(config, player, serverLevel, entry.getValue(), now);
+                    }
+                }
+            }
+            PENDING_TRACKING_CHANGES.clear();
+        }
+
+        // 先处理跟踪变化（停止再开始跟踪需要重新发送），再对队伍变化的观察者做完整差异
+        if (DIRTY_TRACKED_VIEWERS.isEmpty()) return;
+        for (UUID viewerId : DIRTY_TRACKED_VIEWERS) {
+            ServerPlayer player = playerList.getPlayer(viewerId);
+            if (player != null && player.level() instanceof ServerLevel serverLevel) {
+                applyPrivateHighlights(config, player, serverLevel, TRACKED_DEATH_DROPS.getOrDefault(viewerId, Set.of()));
+            }
+        }
+        DIRTY_TRACKED_VIEWERS.clear();
+    }
+
+    /**
+     * 重新解析已缓存的队伍，把本人或所跟踪掉落物的归属玩家队伍发生变化的观察者标记为需要重新判定。
+     * 观察者本人的队伍也登记到缓存，下一个周期才能发现其变化。
+     */
+    private static void markTeamChangedViewers(MinecraftServer server, long now) {
+        Set<UUID> changed = OwnerTeamCache.INSTANCE.revalidate(server, now);
+        for (UUID viewerId : TRACKED_DEATH_DROPS.keySet()) {
+            OwnerTeamCache.INSTANCE.watch(server, viewerId, now);
+        }
+        if (changed.isEmpty()) return;
+
+        for (var entry : TRACKED_DEATH_DROPS.entrySet()) {
+            if (changed.contains(entry.getKey())) {
+                DIRTY_TRACKED_VIEWERS.add(entry.getKey());
+                continue;
+            }
+            for (ItemEntity item : entry.getValue()) {
+                UUID owner = LenientItemState.ownerOf(item);
+                if (owner != null && changed.contains(owner)) {
+                    DIRTY_TRACKED_VIEWERS.add(entry.getKey());
+                    break;
+                }
+            }
+        }
     }
 
     /**
-     * 玩家 tick 后处理：记录安全位置 & 刷新私有高亮。
+     * 增量处理单个观察者的跟踪变化：开始跟踪的掉落物按可见性判定后高亮，停止跟踪的掉落物直接遗忘
+     * （客户端已移除实体，只需把它移出颜色队伍）。
      * <p>
-     * 安全位置每 {@value SAFE_POS_UPDATE_TICKS} tick 更新一次，仅在地面上时记录。
+     * 同一 tick 内先停止再开始跟踪（重生、传送到掉落物附近、维度往返）合并为一次开始跟踪，
+     * 此时客户端刚收到不带发光的新实体，所以开始跟踪总是先遗忘旧的高亮再重新发送。
+     */
+    private static void applyTrackingChanges(ConfigSnapshot config, ServerPlayer player, ServerLevel serverLevel,
+                                             Map<ItemEntity, Boolean> changes, long now) {
+        UUID playerId = player.getUUID();
+        Map<Integer, ChatFormatting> highlighted = PRIVATE_HIGHLIGHT_COLORS.computeIfAbsent(playerId, ignored -> new HashMap<>());
+        boolean clientRendered = DeathDropGlowPayload.isSupportedBy(player);
+        GlowPacketBatch batch = new GlowPacketBatch();
+        if (!clientRendered) {
+            ensureGlowTeamsSent(player, batch);
+        }
+
+        Config.GlowVisibility visibility = config.glowVisibility();
+        PlayerTeam viewerTeam = player.getTeam() instanceof PlayerTeam pt ? pt : null;
+        Map<UUID, DeathDropGlowPayload.Relation> relations = CLASS_RELATIONS.computeIfAbsent(new VisibilityClass(viewerTeam), ignored -> new HashMap<>());
+
+        for (var change : changes.entrySet()) {
+            ItemEntity item = change.getKey();
+            int entityId = item.getId();
+            ChatFormatting color = highlighted.remove(entityId);
+            if (color != null && color != CLIENT_RENDERED) {
+                GlowColorTracker.INSTANCE.untrack(item, playerId);
+                batch.leave(color, item.getStringUUID());
+            }
+            if (!change.getValue()) continue;
+
+            if (!item.isAlive() || item.level() != serverLevel) continue;
+            UUID owner = LenientItemState.ownerOf(item);
+            DeathDropGlowPayload.Relation relation = playerId.equals(owner)
+                    ? DeathDropGlowPayload.Relation.OWNER
+                    : relations.computeIfAbsent(owner, id -> relationTo(config, viewerTeam, id, visibility, serverLevel, now));
+            if (relation == DeathDropGlowPayload.Relation.NONE) continue;
+
+            highlighted.put(entityId, addHighlight(batch, playerId, item, relation, clientRendered, now));
+        }
+
+        batch.send(player, GLOW_COLOR_TEAMS);
+    }
+
+    /**
+     * 应用异步计算的高亮差异。快照之后实体可能已消失、观察者可能已切换维度或已被同步路径更新，
+     * 这里按当前状态逐项校验后再生成数据包。
+     */
+    private static void applyHighlightDeltas(PlayerList playerList, AsyncHighlightPipeline.Result result, long now) {
+        for (AsyncHighlightPipeline.ViewerDelta delta : result.deltas()) {
+            ServerPlayer player = playerList.getPlayer(delta.viewer());
+            if (player == null || !(player.level() instanceof ServerLevel serverLevel) || serverLevel.dimension() != delta.level()) continue;
+
+            UUID playerId = player.getUUID();
+            Map<Integer, ChatFormatting> highlighted = PRIVATE_HIGHLIGHT_COLORS.computeIfAbsent(playerId, ignored -> new HashMap<>());
+            boolean clientRendered = DeathDropGlowPayload.isSupportedBy(player);
+            GlowPacketBatch batch = new GlowPacketBatch();
+            if (!clientRendered) {
+                ensureGlowTeamsSent(player, batch);
+            }
+
+            for (var added : delta.added().entrySet()) {
+                int entityId = added.getKey();
+                if (highlighted.containsKey(entityId)) continue;
+                if (!(serverLevel.getEntity(entityId) instanceof ItemEntity item) || !item.isAlive()) continue;
+                highlighted.put(entityId, addHighlight(batch, playerId, item, added.getValue(), clientRendered, now));
+            }
+            delta.removed().forEach((int entityId) -> {
+                ChatFormatting color = highlighted.remove(entityId);
+                if (color == null) return;
+                Entity maybeEntity = serverLevel.getEntity(entityId);
+                if (maybeEntity instanceof ItemEntity item) {
+                    GlowColorTracker.INSTANCE.untrack(item, playerId);
+                }
+                if (maybeEntity != null && maybeEntity.isAlive()) {
+                    removeHighlight(batch, maybeEntity, color);
+                }
+            });
+
+            batch.send(player, GLOW_COLOR_TEAMS);
+        }
+    }
+
+    /**
+     * 向批次加入新增高亮的数据包，返回记录在 {@code PRIVATE_HIGHLIGHT_COLORS} 中的颜色：
+     * 客户端渲染时发送同步包，否则登记颜色跟踪并打开发光标志、加入颜色队伍。
      */
+    private static ChatFormatting addHighlight(GlowPacketBatch batch, UUID viewerId, ItemEntity item,
+                                               DeathDropGlowPayload.Relation relation, boolean clientRendered, long now) {
+        if (clientRendered) {
+            batch.add(DeathDropGlowPayload.show(item.getId(), relation, GlowColorTracker.expiryTick(item, item.level().getGameTime())));
+            return CLIENT_RENDERED;
+        }
+        ChatFormatting color = GlowColorTracker.INSTANCE.track(item, viewerId, now);
+        addPrivateGlowPacket(batch, item, true);
+        batch.join(color, item.getStringUUID());
+        return color;
+    }
+
+    /** 死亡掉落物进入玩家客户端的跟踪范围。 */
     @SubscribeEvent
-    @SuppressWarnings("ConstantConditions")
-    public static void onPlayerTick(PlayerTickEvent.Post event) {
+    public static void onStartTracking(PlayerEvent.StartTracking event) {
+        if (!(event.getTarget() instanceof ItemEntity item)) return;
         if (!(event.getEntity() instanceof ServerPlayer player)) return;
-        if (player.level().isClientSide) return;
+        if (LenientItemState.ownerOf(item) == null) return;
+        UUID playerId = player.getUUID();
+        TRACKED_DEATH_DROPS.computeIfAbsent(playerId, ignored -> new ReferenceOpenHashSet<>()).add(item);
+        PENDING_TRACKING_CHANGES.computeIfAbsent(playerId, ignored -> new Reference2BooleanLinkedOpenHashMap<>()).put(item, true);
+    }
 
-        int privateHighlightIntervalTicks = getPrivateHighlightIntervalTicks();
+    /** 死亡掉落物离开玩家客户端的跟踪范围（包括实体被移除）。 */
+    @SubscribeEvent
+    public static void onStopTracking(PlayerEvent.StopTracking event) {
+        if (!(event.getTarget() instanceof ItemEntity item)) return;
+        if (!(event.getEntity() instanceof ServerPlayer player)) return;
+        UUID playerId = player.getUUID();
+        Set<ItemEntity> tracked = TRACKED_DEATH_DROPS.get(playerId);
+        if (tracked == null || !tracked.remove(item)) return;
+        PENDING_TRACKING_CHANGES.computeIfAbsent(playerId, ignored -> new Reference2BooleanLinkedOpenHashMap<>()).put(item, false);
+    }
 
-        if (Config.COMMON.ITEM_GLOW_ENABLED.get()) {
-            if (player.tickCount % privateHighlightIntervalTicks == 0) {
-                refreshPrivateHighlights(player);
+    /**
+     * 推进发光颜色时间轮：颜色变化的物品只通知正在高亮它的观察者，每个观察者一个批次。
+     */
+    private static void pushGlowColorChanges(long now, PlayerList playerList) {
+        Map<UUID, GlowPacketBatch> batches = new HashMap<>();
+        GlowColorTracker.INSTANCE.advance(now, (item, color, viewers) -> {
+            Iterator<UUID> iterator = viewers.iterator();
+            while (iterator.hasNext()) {
+                UUID viewerId = iterator.next();
+                if (viewerId.equals(GlobalGlow.VIEWER)) {
+                    GlobalGlow.INSTANCE.onColorChange(item, color);
+                    continue;
+                }
+                Map<Integer, ChatFormatting> highlighted = PRIVATE_HIGHLIGHT_COLORS.get(viewerId);
+                if (highlighted == null || !highlighted.containsKey(item.getId()) || playerList.getPlayer(viewerId) == null) {
+                    // 观察者已重生、登出或不再高亮该物品
+                    iterator.remove();
+                    continue;
+                }
+                highlighted.put(item.getId(), color);
+                batches.computeIfAbsent(viewerId, ignored -> new GlowPacketBatch()).join(color, item.getStringUUID());
+            }
+        });
+        for (var entry : batches.entrySet()) {
+            ServerPlayer viewer = playerList.getPlayer(entry.getKey());
+            if (viewer != null) {
+                entry.getValue().send(viewer, GLOW_COLOR_TEAMS);
             }
-        } else if (player.tickCount % privateHighlightIntervalTicks == 0) {
-            clearPrivateHighlights(player);
         }
+    }
+
+    /**
+     * 玩家 tick 后处理：记录安全位置。
+     * <p>
+     * 安全位置每 {@value SAFE_POS_UPDATE_TICKS} tick 更新一次，仅在地面上时记录。
+     */
+    @SubscribeEvent
+    @SuppressWarnings("ConstantConditions")
+    public static void onPlayerTick(PlayerTickEvent.Post event) {
+        if (!(event.getEntity() instanceof ServerPlayer player)) return;
+        if (player.level().isClientSide) return;
 
         // 只有玩家站在地面上，且不是观察者模式时，才记录安全点历史
         if (player.tickCount % SAFE_POS_UPDATE_TICKS == 0 && player.onGround() && !player.isSpectator() && player.level() instanceof ServerLevel serverLevel) {
@@ -233,15 +525,16 @@ public class DeathEventHandler {
      */
     @SubscribeEvent
     public static void onItemPickup(ItemEntityPickupEvent.Pre event) {
-        if (!Config.COMMON.RESTORE_SLOTS_ENABLED.get()) return;
+        if (!Config.snapshot().restoreSlotsEnabled()) return;
 
         if (!(event.getPlayer() instanceof ServerPlayer player)) return;
 
         ItemEntity entity = event.getItemEntity();
 
-        if (!ModEntityData.has(entity, ModAttachments.ORIGINAL_SLOT)) return;
+        LenientItemState state = LenientItemState.peek(entity);
+        if (state == null) return;
 
-        int targetSlot = ModEntityData.get(entity, ModAttachments.ORIGINAL_SLOT);
+        int targetSlot = state.originalSlot();
         if (targetSlot >= 0 && targetSlot < player.getInventory().getContainerSize()) {
             ItemStack entityStack = entity.getItem();
             if (entityStack.isEmpty()) return;
@@ -273,23 +566,17 @@ public class DeathEventHandler {
     public static void onPlayerDeath(LivingDeathEvent event) {
         if (!(event.getEntity() instanceof ServerPlayer player)) return;
 
+        ConfigSnapshot config = Config.snapshot();
+
         // 死亡坐标提示（在 Clone 事件给新玩家实例发送，避免死亡瞬间消息丢失）
-        if (Config.COMMON.DEATH_COORDS_ENABLED.get()) {
+        if (config.deathCoordsEnabled()) {
             var lvl = player.level();
             PENDING_DEATH_POS.put(player.getUUID(), GlobalPos.of(lvl.dimension(), player.blockPosition()));
         }
 
-        // 背包快照 (用于恢复槽位)
-        if (Config.COMMON.RESTORE_SLOTS_ENABLED.get()) {
-            Map<Integer, ItemStack> snapshot = new HashMap<>();
-            Inventory inv = player.getInventory();
-            for (int i = 0; i < inv.getContainerSize(); i++) {
-                ItemStack stack = inv.getItem(i);
-                if (!stack.isEmpty()) {
-                    snapshot.put(i, stack.copy());
-                }
-            }
-            INVENTORY_SNAPSHOTS.put(player.getUUID(), snapshot);
+        // 背包快照 (用于恢复槽位)：只记录堆叠引用，不复制
+        if (config.restoreSlotsEnabled()) {
+            INVENTORY_SNAPSHOTS.put(player.getUUID(), SlotAttribution.capture(player.getInventory()));
         }
     }
 
@@ -300,12 +587,13 @@ public class DeathEventHandler {
     public static void onPlayerDrops(LivingDropsEvent event) {
         if (!(event.getEntity() instanceof ServerPlayer player)) return;
 
+        ConfigSnapshot config = Config.snapshot();
         Collection<ItemEntity> drops = event.getDrops();
         List<SavedItem> keptItems = new ArrayList<>();
         Iterator<ItemEntity> iterator = drops.iterator();
 
         // 获取快照
-        Map<Integer, ItemStack> snapshot = INVENTORY_SNAPSHOTS.remove(player.getUUID());
+        SlotAttribution snapshot = INVENTORY_SNAPSHOTS.remove(player.getUUID());
         // 获取玩家历史安全点中的最佳候选（优先同维度且接近死亡点）
         GlobalPos lastSafePos = getBestHistoricalSafePos(player.getUUID(), player.level().dimension(), player.blockPosition());
         if (lastSafePos == null && ModEntityData.has(player, ModAttachments.SAFE_RECOVERY_POS)) {
@@ -314,37 +602,40 @@ public class DeathEventHandler {
 
         ServerLevel serverLevel = player.level() instanceof ServerLevel level ? level : null;
         boolean immediateVoidRecovery = serverLevel != null
-            && Config.COMMON.VOID_RECOVERY_ENABLED.get()
+            && config.voidRecoveryEnabled()
             && shouldImmediateVoidRecover(serverLevel, player.getY());
 
-        // 缓存即时虚空恢复目标：同一死亡事件中所有物品共用同一恢复位置，
-        // 避免为每个掉落物重复执行昂贵的 3D 安全点搜索（resolveRecoveryTarget）
-        BlockPos cachedImmediateRecoveryPos = null;
-        String cachedImmediateRecoverySource = null;
+        // 缓存即时虚空恢复目标：同一死亡事件中所有物品共用同一恢复位置；
+        // 首选安全点不可用时，所有掉落物合并为一次异步搜索（SafeSpotSearch）
+        RecoveryTarget cachedImmediateRecoveryTarget = null;
+        boolean immediateRecoverySearch = false;
+
+        // 批量判定保留数量：相同物品 + 组件的堆叠只询问一次确定性规则
+        List<ItemStack> dropStacks = new ArrayList<>(drops.size());
+        for (ItemEntity entity : drops) {
+            dropStacks.add(entity.getItem());
+        }
+        int[] amountsToKeep = PreserveItems.howManyToPreserve(config, player, dropStacks);
+        int dropIndex = 0;
 
         while (iterator.hasNext()) {
             ItemEntity entity = iterator.next();
             ItemStack stack = entity.getItem();
+            int amountToKeep = amountsToKeep[dropIndex++];
             int matchedSlot = -1;
+            LenientItemState state = LenientItemState.of(entity);
 
-            if (Config.COMMON.RESTORE_SLOTS_ENABLED.get() && snapshot != null) {
-                var match = snapshot.entrySet().stream()
-                        .filter(e -> ItemStack.isSameItemSameComponents(e.getValue(), stack))
-                        .findFirst();
-
-                if (match.isPresent()) {
-                    matchedSlot = match.get().getKey();
-                    snapshot.remove(matchedSlot);
-                    ModEntityData.put(entity, ModAttachments.ORIGINAL_SLOT, matchedSlot);
+            if (config.restoreSlotsEnabled() && snapshot != null) {
+                matchedSlot = snapshot.claim(stack);
+                if (matchedSlot >= 0) {
+                    state.setOriginalSlot(matchedSlot);
                 }
             }
 
             // 标记掉落物归属，供私有高亮使用
-            ModEntityData.put(entity, ModAttachments.OWNER_UUID, player.getUUID());
-            ModEntityData.put(entity, ModAttachments.IS_DEATH_DROP, true);
+            state.markDeathDrop(player.getUUID());
 
             // --- A. 物品保留 ---
-            int amountToKeep = PreserveItems.howManyToPreserve(player, stack);
             if (amountToKeep > 0) {
                 if (amountToKeep >= stack.getCount()) {
                     keptItems.add(new SavedItem(stack.copy(), matchedSlot));
@@ -362,23 +653,23 @@ public class DeathEventHandler {
             // 1. 发光改为“仅归属玩家可见”的定向私有高亮（在 PlayerTick 中处理）
 
             // 2. 物品韧性：防爆/防火/防仙人掌
-            if (Config.COMMON.ITEM_RESILIENCE_ENABLED.get()) {
+            if (config.itemResilienceEnabled()) {
                 // 总开关：免疫所有伤害
                 entity.setInvulnerable(true);
-            } else if (Config.COMMON.DEATH_ITEMS_FIRE_PROOF.get()
-                    || Config.COMMON.DEATH_ITEMS_CACTUS_PROOF.get()
-                    || Config.COMMON.DEATH_ITEMS_EXPLOSION_PROOF.get()) {
+            } else if (config.deathItemsFireProof()
+                    || config.deathItemsCactusProof()
+                    || config.deathItemsExplosionProof()) {
                 // 分项开关：NeoForge 的 ItemEntity 不支持按伤害类型过滤，setInvulnerable 是唯一手段
                 entity.setInvulnerable(true);
             }
 
             // 3. 延长寿命
-            if (Config.COMMON.EXTENDED_LIFETIME_ENABLED.get()) {
-                if (Config.COMMON.DEATH_DROP_ITEMS_NEVER_DESPAWN.get()) {
+            if (config.extendedLifetimeEnabled()) {
+                if (config.deathDropItemsNeverDespawn()) {
                     entity.setUnlimitedLifetime();
                     entity.addTag("LENIENT_DEATH_INFINITE_LIFETIME");
                 } else {
-                    int lifetimeSeconds = Config.COMMON.DEATH_DROP_ITEM_LIFETIME_SECONDS.get();
+                    int lifetimeSeconds = config.deathDropItemLifetimeSeconds();
                     entity.lifespan = lifetimeSeconds * 20;
                 }
             }
@@ -386,26 +677,19 @@ public class DeathEventHandler {
             // 4. 写入安全位置数据 (用于防虚空)
             // 即使现在没掉进虚空，也要把这个“回家坐标”写在物品身上，万一它以后掉下去了呢
             if (lastSafePos != null) {
-                ModEntityData.put(entity, ModAttachments.SAFE_RECOVERY_POS, lastSafePos);
+                state.setSafePos(lastSafePos);
             }
 
             if (immediateVoidRecovery && serverLevel != null) {
-                if (cachedImmediateRecoveryPos == null) {
-                    RecoveryTarget rt = resolveRecoveryTarget(serverLevel, entity);
-                    cachedImmediateRecoveryPos = rt.pos();
-                    cachedImmediateRecoverySource = rt.source();
+                if (cachedImmediateRecoveryTarget == null && !immediateRecoverySearch) {
+                    cachedImmediateRecoveryTarget = resolveKnownRecoveryTarget(serverLevel, entity);
+                    immediateRecoverySearch = cachedImmediateRecoveryTarget == null;
                 }
-                double fromX = entity.getX();
-                double fromY = entity.getY();
-                double fromZ = entity.getZ();
-                teleportItemToSafety(entity, cachedImmediateRecoveryPos);
-                ModEntityData.put(entity, ModAttachments.VOID_RECOVERED, entity.tickCount);
-
-                if (isVoidRecoveryDebugEnabled()) {
-                    LOGGER.info("[LenientDeath][Recovery] Recover item {} mode={} trigger=death_drop_immediate_void source={} from ({}, {}, {}) -> ({}, {}, {})",
-                            entity.getId(), Config.COMMON.VOID_RECOVERY_MODE.get(), cachedImmediateRecoverySource,
-                            fromX, fromY, fromZ,
-                            cachedImmediateRecoveryPos.getX() + 0.5, cachedImmediateRecoveryPos.getY(), cachedImmediateRecoveryPos.getZ() + 0.5);
+                if (immediateRecoverySearch) {
+                    SafeSpotSearch.INSTANCE.request(serverLevel, entity, "death_drop_immediate_void",
+                            recoveryHoldPos(serverLevel, entity, "death_drop_immediate_void"));
+                } else {
+                    finishRecovery(entity, cachedImmediateRecoveryTarget, "death_drop_immediate_void");
                 }
             }
 
@@ -418,48 +702,150 @@ public class DeathEventHandler {
         }
     }
 
+    // ── 死亡掉落物索引维护 ────────────────────────────────────────
+
     /**
-     * 实体 tick 前处理：对 ItemEntity 执行虚空/危险恢复。
+     * 带归属标记的掉落物加入世界时收录到索引（包括新生成的死亡掉落物和随区块加载的旧掉落物），
+     * 需要虚空/危险恢复检查的掉落物同时收录到恢复候选列表。
+     * 使用最低优先级，确保其他监听器取消加入后不会被收录。
      */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onEntityJoinLevel(EntityJoinLevelEvent event) {
+        if (!(event.getEntity() instanceof ItemEntity item)) return;
+        if (!(event.getLevel() instanceof ServerLevel serverLevel)) return;
+        LenientItemState.migrateLegacy(item);
+        if (isRecoveryCandidate(item)) {
+            RecoveryWatchlist.of(serverLevel).add(item);
+        }
+        if (LenientItemState.ownerOf(item) == null) return;
+        DeathDropIndex.of(serverLevel).add(item);
+        if (GlobalGlow.INSTANCE.isActive()) {
+            GlobalGlow.INSTANCE.show(item, serverLevel.getServer().getTickCount());
+        } else {
+            // 全局发光模式下保存的掉落物，当前模式不再全局发光（只清除本模组设置的发光）
+            GlobalGlow.clearAppliedGlow(item);
+        }
+    }
+
+    /** 掉落物离开世界（被拾取、合并、消失、卸载或跨维度）时移出索引与恢复候选列表。 */
     @SubscribeEvent
-    @SuppressWarnings("ConstantConditions")
-    public static void onEntityTick(EntityTickEvent.Pre event) {
+    public static void onEntityLeaveLevel(EntityLeaveLevelEvent event) {
         if (!(event.getEntity() instanceof ItemEntity item)) return;
-        if (item.level().isClientSide) return;
+        if (!(event.getLevel() instanceof ServerLevel serverLevel)) return;
+        DeathDropIndex.of(serverLevel).remove(item);
+        RecoveryWatchlist.of(serverLevel).remove(item);
+        SafeSpotSearch.INSTANCE.release(item);
+        GlobalGlow.INSTANCE.forget(item);
+        GlowColorTracker.INSTANCE.forget(item);
+    }
 
-        boolean voidRecoveryEnabled = Config.COMMON.VOID_RECOVERY_ENABLED.get();
-        boolean hazardRecoveryEnabled = Config.COMMON.HAZARD_RECOVERY_ENABLED.get();
-        
-        if (!voidRecoveryEnabled && !hazardRecoveryEnabled) return;
+    /** 掉落物跨越区块段时更新分桶。 */
+    @SubscribeEvent
+    public static void onEntityEnterSection(EntityEvent.EnteringSection event) {
+        if (!(event.getEntity() instanceof ItemEntity item)) return;
+        if (!(item.level() instanceof ServerLevel serverLevel)) return;
+        DeathDropIndex.of(serverLevel).onSectionChange(item, event.getPackedNewPos());
+    }
 
-        Config.VoidRecoveryMode recoveryMode = Config.COMMON.VOID_RECOVERY_MODE.get();
-        boolean isDeathDrop = ModEntityData.has(item, ModAttachments.IS_DEATH_DROP) 
-                && ModEntityData.get(item, ModAttachments.IS_DEATH_DROP);
-        
-        // 根据模式过滤非死亡掉落物
-        if (recoveryMode == Config.VoidRecoveryMode.DEATH_DROPS_ONLY && !isDeathDrop) {
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            DeathDropIndex.unload(serverLevel);
+            RecoveryWatchlist.unload(serverLevel);
+            RecoverySpotCache.INSTANCE.unload(serverLevel);
+        }
+    }
+
+    // ── 恢复落点缓存失效 ────────────────────────────────────────
+
+    /** 方块被破坏后附近可能出现更近的落点（最低优先级，只处理未被取消的破坏）。 */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockBreak(BlockEvent.BreakEvent event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            RecoverySpotCache.INSTANCE.onBlockChanged(serverLevel, event.getPos());
+        }
+    }
+
+    /** 方块（含多方块）被放置后附近可能出现更近的落点。 */
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockPlace(BlockEvent.EntityPlaceEvent event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            RecoverySpotCache.INSTANCE.onBlockChanged(serverLevel, event.getPos());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (event.getLevel() instanceof ServerLevel serverLevel) {
+            RecoverySpotCache.INSTANCE.onChunkUnload(serverLevel, event.getChunk().getPos());
+        }
+    }
+
+    /**
+     * 维度 tick 后处理：遍历该维度的恢复候选列表，对掉落物执行虚空/危险恢复。
+     * <p>
+     * 只有 {@link RecoveryWatchlist} 中的掉落物会被检查，普通掉落物（{@code DEATH_DROPS_ONLY} 模式下）没有任何每 tick 开销。
+     * 检查发生在本 tick 所有实体移动之后，与下一 tick 实体移动前看到的状态相同。
+     */
+    @SubscribeEvent
+    public static void onLevelTick(LevelTickEvent.Post event) {
+        if (!(event.getLevel() instanceof ServerLevel serverLevel)) return;
+
+        ConfigSnapshot config = Config.snapshot();
+        if (!config.voidRecoveryEnabled() && !config.hazardRecoveryEnabled()) return;
+
+        if (config.voidRecoveryMode() != watchedRecoveryMode) {
+            if (config.voidRecoveryMode() == Config.VoidRecoveryMode.ALL_DROPS) {
+                RecoveryWatchlist.watchAllLoadedItems(serverLevel.getServer());
+            }
+            watchedRecoveryMode = config.voidRecoveryMode();
+        }
+
+        RecoveryWatchlist.of(serverLevel).process(item -> tickRecovery(config, serverLevel, item));
+    }
+
+    /** 掉落物加入世界时是否需要进入恢复候选列表。 */
+    private static boolean isRecoveryCandidate(ItemEntity item) {
+        return Config.snapshot().voidRecoveryMode() == Config.VoidRecoveryMode.ALL_DROPS || LenientItemState.isDeathDrop(item);
+    }
+
+    /**
+     * 对单个候选掉落物执行虚空/危险恢复检查。
+     *
+     * @return 是否继续跟踪该掉落物（{@code DEATH_DROPS_ONLY} 模式下的普通掉落物返回 {@code false}）
+     */
+    @SuppressWarnings("ConstantConditions")
+    private static boolean tickRecovery(ConfigSnapshot config, ServerLevel serverLevel, ItemEntity item) {
+        // 与实体 tick 一致：不处理未在实体 tick 范围内的掉落物；正在等待落点搜索的掉落物保持不动
+        if (!serverLevel.isPositionEntityTicking(item.blockPosition())) return true;
+        if (SafeSpotSearch.INSTANCE.isPending(item)) return true;
+
+        boolean voidRecoveryEnabled = config.voidRecoveryEnabled();
+        boolean hazardRecoveryEnabled = config.hazardRecoveryEnabled();
+
+        Config.VoidRecoveryMode recoveryMode = config.voidRecoveryMode();
+
+        // 根据模式过滤非死亡掉落物（切换回 DEATH_DROPS_ONLY 后逐步移出列表）
+        LenientItemState state = LenientItemState.peek(item);
+        if (recoveryMode == Config.VoidRecoveryMode.DEATH_DROPS_ONLY && (state == null || !state.deathDrop())) {
             if (isVoidRecoveryDebugEnabled()) {
                 LOGGER.info("[LenientDeath][Recovery] Skip item {} mode={} reason=not_death_drop at ({}, {}, {})",
                         item.getId(), recoveryMode, item.getX(), item.getY(), item.getZ());
             }
-            return;
+            return false;
         }
 
         // 检查是否刚刚恢复过（避免同一tick重复处理）
         // 使用恢复时的tick记录，仅跳过同一tick内的重复触发
-        if (ModEntityData.has(item, ModAttachments.VOID_RECOVERED)) {
-            int recoveredAtTick = ModEntityData.get(item, ModAttachments.VOID_RECOVERED);
-            if (recoveredAtTick >= 0 && item.tickCount - recoveredAtTick < 2) {
-                return;
-            }
+        if (state != null && state.recoveredRecently(item.tickCount)) {
+            return true;
         }
 
-        var lvl = item.level();
         String recoveryReason = null;
         
         // 检查虚空
         if (voidRecoveryEnabled) {
-            double triggerY = getVoidTriggerY(lvl.getMinBuildHeight());
+            double triggerY = getVoidTriggerY(serverLevel.getMinBuildHeight());
             double currentY = item.getY();
             double predictedNextY = currentY + item.getDeltaMovement().y;
             if (currentY <= triggerY || predictedNextY <= triggerY) {
@@ -476,63 +862,133 @@ public class DeathEventHandler {
         
         if (recoveryReason == null) {
             if (isVoidRecoveryDebugEnabled() && voidRecoveryEnabled) {
-                double triggerY = getVoidTriggerY(lvl.getMinBuildHeight());
+                double triggerY = getVoidTriggerY(serverLevel.getMinBuildHeight());
                 LOGGER.info("[LenientDeath][Recovery] Skip item {} reason=safe triggerY={} currentY={}",
                         item.getId(), triggerY, item.getY());
             }
-            return;
+            return true;
         }
 
         // 限流检查
-        if (!canRecoverFromVoidNow(item)) {
+        if (!canRecoverFromVoidNow(config, item)) {
             if (isVoidRecoveryDebugEnabled()) {
                 LOGGER.info("[LenientDeath][Recovery] Skip item {} reason=limiter_blocked at ({}, {}, {})",
                         item.getId(), item.getX(), item.getY(), item.getZ());
             }
-            return;
+            return true;
         }
 
-        if (lvl instanceof ServerLevel serverLevel) {
-            // 在传送前记录原始位置用于日志
-            double fromX = item.getX();
-            double fromY = item.getY();
-            double fromZ = item.getZ();
+        recoverItem(serverLevel, item, recoveryReason);
+        return true;
+    }
 
-            RecoveryTarget recoveryTarget = resolveRecoveryTarget(serverLevel, item);
-            teleportItemToSafety(item, recoveryTarget.pos());
-            
-            // 火焰/岩浆恢复后灭火
-            if ("lava".equals(recoveryReason) || "fire".equals(recoveryReason)) {
-                item.clearFire();
+    /**
+     * 把掉落物恢复到安全位置：首选安全点或缓存的落点可用时立即传送，否则交给 {@link SafeSpotSearch} 在工作线程上搜索，
+     * 掉落物固定在 {@link #recoveryHoldPos 保持位置} 直到结果返回。
+     */
+    private static void recoverItem(ServerLevel level, ItemEntity item, String reason) {
+        RecoveryTarget known = resolveKnownRecoveryTarget(level, item);
+        if (known != null) {
+            finishRecovery(item, known, reason);
+        } else {
+            SafeSpotSearch.INSTANCE.request(level, item, reason, recoveryHoldPos(level, item, reason));
+        }
+    }
+
+    /**
+     * 等待落点搜索时的保持位置（水平位置不变）。
+     * <ul>
+     *   <li>虚空：不低于虚空触发高度，高于原版在世界底部以下 64 格丢弃实体的高度</li>
+     *   <li>火焰/岩浆：原地不动，等待期间由 {@link #onInvulnerabilityCheck} 免疫伤害</li>
+     * </ul>
+     * 等待期间被保存的掉落物重新加载后仍处于同一种恢复条件，再次被恢复。
+     */
+    private static Vec3 recoveryHoldPos(ServerLevel level, ItemEntity item, String reason) {
+        if ("lava".equals(reason) || "fire".equals(reason)) {
+            return item.position();
+        }
+        return new Vec3(item.getX(), Math.max(item.getY(), getVoidTriggerY(level.getMinBuildHeight())), item.getZ());
+    }
+
+    /** 等待落点搜索的掉落物免疫伤害（只在内存中判定，不修改会随实体保存的无敌标志）。 */
+    @SubscribeEvent
+    public static void onInvulnerabilityCheck(EntityInvulnerabilityCheckEvent event) {
+        if (event.getEntity() instanceof ItemEntity item && !item.level().isClientSide()
+                && SafeSpotSearch.INSTANCE.isPending(item)) {
+            event.setInvulnerable(true);
+        }
+    }
+
+    /** 落点搜索完成：写入落点缓存，在主线程重新校验落点（世界可能已变化，并补上实体碰撞检查）后传送。 */
+    private static void applySafeSpotResult(SafeSpotSearch.Result result) {
+        ServerLevel level = result.level();
+        RecoverySpotCache cache = RecoverySpotCache.INSTANCE;
+        if ("nearest_3d".equals(result.source())) {
+            cache.putNearby(level, result.center(), result.pos());
+        } else {
+            // 附近没有落点：记录为空，之后直接使用出生点附近的缓存
+            cache.putNearby(level, result.center(), null);
+            if (result.pos() != null) {
+                cache.putSpawn(level, result.pos());
             }
+        }
 
-            // 标记恢复tick，避免同tick重复处理（但允许之后再次被拯救）
-            ModEntityData.put(item, ModAttachments.VOID_RECOVERED, item.tickCount);
+        for (SafeSpotSearch.Request request : result.requests()) {
+            ItemEntity item = request.item();
+            if (item.isRemoved() || item.level() != level) continue;
 
-            if (isVoidRecoveryDebugEnabled()) {
-                LOGGER.info("[LenientDeath][Recovery] Recover item {} mode={} trigger={} source={} from ({}, {}, {}) -> ({}, {}, {})",
-                        item.getId(), recoveryMode, recoveryReason, recoveryTarget.source(),
-                        fromX, fromY, fromZ,
-                        recoveryTarget.pos().getX() + 0.5, recoveryTarget.pos().getY(), recoveryTarget.pos().getZ() + 0.5);
+            RecoveryTarget target = null;
+            if (result.pos() != null) {
+                BlockPos validated = validatePreferredSafePos(level, item, result.pos());
+                if (validated != null) {
+                    target = new RecoveryTarget(validated, result.source());
+                }
             }
+            finishRecovery(item, target != null ? target : spawnFallbackTarget(level), request.reason());
+        }
+    }
+
+    /** 传送到恢复目标，火焰/岩浆恢复后灭火，并记录恢复 tick。 */
+    private static void finishRecovery(ItemEntity item, RecoveryTarget recoveryTarget, String reason) {
+        // 在传送前记录原始位置用于日志
+        double fromX = item.getX();
+        double fromY = item.getY();
+        double fromZ = item.getZ();
+
+        teleportItemToSafety(item, recoveryTarget.pos());
+
+        // 火焰/岩浆恢复后灭火
+        if ("lava".equals(reason) || "fire".equals(reason)) {
+            item.clearFire();
+        }
+
+        // 标记恢复tick，避免同tick重复处理（但允许之后再次被拯救）
+        LenientItemState.of(item).markRecovered(item.tickCount);
+
+        if (isVoidRecoveryDebugEnabled()) {
+            LOGGER.info("[LenientDeath][Recovery] Recover item {} mode={} trigger={} source={} from ({}, {}, {}) -> ({}, {}, {})",
+                    item.getId(), Config.snapshot().voidRecoveryMode(), reason, recoveryTarget.source(),
+                    fromX, fromY, fromZ,
+                    recoveryTarget.pos().getX() + 0.5, recoveryTarget.pos().getY(), recoveryTarget.pos().getZ() + 0.5);
         }
     }
 
     /**
-     * 解析恢复目标坐标，按优先级尝试：
+     * 解析首选恢复目标，按优先级尝试：
      * <ol>
      *   <li>玩家历史安全点（最近、同维度）</li>
      *   <li>物品附件上的安全点（死亡时记录）</li>
-     *   <li>物品当前位置附近的有3D距离最近安全点</li>
-     *   <li>出生点附近 / 出生点回退</li>
      * </ol>
+     * 都不可用时返回 null，由 {@link SafeSpotSearch} 继续搜索物品附近的 3D 最近安全点、出生点附近，最后回退到出生点。
      */
-    private static RecoveryTarget resolveRecoveryTarget(ServerLevel level, ItemEntity item) {
+    private static RecoveryTarget resolvePreferredRecoveryTarget(ServerLevel level, ItemEntity item) {
         BlockPos itemPos = item.blockPosition();
 
+        LenientItemState state = LenientItemState.peek(item);
+
         // 策略1（最高优先级）：玩家历史安全点
-        if (ModEntityData.has(item, ModAttachments.OWNER_UUID)) {
-            UUID ownerId = ModEntityData.get(item, ModAttachments.OWNER_UUID);
+        if (state != null && state.owner() != null) {
+            UUID ownerId = state.owner();
             GlobalPos historical = getBestHistoricalSafePos(ownerId, level.dimension(), itemPos);
             if (historical != null) {
                 BlockPos validated = validatePreferredSafePos(level, item, historical.pos());
@@ -543,9 +999,7 @@ public class DeathEventHandler {
         }
 
         // 策略2：物品附件上的安全点（通常来自死亡时记录）
-        GlobalPos safePos = ModEntityData.has(item, ModAttachments.SAFE_RECOVERY_POS)
-                ? ModEntityData.get(item, ModAttachments.SAFE_RECOVERY_POS)
-                : null;
+        GlobalPos safePos = state != null ? state.safePos() : null;
         if (safePos != null && safePos.dimension() == level.dimension()) {
             BlockPos validated = validatePreferredSafePos(level, item, safePos.pos());
             if (validated != null) {
@@ -553,19 +1007,49 @@ public class DeathEventHandler {
             }
         }
 
-        // 策略3：真正“最近”的安全位置（按三维距离）
-        BlockPos nearest = findNearestSafeSpot(level, item, itemPos, 16, 20);
-        if (nearest != null) {
-            return new RecoveryTarget(nearest, "nearest_3d");
+        return null;
+    }
+
+    /**
+     * 首选恢复目标，其次是 {@link RecoverySpotCache} 中对掉落物所在区块段缓存的落点（重新校验后使用）。
+     *
+     * @return 可立即使用的恢复目标，需要重新搜索时返回 null
+     */
+    private static RecoveryTarget resolveKnownRecoveryTarget(ServerLevel level, ItemEntity item) {
+        RecoveryTarget preferred = resolvePreferredRecoveryTarget(level, item);
+        if (preferred != null) {
+            return preferred;
         }
 
-        // 策略4：出生点附近
-        BlockPos spawnPos = level.getSharedSpawnPos();
-        BlockPos spawnNearest = findNearestSafeSpot(level, item, spawnPos, 8, 20);
-        if (spawnNearest != null) {
-            return new RecoveryTarget(spawnNearest, "spawn_nearest");
+        RecoverySpotCache cache = RecoverySpotCache.INSTANCE;
+        BlockPos itemPos = item.blockPosition();
+        RecoverySpotCache.Entry entry = cache.nearby(level, itemPos);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.pos() != null) {
+            BlockPos validated = validatePreferredSafePos(level, item, entry.pos());
+            if (validated != null) {
+                return new RecoveryTarget(validated, "cached_nearest_3d");
+            }
+            cache.invalidateNearby(level, itemPos);
+            return null;
+        }
+
+        BlockPos spawnSpot = cache.spawn(level);
+        if (spawnSpot != null) {
+            BlockPos validated = validatePreferredSafePos(level, item, spawnSpot);
+            if (validated != null) {
+                return new RecoveryTarget(validated, "cached_spawn_nearest");
+            }
+            cache.invalidateSpawn(level);
         }
+        return null;
+    }
 
+    /** 出生点回退：所有策略都找不到可用落点时使用。 */
+    private static RecoveryTarget spawnFallbackTarget(ServerLevel level) {
+        BlockPos spawnPos = level.getSharedSpawnPos();
         int fallbackY = Math.max(level.getMinBuildHeight() + 1, level.getSeaLevel());
         return new RecoveryTarget(new BlockPos(spawnPos.getX(), fallbackY, spawnPos.getZ()), "spawn_fallback");
     }
@@ -594,56 +1078,6 @@ public class DeathEventHandler {
         return null;
     }
 
-    /**
-     * 在以 center 为中心的 3D 范围内搜索距离最近的安全位置。
-     * <p>
-     * 采用由中心向外扩展的环形搜索策略：每次仅检查当前半径 r 的外环方块，
-     * 当已找到安全点且其距离的平方 &lt; (r+1)² 时提前终止，跳过更远的搜索。
-     * 与暴力遍历相比，在附近存在安全点时可大幅减少方块检查次数。
-     *
-     * @param horizontalRadius 水平搜索半径
-     * @param verticalRange    垂直搜索范围（上下各此值）
-     * @return 最近安全位置，找不到则返回 null
-     */
-    private static BlockPos findNearestSafeSpot(ServerLevel level, ItemEntity item, BlockPos center, int horizontalRadius, int verticalRange) {
-        BlockPos best = null;
-        double bestDistanceSq = Double.MAX_VALUE;
-
-        int minY = Math.max(level.getMinBuildHeight() + 1, center.getY() - verticalRange);
-        int maxY = Math.min(level.getMaxBuildHeight() - 2, center.getY() + verticalRange);
-
-        // 由中心向外扩展搜索，每次只检查半径为 r 的外环
-        for (int r = 0; r <= horizontalRadius; r++) {
-            // 提前终止：当前最优距离已小于下一环的最小可能距离（水平分量），
-            // 任何水平距离 >= r 的候选点不可能比当前最优更近
-            if (best != null && bestDistanceSq < (double) r * r) {
-                break;
-            }
-
-            for (int dx = -r; dx <= r; dx++) {
-                for (int dz = -r; dz <= r; dz++) {
-                    // 只检查半径 r 的外环边界（内部已在更小半径时检查过）
-                    if (r > 0 && Math.abs(dx) < r && Math.abs(dz) < r) continue;
-
-                    for (int y = minY; y <= maxY; y++) {
-                        BlockPos candidate = new BlockPos(center.getX() + dx, y, center.getZ() + dz);
-                        if (!isValidRecoverySpot(level, item, candidate)) {
-                            continue;
-                        }
-
-                        double distanceSq = candidate.distSqr(center);
-                        if (distanceSq < bestDistanceSq) {
-                            bestDistanceSq = distanceSq;
-                            best = candidate;
-                        }
-                    }
-                }
-            }
-        }
-
-        return best;
-    }
-
     /**
      * 检查给定位置是否为有效的恢复落点。
      * <p>
@@ -652,22 +1086,7 @@ public class DeathEventHandler {
      * @param feetPos 物品将被放置的位置（地板上方的空气方块）
      */
     private static boolean isValidRecoverySpot(ServerLevel level, ItemEntity item, BlockPos feetPos) {
-        BlockPos floorPos = feetPos.below();
-        BlockPos headPos = feetPos.above();
-
-        var floor = level.getBlockState(floorPos);
-        var feet = level.getBlockState(feetPos);
-        var head = level.getBlockState(headPos);
-
-        if (!floor.isSolidRender(level, floorPos)) {
-            return false;
-        }
-
-        if (!feet.isAir() || !head.isAir()) {
-            return false;
-        }
-
-        if (level.getFluidState(floorPos).isSource() || level.getFluidState(feetPos).isSource() || level.getFluidState(headPos).isSource()) {
+        if (!SafeSpotSearch.isOpenSpot(level, feetPos)) {
             return false;
         }
 
@@ -761,46 +1180,9 @@ public class DeathEventHandler {
      *
      * @return 是否允许本次恢复
      */
-    private static boolean canRecoverFromVoidNow(ItemEntity item) {
-        int now = item.tickCount;
-        int windowTicks = Config.COMMON.VOID_RECOVERY_WINDOW_TICKS.get();
-        int maxRecoveries = Config.COMMON.VOID_RECOVERY_MAX_RECOVERIES.get();
-        int cooldownTicks = Config.COMMON.VOID_RECOVERY_COOLDOWN_TICKS.get();
-
-        int cooldownUntil = ModEntityData.has(item, ModAttachments.VOID_RECOVERY_COOLDOWN_UNTIL_TICK)
-                ? ModEntityData.get(item, ModAttachments.VOID_RECOVERY_COOLDOWN_UNTIL_TICK)
-                : -1;
-
-        if (cooldownUntil > now) {
-            return false;
-        }
-
-        int windowStart = ModEntityData.has(item, ModAttachments.VOID_RECOVERY_WINDOW_START_TICK)
-                ? ModEntityData.get(item, ModAttachments.VOID_RECOVERY_WINDOW_START_TICK)
-                : -1;
-        int countInWindow = ModEntityData.has(item, ModAttachments.VOID_RECOVERY_COUNT_IN_WINDOW)
-                ? ModEntityData.get(item, ModAttachments.VOID_RECOVERY_COUNT_IN_WINDOW)
-                : 0;
-
-        if (windowStart < 0 || now - windowStart >= windowTicks) {
-            windowStart = now;
-            countInWindow = 0;
-        }
-
-        countInWindow++;
-
-        ModEntityData.put(item, ModAttachments.VOID_RECOVERY_WINDOW_START_TICK, windowStart);
-
-        if (countInWindow >= maxRecoveries) {
-            ModEntityData.put(item, ModAttachments.VOID_RECOVERY_COUNT_IN_WINDOW, 0);
-            ModEntityData.put(item, ModAttachments.VOID_RECOVERY_WINDOW_START_TICK, now);
-            ModEntityData.put(item, ModAttachments.VOID_RECOVERY_COOLDOWN_UNTIL_TICK, now + cooldownTicks);
-        } else {
-            ModEntityData.put(item, ModAttachments.VOID_RECOVERY_COUNT_IN_WINDOW, countInWindow);
-            ModEntityData.put(item, ModAttachments.VOID_RECOVERY_COOLDOWN_UNTIL_TICK, -1);
-        }
-
-        return true;
+    private static boolean canRecoverFromVoidNow(ConfigSnapshot config, ItemEntity item) {
+        return LenientItemState.of(item).tryConsumeRecovery(item.tickCount,
+                config.voidRecoveryWindowTicks(), config.voidRecoveryMaxRecoveries(), config.voidRecoveryCooldownTicks());
     }
 
     private static double getVoidTriggerY(int minBuildHeight) {
@@ -815,27 +1197,10 @@ public class DeathEventHandler {
      * 即时恢复：在掉落物生成时立即传送到安全位置（用于边缘场景如近虚空死亡）。
      */
     private static void attemptImmediateRecovery(ServerLevel level, ItemEntity item, String reason) {
-        if (ModEntityData.has(item, ModAttachments.VOID_RECOVERED)) {
-            int recoveredAtTick = ModEntityData.get(item, ModAttachments.VOID_RECOVERED);
-            if (recoveredAtTick >= 0 && item.tickCount - recoveredAtTick < 2) {
-                return;
-            }
-        }
-
-        double fromX = item.getX();
-        double fromY = item.getY();
-        double fromZ = item.getZ();
-
-        RecoveryTarget recoveryTarget = resolveRecoveryTarget(level, item);
-        teleportItemToSafety(item, recoveryTarget.pos());
-        ModEntityData.put(item, ModAttachments.VOID_RECOVERED, item.tickCount);
-
-        if (isVoidRecoveryDebugEnabled()) {
-            LOGGER.info("[LenientDeath][Recovery] Recover item {} mode={} trigger={} source={} from ({}, {}, {}) -> ({}, {}, {})",
-                    item.getId(), Config.COMMON.VOID_RECOVERY_MODE.get(), reason, recoveryTarget.source(),
-                    fromX, fromY, fromZ,
-                    recoveryTarget.pos().getX() + 0.5, recoveryTarget.pos().getY(), recoveryTarget.pos().getZ() + 0.5);
+        if (LenientItemState.of(item).recoveredRecently(item.tickCount) || SafeSpotSearch.INSTANCE.isPending(item)) {
+            return;
         }
+        recoverItem(level, item, reason);
     }
 
     /**
@@ -846,6 +1211,7 @@ public class DeathEventHandler {
         if (!event.isWasDeath()) return;
         ServerPlayer newPlayer = (ServerPlayer) event.getEntity();
         UUID uuid = event.getOriginal().getUUID();
+        ConfigSnapshot config = Config.snapshot();
 
         // 重生后客户端会收到服务端重新同步的原始实体数据（不含发光标志），
         // 必须清空旧的高亮跟踪记录，下次 refreshPrivateHighlights 会为所有掉落物重新发送发光包。
@@ -854,7 +1220,7 @@ public class DeathEventHandler {
 
         // 仅给死亡玩家自己发送死亡坐标消息（重生后发送更稳定）
         GlobalPos deathPos = PENDING_DEATH_POS.remove(uuid);
-        if (deathPos != null && Config.COMMON.DEATH_COORDS_ENABLED.get()) {
+        if (deathPos != null && config.deathCoordsEnabled()) {
             newPlayer.sendSystemMessage(Component.translatable(
                 "lenientdeath.death_message",
                 deathPos.pos().getX(),
@@ -867,7 +1233,7 @@ public class DeathEventHandler {
         // 恢复保留物品
         if (SAVED_ITEMS.containsKey(uuid)) {
             List<SavedItem> items = SAVED_ITEMS.get(uuid);
-            boolean restoreToSlot = Config.COMMON.RESTORE_SLOTS_ENABLED.get();
+            boolean restoreToSlot = config.restoreSlotsEnabled();
 
             for (SavedItem saved : items) {
                 ItemStack stack = saved.stack().copy();
@@ -894,6 +1260,45 @@ public class DeathEventHandler {
         }
     }
 
+    /** 玩家登录后加入私有高亮调度。 */
+    @SubscribeEvent
+    public static void onPlayerLogin(PlayerEvent.PlayerLoggedInEvent event) {
+        if (event.getEntity() instanceof ServerPlayer player) {
+            HighlightScheduler.INSTANCE.add(player.getUUID());
+            OwnerTeamCache.INSTANCE.invalidate(player.getUUID());
+            trackedHighlightsDirty = true;
+        }
+    }
+
+    /** 服务器启动时清理异常退出后残留在记分板中的全局发光队伍。 */
+    @SubscribeEvent
+    public static void onServerStarted(ServerStartedEvent event) {
+        GlobalGlow.removeTeams(event.getServer().getScoreboard());
+    }
+
+    /** 在世界保存前取消全局发光并丢弃落点搜索的等待状态，不把发光标志与队伍成员写入存档。 */
+    @SubscribeEvent
+    public static void onServerStopping(ServerStoppingEvent event) {
+        SafeSpotSearch.INSTANCE.clear();
+        if (GlobalGlow.INSTANCE.isActive()) {
+            GlobalGlow.INSTANCE.deactivate(event.getServer());
+        }
+    }
+
+    /** 服务器关闭后清空调度器（单人游戏切换存档时静态状态会保留）。 */
+    @SubscribeEvent
+    public static void onServerStopped(ServerStoppedEvent event) {
+        HighlightScheduler.INSTANCE.clear();
+        GlowColorTracker.INSTANCE.clear();
+        OwnerTeamCache.INSTANCE.invalidateAll();
+        TRACKED_DEATH_DROPS.clear();
+        PENDING_TRACKING_CHANGES.clear();
+        DIRTY_TRACKED_VIEWERS.clear();
+        AsyncHighlightPipeline.INSTANCE.clear();
+        RecoverySpotCache.INSTANCE.clear();
+        lastHighlightSettings = null;
+    }
+
     /**
      * 玩家登出时清理所有运行时状态，避免内存泄漏。
      */
@@ -909,140 +1314,156 @@ public class DeathEventHandler {
         PENDING_DEATH_POS.remove(uuid);
         PRIVATE_HIGHLIGHT_COLORS.remove(uuid);
         GLOW_TEAMS_INITIALIZED.remove(uuid);
+        HighlightScheduler.INSTANCE.remove(uuid);
+        OwnerTeamCache.INSTANCE.invalidate(uuid);
+        TRACKED_DEATH_DROPS.remove(uuid);
+        PENDING_TRACKING_CHANGES.remove(uuid);
+        DIRTY_TRACKED_VIEWERS.remove(uuid);
+        trackedHighlightsDirty = true;
     }
 
     /**
-     * 刷新指定玩家的私有高亮：扫描附近归属该玩家的 ItemEntity，
+     * 刷新指定玩家的私有高亮：从 {@link DeathDropIndex} 查询附近的死亡掉落物，
      * 发送发光数据包和颜色队伍数据包，根据物品剩余寿命动态着色。
      * <p>
      * 可见性由 {@link Config.GlowVisibility} 控制：
      * DEAD_PLAYER / DEAD_PLAYER_AND_TEAM / EVERYONE。
      */
-    private static void refreshPrivateHighlights(ServerPlayer player) {
+    private static void refreshPrivateHighlights(ConfigSnapshot config, ServerPlayer player) {
         if (!(player.level() instanceof ServerLevel serverLevel)) {
             return;
         }
 
-        double scanRadius = getPrivateHighlightRadius();
-        int maxScannedEntities = getPrivateHighlightMaxScannedEntities();
+        double scanRadius = config.privateHighlightScanRadius();
+        int maxScannedEntities = config.privateHighlightMaxScannedEntities();
+
+        // 只查询观察者附近区块段中的死亡掉落物
+        List<ItemEntity> nearbyItems = new ArrayList<>();
+        DeathDropIndex.of(serverLevel).collect(player.getBoundingBox().inflate(scanRadius), maxScannedEntities, nearbyItems);
 
+        applyPrivateHighlights(config, player, serverLevel, nearbyItems);
+    }
+
+    /**
+     * 以候选掉落物为准重新计算观察者的全部高亮：新增、变色与移除与上次结果做差异，合并为一个批次发送。
+     */
+    private static void applyPrivateHighlights(ConfigSnapshot config, ServerPlayer player, ServerLevel serverLevel, Collection<ItemEntity> candidates) {
         UUID playerId = player.getUUID();
+        long now = serverLevel.getServer().getTickCount();
         Map<Integer, ChatFormatting> previous = PRIVATE_HIGHLIGHT_COLORS.computeIfAbsent(playerId, ignored -> new HashMap<>());
         Map<Integer, ChatFormatting> current = new HashMap<>();
 
-        // 确保该玩家已收到所有颜色队伍的创建包
-        ensureGlowTeamsSent(player);
-
-        List<ItemEntity> nearbyItems = serverLevel.getEntitiesOfClass(
-                ItemEntity.class,
-            player.getBoundingBox().inflate(scanRadius),
-                item -> item.isAlive() && ModEntityData.has(item, ModAttachments.OWNER_UUID)
-        );
+        // 本次刷新的所有数据包合并为一个 bundle 发送
+        GlowPacketBatch batch = new GlowPacketBatch();
+        // 装有本模组的客户端自行计算颜色，只需同步高亮的增减
+        boolean clientRendered = DeathDropGlowPayload.isSupportedBy(player);
 
-        Config.GlowVisibility visibility = Config.COMMON.GLOW_VISIBILITY.get();
+        // 确保该玩家已收到所有颜色队伍的创建包
+        if (!clientRendered) {
+            ensureGlowTeamsSent(player, batch);
+        }
 
-        int processed = 0;
-        for (ItemEntity item : nearbyItems) {
-            if (processed >= maxScannedEntities) {
-                break;
-            }
-            processed++;
+        Config.GlowVisibility visibility = config.glowVisibility();
+        PlayerTeam viewerTeam = player.getTeam() instanceof PlayerTeam pt ? pt : null;
+        // 同一归属玩家的掉落物在本次扫描中共用一个判定结果
+        Map<UUID, DeathDropGlowPayload.Relation> relations = CLASS_RELATIONS.computeIfAbsent(new VisibilityClass(viewerTeam), ignored -> new HashMap<>());
 
-            UUID owner = ModEntityData.get(item, ModAttachments.OWNER_UUID);
-            boolean shouldShow = shouldShowGlowTo(player, owner, visibility, serverLevel);
+        for (ItemEntity item : candidates) {
+            if (!item.isAlive() || item.level() != serverLevel) continue;
+            UUID owner = LenientItemState.ownerOf(item);
+            DeathDropGlowPayload.Relation relation = playerId.equals(owner)
+                    ? DeathDropGlowPayload.Relation.OWNER
+                    : relations.computeIfAbsent(owner, id -> relationTo(config, viewerTeam, id, visibility, serverLevel, now));
 
-            if (shouldShow) {
+            if (relation != DeathDropGlowPayload.Relation.NONE) {
                 int entityId = item.getId();
-                ChatFormatting color = getGlowColorForItem(item);
+                if (clientRendered) {
+                    current.put(entityId, CLIENT_RENDERED);
+                    if (!previous.containsKey(entityId)) {
+                        batch.add(DeathDropGlowPayload.show(entityId, relation, GlowColorTracker.expiryTick(item, serverLevel.getGameTime())));
+                    }
+                    continue;
+                }
+
+                ChatFormatting color = GlowColorTracker.INSTANCE.track(item, playerId, now);
                 current.put(entityId, color);
 
                 ChatFormatting prevColor = previous.get(entityId);
                 if (prevColor == null) {
                     // 新增高亮
-                    sendPrivateGlowPacket(player, item, true);
-                    sendGlowColorPacket(player, item, color);
+                    addPrivateGlowPacket(batch, item, true);
+                    batch.join(color, item.getStringUUID());
                 } else if (prevColor != color) {
-                    // 颜色变化
-                    sendGlowColorPacket(player, item, color);
+                    // 颜色变化：加入新队伍时客户端会自动移出旧队伍
+                    batch.join(color, item.getStringUUID());
                 }
                 // 颜色相同则无需重复发送
             }
         }
 
-        // 移除不再可见的旧高亮
+        // 移除不再可见的旧高亮（只从实体实际所在的颜色队伍移除）
         for (var entry : previous.entrySet()) {
             int entityId = entry.getKey();
             if (!current.containsKey(entityId)) {
                 Entity maybeEntity = serverLevel.getEntity(entityId);
+                if (maybeEntity instanceof ItemEntity item) {
+                    GlowColorTracker.INSTANCE.untrack(item, playerId);
+                }
                 if (maybeEntity != null && maybeEntity.isAlive()) {
-                    sendPrivateGlowPacket(player, maybeEntity, false);
-                    removeGlowColorPacket(player, maybeEntity);
+                    removeHighlight(batch, maybeEntity, entry.getValue());
                 }
             }
         }
 
+        batch.send(player, GLOW_COLOR_TEAMS);
         PRIVATE_HIGHLIGHT_COLORS.put(playerId, current);
     }
 
     /**
-     * 判断是否应该向指定玩家显示物品的发光高亮。
+     * 判断是否应该向归属玩家以外、属于 {@code viewerTeam} 的观察者显示物品的发光高亮，返回让其可见的关系；
+     * 不可见时为 {@link DeathDropGlowPayload.Relation#NONE}。结果只取决于观察者的队伍，同类别观察者共用。
      */
-    private static boolean shouldShowGlowTo(ServerPlayer viewer, UUID ownerId, Config.GlowVisibility visibility, ServerLevel level) {
-        return switch (visibility) {
-            case DEAD_PLAYER -> viewer.getUUID().equals(ownerId);
-            case EVERYONE -> true;
-            case DEAD_PLAYER_AND_TEAM -> {
-                if (viewer.getUUID().equals(ownerId)) yield true;
-                // 检查队伍
-                PlayerTeam viewerTeam = viewer.getTeam() instanceof PlayerTeam pt ? pt : null;
-                // 查找死亡玩家的队伍
-                ServerPlayer ownerPlayer = level.getServer().getPlayerList().getPlayer(ownerId);
-                PlayerTeam ownerTeam = null;
-                if (ownerPlayer != null) {
-                    ownerTeam = ownerPlayer.getTeam() instanceof PlayerTeam pt ? pt : null;
-                } else {
-                    // 玩家离线，从记分板查找
-                    Scoreboard scoreboard = level.getScoreboard();
-                    ownerTeam = scoreboard.getPlayersTeam(ownerId.toString());
-                }
-                if (ownerTeam == null && viewerTeam == null && Config.COMMON.NO_TEAM_IS_VALID_TEAM.get()) {
-                    // 双方都无队伍，且 noTeamIsValidTeam 为 true
-                    yield true;
-                }
-                yield ownerTeam != null && ownerTeam.equals(viewerTeam);
-            }
-        };
+    private static DeathDropGlowPayload.Relation relationTo(ConfigSnapshot config, PlayerTeam viewerTeam, UUID ownerId,
+                                                            Config.GlowVisibility visibility, ServerLevel level, long now) {
+        // 死亡玩家的队伍来自缓存，判定只需引用比较
+        PlayerTeam ownerTeam = visibility == Config.GlowVisibility.DEAD_PLAYER_AND_TEAM
+                ? OwnerTeamCache.INSTANCE.teamOf(level, ownerId, now)
+                : null;
+        return AsyncHighlightPipeline.classRelation(visibility, config.noTeamIsValidTeam(), viewerTeam, ownerTeam);
     }
 
     /**
-     * 确保已向玩家发送颜色队伍的创建数据包。
-     * 只在玩家首次进入高亮扫描时发送一次。
+     * {@code /team} 命令可能改变任意玩家的队伍，清空归属玩家队伍缓存。
+     * 按解析结果匹配命令节点，其他途径（函数、其他模组）修改的队伍由缓存有效期兜底。
      */
-    private static void ensureGlowTeamsSent(ServerPlayer player) {
-        if (GLOW_TEAMS_INITIALIZED.add(player.getUUID())) {
-            for (PlayerTeam team : GLOW_COLOR_TEAMS.values()) {
-                player.connection.send(ClientboundSetPlayerTeamPacket.createAddOrModifyPacket(team, true));
-            }
+    @SubscribeEvent
+    public static void onCommand(CommandEvent event) {
+        if (isTeamCommand(event.getParseResults().getContext())) {
+            OwnerTeamCache.INSTANCE.invalidateAll();
+            trackedHighlightsDirty = true;
+            AsyncHighlightPipeline.INSTANCE.invalidate();
         }
     }
 
-    /**
-     * 向玩家发送实体的发光颜色队伍关联数据包。
-     */
-    private static void sendGlowColorPacket(ServerPlayer viewer, Entity target, ChatFormatting color) {
-        PlayerTeam team = GLOW_COLOR_TEAMS.get(color);
-        if (team == null) return;
-        // 将实体的 UUID 字符串加入虚拟队伍
-        viewer.connection.send(ClientboundSetPlayerTeamPacket.createPlayerPacket(team, target.getStringUUID(), ClientboundSetPlayerTeamPacket.Action.ADD));
+    /** 命令本身或其 {@code execute ... run} 重定向后的子命令以 {@code team} 字面量开头。 */
+    private static boolean isTeamCommand(CommandContextBuilder<?> context) {
+        for (CommandContextBuilder<?> current = context; current != null; current = current.getChild()) {
+            var nodes = current.getNodes();
+            if (!nodes.isEmpty() && nodes.get(0).getNode() instanceof LiteralCommandNode<?> literal
+                    && literal.getLiteral().equals("team")) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * 向玩家发送移除实体发光颜色队伍关联的数据包。
+     * 确保已向玩家发送颜色队伍的创建数据包。
+     * 只在玩家首次进入高亮扫描时发送一次。
      */
-    private static void removeGlowColorPacket(ServerPlayer viewer, Entity target) {
-        // 从所有颜色队伍中移除
-        for (PlayerTeam team : GLOW_COLOR_TEAMS.values()) {
-            viewer.connection.send(ClientboundSetPlayerTeamPacket.createPlayerPacket(team, target.getStringUUID(), ClientboundSetPlayerTeamPacket.Action.REMOVE));
+    private static void ensureGlowTeamsSent(ServerPlayer player, GlowPacketBatch batch) {
+        if (GLOW_TEAMS_INITIALIZED.add(player.getUUID())) {
+            GLOW_TEAM_CREATE_PACKETS.forEach(batch::add);
         }
     }
 
@@ -1058,20 +1479,34 @@ public class DeathEventHandler {
             return;
         }
 
-        for (Integer entityId : previous.keySet()) {
-            Entity maybeEntity = serverLevel.getEntity(entityId);
+        GlowPacketBatch batch = new GlowPacketBatch();
+        for (var entry : previous.entrySet()) {
+            Entity maybeEntity = serverLevel.getEntity(entry.getKey());
+            if (maybeEntity instanceof ItemEntity item) {
+                GlowColorTracker.INSTANCE.untrack(item, player.getUUID());
+            }
             if (maybeEntity != null && maybeEntity.isAlive()) {
-                sendPrivateGlowPacket(player, maybeEntity, false);
-                removeGlowColorPacket(player, maybeEntity);
+                removeHighlight(batch, maybeEntity, entry.getValue());
             }
         }
+        batch.send(player, GLOW_COLOR_TEAMS);
+    }
+
+    /** 向批次加入取消高亮的数据包：客户端渲染的高亮发送同步包，否则关闭发光标志并移出颜色队伍。 */
+    private static void removeHighlight(GlowPacketBatch batch, Entity entity, ChatFormatting color) {
+        if (color == CLIENT_RENDERED) {
+            batch.add(DeathDropGlowPayload.hide(entity.getId()));
+            return;
+        }
+        addPrivateGlowPacket(batch, entity, false);
+        batch.leave(color, entity.getStringUUID());
     }
 
     /**
-     * 向指定玩家发送实体发光状态的定向数据包。
-     * 仅修改该玩家客户端的发光标志，不影响服务端实体状态。
+     * 向批次加入实体发光状态的定向数据包。
+     * 仅修改观察者客户端的发光标志，不影响服务端实体状态。
      */
-    private static void sendPrivateGlowPacket(ServerPlayer viewer, Entity target, boolean glow) {
+    private static void addPrivateGlowPacket(GlowPacketBatch batch, Entity target, boolean glow) {
         if (SHARED_FLAGS_ACCESSOR == null) {
             if (!SHARED_FLAGS_ACCESSOR_WARNED) {
                 SHARED_FLAGS_ACCESSOR_WARNED = true;
@@ -1085,28 +1520,11 @@ public class DeathEventHandler {
                 ? (byte) (sharedFlags | GLOWING_FLAG_MASK)
                 : (byte) (sharedFlags & ~GLOWING_FLAG_MASK);
 
-        var dataValue = new SynchedEntityData.DataValue<>(
-                ENTITY_SHARED_FLAGS_DATA_ID,
-                EntityDataSerializers.BYTE,
-                next
-        );
-
-        viewer.connection.send(new ClientboundSetEntityDataPacket(target.getId(), List.of(dataValue)));
-    }
-
-    // ── 配置便捷读取 ────────────────────────────────────────────
-
-    private static int getPrivateHighlightIntervalTicks() {
-        return Math.max(1, Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_INTERVAL_TICKS.get());
+        // 同一实体同一标志的包在本 tick 内由所有观察者共用
+        batch.add(SharedGlowPackets.INSTANCE.glow(target.getId(), ENTITY_SHARED_FLAGS_DATA_ID, next, target.registryAccess()));
     }
 
-    private static double getPrivateHighlightRadius() {
-        return Math.max(8.0, Config.COMMON.PRIVATE_HIGHLIGHT_SCAN_RADIUS.get());
-    }
-
-    private static int getPrivateHighlightMaxScannedEntities() {
-        return Math.max(16, Config.COMMON.PRIVATE_HIGHLIGHT_MAX_SCANNED_ENTITIES.get());
-    }
+    // ── 调试开关 ────────────────────────────────────────────────
 
     private static boolean isVoidRecoveryDebugEnabled() {
         return voidRecoveryDebug;
@@ -1145,6 +1563,14 @@ public class DeathEventHandler {
         return PENDING_DEATH_POS.size();
     }
 
+    public static String getTrackedDeathDropStats() {
+        int drops = 0;
+        for (Set<ItemEntity> tracked : TRACKED_DEATH_DROPS.values()) {
+            drops += tracked.size();
+        }
+        return "viewers=" + TRACKED_DEATH_DROPS.size() + ", drops=" + drops + ", pendingViewers=" + PENDING_TRACKING_CHANGES.size();
+    }
+
     // ── 物品槽位操作 ──────────────────────────────────────────────
 
     /**
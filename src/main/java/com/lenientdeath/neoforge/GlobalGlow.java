@@ -0,0 +1,130 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.ChatFormatting;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.scores.PlayerTeam;
+import net.minecraft.world.scores.Scoreboard;
+import net.minecraft.world.scores.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * {@code EVERYONE} 可见性的全局发光：直接设置掉落物的真实发光标志，并把它加入服务端记分板上的颜色队伍。
+ * <p>
+ * 所有玩家看到的结果相同，因此不需要逐个观察者发包：原版实体跟踪在开始跟踪时同步发光标志，
+ * 记分板把队伍与成员变化广播给所有玩家，每次变色只产生一个队伍成员包，而不是每个观察者一份。
+ * 颜色变化仍由 {@link GlowColorTracker} 调度，以 {@link #VIEWER} 作为唯一的"观察者"。
+ * <p>
+ * 队伍名与私有高亮的虚拟队伍不同，避免客户端上同名队伍冲突；切换出该模式或服务器关闭时移除队伍，
+ * 不在存档的记分板中留下成员。由本模组设置的发光标志记录在 {@link LenientItemState#globalGlow()} 中，
+ * 取消时只清除这些，不影响命令、数据包或其他模组设置的发光。只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class GlobalGlow {
+    static final GlobalGlow INSTANCE = new GlobalGlow();
+
+    /** 在 {@link GlowColorTracker} 中代表全局发光的观察者。 */
+    static final UUID VIEWER = new UUID(0L, 0L);
+
+    /** 服务端记分板上的全局颜色队伍名前缀。 */
+    private static final String TEAM_PREFIX = "ldg_";
+
+    private final Set<ItemEntity> glowing = new ReferenceOpenHashSet<>();
+    private boolean active;
+    private long teamUpdates;
+
+    private GlobalGlow() {}
+
+    boolean isActive() {
+        return active;
+    }
+
+    /** 进入全局发光模式：为所有已加载的死亡掉落物设置发光。 */
+    void activate(MinecraftServer server, long now) {
+        active = true;
+        for (ServerLevel level : server.getAllLevels()) {
+            DeathDropIndex.of(level).forEach(item -> show(item, now));
+        }
+    }
+
+    /** 退出全局发光模式（或服务器关闭、在存档保存前）：取消所有全局发光并移除颜色队伍。 */
+    void deactivate(MinecraftServer server) {
+        active = false;
+        for (ItemEntity item : glowing) {
+            clearAppliedGlow(item);
+            GlowColorTracker.INSTANCE.untrack(item, VIEWER);
+        }
+        glowing.clear();
+        removeTeams(server.getScoreboard());
+    }
+
+    /** 死亡掉落物开始全局发光（已发光时忽略）。 */
+    void show(ItemEntity item, long now) {
+        if (!item.isAlive() || !glowing.add(item)) return;
+        if (!item.hasGlowingTag()) {
+            item.setGlowingTag(true);
+            LenientItemState.of(item).setGlobalGlow(true);
+        }
+        ChatFormatting color = GlowColorTracker.INSTANCE.track(item, VIEWER, now);
+        joinTeam(item, color);
+    }
+
+    /** 到期变色：换到新颜色的队伍（加入新队伍时会自动离开旧队伍）。 */
+    void onColorChange(ItemEntity item, ChatFormatting color) {
+        if (glowing.contains(item)) {
+            joinTeam(item, color);
+        }
+    }
+
+    /** 掉落物离开世界：移出颜色队伍，发光标志随实体保存，再次加载时按当前模式处理。 */
+    void forget(ItemEntity item) {
+        if (!glowing.remove(item)) return;
+        item.level().getScoreboard().removePlayerFromTeam(item.getStringUUID());
+        teamUpdates++;
+    }
+
+    /** 清除由全局发光设置的发光标志（包括之前保存在存档中的），其他来源的发光保持不变。 */
+    static void clearAppliedGlow(ItemEntity item) {
+        LenientItemState state = LenientItemState.peek(item);
+        if (state != null && state.globalGlow()) {
+            item.setGlowingTag(false);
+            state.setGlobalGlow(false);
+        }
+    }
+
+    private void joinTeam(ItemEntity item, ChatFormatting color) {
+        Scoreboard scoreboard = item.level().getScoreboard();
+        String name = TEAM_PREFIX + color.getName();
+        PlayerTeam team = scoreboard.getPlayerTeam(name);
+        if (team == null) {
+            team = scoreboard.addPlayerTeam(name);
+            team.setColor(color);
+            team.setNameTagVisibility(Team.Visibility.NEVER);
+        }
+        scoreboard.addPlayerToTeam(item.getStringUUID(), team);
+        teamUpdates++;
+    }
+
+    /** 移除服务端记分板上的全局颜色队伍（服务器启动时也会调用，清理异常退出后存档里残留的）。 */
+    static void removeTeams(Scoreboard scoreboard) {
+        List<PlayerTeam> stale = new ArrayList<>();
+        for (PlayerTeam team : scoreboard.getPlayerTeams()) {
+            if (team.getName().startsWith(TEAM_PREFIX)) {
+                stale.add(team);
+            }
+        }
+        stale.forEach(scoreboard::removePlayerTeam);
+    }
+
+    // ── 调试状态 ──
+
+    String getStats() {
+        return "active=" + active + ", glowing=" + glowing.size() + ", teamUpdates=" + teamUpdates;
+    }
+}
@@ -0,0 +1,216 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.ChatFormatting;
+import net.minecraft.world.entity.item.ItemEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 被高亮的死亡掉落物的发光颜色缓存。
+ * <p>
+ * 颜色只在剩余寿命跨过固定阈值（以及最后 30 秒的闪烁）时变化，因此每个被跟踪的掉落物只计算一次颜色，
+ * 并在 {@link TimingWheel} 中登记下一次变色的 tick；到期时重新读取寿命、通知正在观察它的玩家并重新登记。
+ * 扫描刷新直接使用缓存颜色，稳态开销与变色次数成正比，而不是可见物品数 × 扫描次数。
+ * <p>
+ * 同时维护实体 → 观察者的反向索引，变色时只通知这些观察者。只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class GlowColorTracker {
+    private static final Logger LOGGER = LoggerFactory.getLogger("LenientDeath/GlowColorTracker");
+
+    static final GlowColorTracker INSTANCE = new GlowColorTracker();
+
+    /** 永不变色（无限寿命）。 */
+    private static final long NEVER = Long.MAX_VALUE;
+    /** 无限寿命物品的到期 tick。 */
+    static final long NO_EXPIRY = -1L;
+
+    /** ItemEntity.age 的 VarHandle，用于计算剩余寿命。 */
+    private static final VarHandle ITEM_ENTITY_AGE = resolveItemEntityAge();
+
+    /** 变色回调：观察者集合可在回调中移除已失效的观察者。 */
+    interface ColorChangeListener {
+        void onColorChange(ItemEntity item, ChatFormatting color, Set<UUID> viewers);
+    }
+
+    private static final class Tracked {
+        ChatFormatting color;
+        final Set<UUID> viewers = new HashSet<>(2);
+
+        Tracked(ChatFormatting color) {
+            this.color = color;
+        }
+    }
+
+    private final Map<ItemEntity, Tracked> tracked = new Reference2ObjectOpenHashMap<>();
+    private TimingWheel<ItemEntity> wheel;
+    private long transitions;
+
+    private GlowColorTracker() {}
+
+    private static VarHandle resolveItemEntityAge() {
+        try {
+            return MethodHandles.privateLookupIn(ItemEntity.class, MethodHandles.lookup())
+                    .findVarHandle(ItemEntity.class, "age", int.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.error("Failed to resolve ItemEntity.age, glow color will default to green", e);
+            return null;
+        }
+    }
+
+    private static int getAge(ItemEntity item) {
+        return ITEM_ENTITY_AGE == null ? 0 : (int) ITEM_ENTITY_AGE.get(item);
+    }
+
+    /**
+     * 根据物品剩余寿命计算发光颜色。
+     * <ul>
+     *   <li>蓝色：剩余 &gt; 5 min（仅延长寿命时可见）</li>
+     *   <li>绿色：[3 min, 5 min)</li>
+     *   <li>黄色：[2 min, 3 min)</li>
+     *   <li>橙色：[1 min, 2 min)</li>
+     *   <li>红色：[30 sec, 1 min)</li>
+     *   <li>闪烁红：[0, 30 sec)（每约 0.5 秒交替红/暗红）</li>
+     * </ul>
+     */
+    static ChatFormatting colorFor(int age, int lifespan, int tickCount) {
+        // 无限寿命 (age < 0 表示 setUnlimitedLifetime)
+        if (age < 0) return ChatFormatting.BLUE;
+        return colorForRemaining(lifespan - age, tickCount);
+    }
+
+    /** 按剩余寿命计算发光颜色，客户端根据到期 tick 渲染时使用同一套阈值。 */
+    static ChatFormatting colorForRemaining(long remainingTicks, int tickCount) {
+        if (remainingTicks > 6000) return ChatFormatting.BLUE;
+        if (remainingTicks >= 3600) return ChatFormatting.GREEN;
+        if (remainingTicks >= 2400) return ChatFormatting.YELLOW;
+        if (remainingTicks >= 1200) return ChatFormatting.GOLD;  // 橙色近似
+        if (remainingTicks >= 600) return ChatFormatting.RED;
+        // 闪烁红：每 10 tick 交替
+        return (tickCount / 10) % 2 == 0 ? ChatFormatting.RED : ChatFormatting.DARK_RED;
+    }
+
+    /**
+     * 物品的绝对到期 tick（以维度游戏时间计）。
+     *
+     * @param gameTime 物品所在维度的当前游戏时间
+     * @return 到期 tick，无限寿命时为 {@link #NO_EXPIRY}
+     */
+    static long expiryTick(ItemEntity item, long gameTime) {
+        int age = getAge(item);
+        if (age < 0) return NO_EXPIRY;
+        return gameTime + (item.lifespan - age);
+    }
+
+    /**
+     * 距离下一次可能变色的 tick 数（假设 age 与 tickCount 每 tick 加一）。
+     *
+     * @return 正数，或 {@link #NEVER}
+     */
+    static long ticksUntilNextChange(int age, int lifespan, int tickCount) {
+        if (age < 0) return NEVER;
+        int remainingTicks = lifespan - age;
+        if (remainingTicks > 6000) return remainingTicks - 6000;
+        if (remainingTicks >= 3600) return remainingTicks - 3599;
+        if (remainingTicks >= 2400) return remainingTicks - 2399;
+        if (remainingTicks >= 1200) return remainingTicks - 1199;
+        if (remainingTicks >= 600) return remainingTicks - 599;
+        return 10 - Math.floorMod(tickCount, 10);
+    }
+
+    /**
+     * 登记观察者并返回物品当前颜色；首次跟踪时计算颜色并登记下一次变色。
+     *
+     * @param now 当前服务器 tick
+     */
+    ChatFormatting track(ItemEntity item, UUID viewer, long now) {
+        Tracked entry = tracked.get(item);
+        if (entry == null) {
+            entry = new Tracked(evaluate(item, now));
+            tracked.put(item, entry);
+        }
+        entry.viewers.add(viewer);
+        return entry.color;
+    }
+
+    /** 观察者不再看到该物品；没有观察者后停止跟踪。 */
+    void untrack(ItemEntity item, UUID viewer) {
+        Tracked entry = tracked.get(item);
+        if (entry == null) return;
+        entry.viewers.remove(viewer);
+        if (entry.viewers.isEmpty()) {
+            forget(item);
+        }
+    }
+
+    /** 物品离开世界时停止跟踪。 */
+    void forget(ItemEntity item) {
+        if (tracked.remove(item) != null && wheel != null) {
+            wheel.cancel(item);
+        }
+    }
+
+    /** 推进到当前 tick，对到期的物品重新计算颜色并在颜色变化时回调。 */
+    void advance(long now, ColorChangeListener listener) {
+        if (wheel == null) {
+            wheel = new TimingWheel<>(now);
+            return;
+        }
+        wheel.advance(now, item -> {
+            Tracked entry = tracked.get(item);
+            if (entry == null) return;
+            if (item.isRemoved()) {
+                tracked.remove(item);
+                return;
+            }
+
+            ChatFormatting color = evaluate(item, wheel.currentTick());
+            if (color == entry.color) return;
+            entry.color = color;
+            transitions++;
+            listener.onColorChange(item, color, entry.viewers);
+            if (entry.viewers.isEmpty()) {
+                forget(item);
+            }
+        });
+    }
+
+    /** 计算当前颜色并登记下一次变色（寿命被合并等操作改变时，到期后重新计算即可校正）。 */
+    private ChatFormatting evaluate(ItemEntity item, long now) {
+        int age = getAge(item);
+        ChatFormatting color = colorFor(age, item.lifespan, item.tickCount);
+        long delay = ticksUntilNextChange(age, item.lifespan, item.tickCount);
+        if (wheel == null) {
+            wheel = new TimingWheel<>(now);
+        }
+        if (delay == NEVER) {
+            wheel.cancel(item);
+        } else {
+            wheel.schedule(item, now + delay);
+        }
+        return color;
+    }
+
+    // ── 调试状态 ──
+
+    static boolean isAgeAccessorReady() {
+        return ITEM_ENTITY_AGE != null;
+    }
+
+    String getStats() {
+        return "tracked=" + tracked.size() + ", scheduled=" + (wheel == null ? 0 : wheel.size()) + ", transitions=" + transitions;
+    }
+
+    void clear() {
+        tracked.clear();
+        wheel = null;
+    }
+}
@@ -0,0 +1,146 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.network.protocol.BundlerInfo;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.common.ClientboundCustomPayloadPacket;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.network.protocol.game.ClientGamePacketListener;
+import net.minecraft.network.protocol.game.ClientboundBundlePacket;
+import net.minecraft.network.protocol.game.ClientboundSetPlayerTeamPacket;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.scores.PlayerTeam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次高亮刷新中发给单个观察者的数据包批次。
+ * <p>
+ * 发光数据包按顺序收集；队伍成员变化按颜色归并，每种颜色最多一个加入包和一个离开包，
+ * 包内携带所有受影响实体的 UUID 字符串。刷新结束时整批打包为 {@link ClientboundBundlePacket} 一次发送，
+ * 客户端在同一帧内按顺序处理。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class GlowPacketBatch {
+    private static final Logger LOGGER = LoggerFactory.getLogger("LenientDeath/GlowPacketBatch");
+
+    /** ClientboundSetPlayerTeamPacket 的成员加入/离开方法编号（对应 METHOD_JOIN / METHOD_LEAVE）。 */
+    private static final int TEAM_METHOD_JOIN = 3;
+    private static final int TEAM_METHOD_LEAVE = 4;
+
+    /** 通过反射获取的多成员队伍包构造器；不可用时退回每个成员一个包。 */
+    private static final Constructor<ClientboundSetPlayerTeamPacket> TEAM_PACKET_CONSTRUCTOR = resolveTeamPacketConstructor();
+
+    private static final LongAdder SENDS = new LongAdder();
+    private static final LongAdder PACKETS_SENT = new LongAdder();
+
+    private final List<Packet<? super ClientGamePacketListener>> packets = new ArrayList<>();
+    private final Map<ChatFormatting, List<String>> joins = new EnumMap<>(ChatFormatting.class);
+    private final Map<ChatFormatting, List<String>> leaves = new EnumMap<>(ChatFormatting.class);
+
+    private static Constructor<ClientboundSetPlayerTeamPacket> resolveTeamPacketConstructor() {
+        try {
+            Constructor<ClientboundSetPlayerTeamPacket> constructor = ClientboundSetPlayerTeamPacket.class.getDeclaredConstructor(
+                    String.class, int.class, Optional.class, Collection.class);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("Failed to resolve multi-member team packet constructor, falling back to one packet per entity", e);
+            return null;
+        }
+    }
+
+    void add(Packet<? super ClientGamePacketListener> packet) {
+        packets.add(packet);
+    }
+
+    /** 模组自定义同步包，与其他数据包放在同一个 bundle 中。 */
+    void add(CustomPacketPayload payload) {
+        packets.add(new ClientboundCustomPayloadPacket(payload));
+    }
+
+    /** 实体加入颜色队伍（客户端会先把实体移出原队伍）。 */
+    void join(ChatFormatting color, String entry) {
+        joins.computeIfAbsent(color, ignored -> new ArrayList<>()).add(entry);
+    }
+
+    /** 实体离开其当前所在的颜色队伍。 */
+    void leave(ChatFormatting color, String entry) {
+        leaves.computeIfAbsent(color, ignored -> new ArrayList<>()).add(entry);
+    }
+
+    boolean isEmpty() {
+        return packets.isEmpty() && joins.isEmpty() && leaves.isEmpty();
+    }
+
+    /** 整批发送给观察者；包数超过单个 bundle 上限时拆分。 */
+    void send(ServerPlayer viewer, Map<ChatFormatting, PlayerTeam> teams) {
+        if (isEmpty()) return;
+
+        List<Packet<? super ClientGamePacketListener>> all = new ArrayList<>(packets.size() + leaves.size() + joins.size());
+        all.addAll(packets);
+        appendTeamPackets(all, leaves, teams, TEAM_METHOD_LEAVE, ClientboundSetPlayerTeamPacket.Action.REMOVE, viewer.registryAccess());
+        appendTeamPackets(all, joins, teams, TEAM_METHOD_JOIN, ClientboundSetPlayerTeamPacket.Action.ADD, viewer.registryAccess());
+
+        PACKETS_SENT.add(all.size());
+        if (all.size() == 1) {
+            viewer.connection.send(all.get(0));
+            SENDS.increment();
+            return;
+        }
+        for (int from = 0; from < all.size(); from += BundlerInfo.BUNDLE_SIZE_LIMIT) {
+            int to = Math.min(all.size(), from + BundlerInfo.BUNDLE_SIZE_LIMIT);
+            viewer.connection.send(new ClientboundBundlePacket(List.copyOf(all.subList(from, to))));
+            SENDS.increment();
+        }
+    }
+
+    private static void appendTeamPackets(List<Packet<? super ClientGamePacketListener>> out, Map<ChatFormatting, List<String>> changes,
+                                          Map<ChatFormatting, PlayerTeam> teams, int method, ClientboundSetPlayerTeamPacket.Action action,
+                                          RegistryAccess registryAccess) {
+        for (var entry : changes.entrySet()) {
+            PlayerTeam team = teams.get(entry.getKey());
+            if (team == null) continue;
+            List<String> members = entry.getValue();
+            // 同队伍观察者本 tick 的成员变化相同时共用同一个包
+            ClientboundSetPlayerTeamPacket grouped = SharedGlowPackets.INSTANCE.teamMembers(team.getName(), method, members, registryAccess,
+                    () -> createGroupedPacket(team, method, members));
+            if (grouped != null) {
+                out.add(grouped);
+            } else {
+                for (String member : members) {
+                    out.add(ClientboundSetPlayerTeamPacket.createPlayerPacket(team, member, action));
+                }
+            }
+        }
+    }
+
+    private static ClientboundSetPlayerTeamPacket createGroupedPacket(PlayerTeam team, int method, List<String> members) {
+        if (TEAM_PACKET_CONSTRUCTOR == null) return null;
+        try {
+            return TEAM_PACKET_CONSTRUCTOR.newInstance(team.getName(), method, Optional.empty(), List.copyOf(members));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // ── 调试状态 ──
+
+    static boolean isGroupedTeamPacketReady() {
+        return TEAM_PACKET_CONSTRUCTOR != null;
+    }
+
+    static String getStats() {
+        return "sends=" + SENDS.sum() + ", packets=" + PACKETS_SENT.sum() + ", groupedTeams=" + isGroupedTeamPacketReady();
+    }
+}
@@ -0,0 +1,156 @@
+package com.lenientdeath.neoforge;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 私有高亮刷新调度器：把观察者均匀分散到刷新间隔内的各个 tick，并限制每 tick 刷新的观察者数量。
+ * <p>
+ * 每个观察者的相位由 UUID 哈希对间隔取模得到，与加入时间无关，同一 tick 登录的玩家不会在同一 tick 扫描。
+ * 超出每 tick 上限的观察者进入延后队列，下一 tick 优先处理；刷新滞后（实际刷新 tick 与应刷新 tick 之差）计入统计。
+ * <p>
+ * 只在服务端主线程调用。
+ */
+final class HighlightScheduler {
+    static final HighlightScheduler INSTANCE = new HighlightScheduler();
+
+    /** 延后的观察者及其原定刷新 tick。 */
+    private record Pending(UUID viewer, long dueTick) {}
+
+    private final Set<UUID> viewers = new HashSet<>();
+    /** 相位 → 观察者；间隔变化时重建。 */
+    private List<Set<UUID>> buckets = List.of();
+    private int interval = -1;
+
+    private final Deque<Pending> backlog = new ArrayDeque<>();
+    private final Set<UUID> queued = new HashSet<>();
+
+    private long refreshed;
+    private long delayed;
+    private long totalLagTicks;
+    private long maxLagTicks;
+
+    HighlightScheduler() {}
+
+    void add(UUID viewer) {
+        if (viewers.add(viewer) && interval > 0) {
+            buckets.get(phase(viewer, interval)).add(viewer);
+        }
+    }
+
+    /** 移除观察者（包括已延后的记录）。 */
+    void remove(UUID viewer) {
+        if (!viewers.remove(viewer)) return;
+        if (interval > 0) {
+            buckets.get(phase(viewer, interval)).remove(viewer);
+        }
+        if (queued.remove(viewer)) {
+            backlog.removeIf(pending -> pending.viewer().equals(viewer));
+        }
+    }
+
+    int size() {
+        return viewers.size();
+    }
+
+    /**
+     * 执行一个 tick 的调度：先处理延后队列，再处理相位落在本 tick 的观察者，
+     * 超出上限的部分延后到下一 tick。已在延后队列中的观察者不会重复入队。
+     *
+     * @param tick       当前服务器 tick
+     * @param interval   刷新间隔（tick）
+     * @param maxPerTick 每 tick 最多刷新的观察者数量
+     * @param refresh    刷新回调
+     */
+    void tick(long tick, int interval, int maxPerTick, Consumer<UUID> refresh) {
+        if (interval != this.interval) {
+            rebuild(interval);
+        }
+
+        int budget = Math.max(1, maxPerTick);
+        while (budget > 0 && !backlog.isEmpty()) {
+            Pending pending = backlog.pollFirst();
+            queued.remove(pending.viewer());
+            run(pending.viewer(), tick - pending.dueTick(), refresh);
+            budget--;
+        }
+
+        Set<UUID> due = buckets.get((int) Math.floorMod(tick, (long) interval));
+        if (due.isEmpty()) return;
+
+        // 先复制：刷新回调可能导致观察者登出并被移除
+        for (UUID viewer : new ArrayList<>(due)) {
+            if (queued.contains(viewer)) continue;
+            if (budget > 0) {
+                run(viewer, 0, refresh);
+                budget--;
+            } else {
+                backlog.addLast(new Pending(viewer, tick));
+                queued.add(viewer);
+                delayed++;
+            }
+        }
+    }
+
+    private void run(UUID viewer, long lagTicks, Consumer<UUID> refresh) {
+        refreshed++;
+        totalLagTicks += lagTicks;
+        maxLagTicks = Math.max(maxLagTicks, lagTicks);
+        refresh.accept(viewer);
+    }
+
+    private void rebuild(int newInterval) {
+        List<Set<UUID>> rebuilt = new ArrayList<>(newInterval);
+        for (int i = 0; i < newInterval; i++) {
+            rebuilt.add(new LinkedHashSet<>());
+        }
+        for (UUID viewer : viewers) {
+            rebuilt.get(phase(viewer, newInterval)).add(viewer);
+        }
+        buckets = rebuilt;
+        interval = newInterval;
+    }
+
+    static int phase(UUID viewer, int interval) {
+        return Math.floorMod(viewer.hashCode(), interval);
+    }
+
+    /** 各相位的观察者数量（测试用）。 */
+    int[] phaseSizes() {
+        int[] sizes = new int[buckets.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = buckets.get(i).size();
+        }
+        return sizes;
+    }
+
+    int backlogSize() {
+        return backlog.size();
+    }
+
+    long getMaxLagTicks() {
+        return maxLagTicks;
+    }
+
+    String getStats() {
+        double averageLag = refreshed == 0 ? 0.0 : (double) totalLagTicks / refreshed;
+        return String.format(Locale.ROOT, "viewers=%d, backlog=%d, refreshed=%d, delayed=%d, avgLag=%.2f, maxLag=%d ticks",
+                viewers.size(), backlog.size(), refreshed, delayed, averageLag, maxLagTicks);
+    }
+
+    void clear() {
+        viewers.clear();
+        buckets = List.of();
+        interval = -1;
+        backlog.clear();
+        queued.clear();
+    }
+}
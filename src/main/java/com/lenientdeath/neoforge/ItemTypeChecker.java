@@ -2,6 +2,7 @@ package com.lenientdeath.neoforge;
 
 import com.lenientdeath.neoforge.compat.CuriosCompat;
 import net.minecraft.core.component.DataComponents;
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ArmorItem;
 import net.minecraft.world.item.ArrowItem;
@@ -23,48 +24,103 @@ import net.minecraft.world.item.ProjectileWeaponItem;
 import net.minecraft.world.item.DiggerItem;
 import net.minecraft.world.item.PotionItem;
 import net.minecraft.world.item.SpawnEggItem;
-import net.neoforged.fml.ModList;
 import org.jetbrains.annotations.Nullable;
 
 /**
  * 按物品类型（装备、武器、工具等）判断保留/掉落策略。
  */
 @SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
-public class ItemTypeChecker {
+public class ItemTypeChecker implements BuiltinPreservationRule {
     public static final ItemTypeChecker INSTANCE = new ItemTypeChecker();
+    private static final ResourceLocation ID = ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "item_type");
     private ItemTypeChecker() {}
 
+    @Override
+    public ResourceLocation id() {
+        return ID;
+    }
+
+    @Override
+    public int priority() {
+        return 300;
+    }
+
+    @Override
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack) {
+        Boolean keep = shouldKeep(config, player, stack);
+        if (keep == null) return null;
+        return keep ? stack.getCount() : 0;
+    }
+
+    /** 分类由物品类型决定（食物组件等例外见 {@link #needsStackCheck}），可预编译。 */
+    @Override
+    public boolean isItemStatic() {
+        return true;
+    }
+
+    @Override
+    public @Nullable Boolean shouldKeepItem(ConfigSnapshot config, Item item) {
+        return shouldKeep(config, null, item.getDefaultInstance());
+    }
+
+    @Override
+    public boolean needsStackCheck(ItemStack stack) {
+        return isStackSensitive(stack);
+    }
+
     /**
      * 根据物品类型配置判断是否保留。
      *
+     * @param config 本次事件使用的配置快照
      * @param player 玩家实例（当前未使用，保留用于未来扩展如个性化规则）
      * @param stack  待检查物品
      * @return {@code true} 保留，{@code false} 掉落，{@code null} 未命中任何规则
      */
     @SuppressWarnings("unused") // player 参数保留用于未来扩展
-    public @Nullable Boolean shouldKeep(@Nullable Player player, ItemStack stack) {
+    public @Nullable Boolean shouldKeep(ConfigSnapshot config, @Nullable Player player, ItemStack stack) {
         // 1. 检查开关
-        if (!Config.COMMON.BY_ITEM_TYPE_ENABLED.get()) return null;
+        if (!config.byItemTypeEnabled()) return null;
+
+        // 返回结果
+        return switch (resolve(config, stack)) {
+            case DROP -> false;
+            case PRESERVE -> true;
+            case IGNORE -> null;
+        };
+    }
+
+    /**
+     * 判断该堆叠的类型判定是否可能与物品默认实例不同。
+     * <p>
+     * 食物组件可被堆叠单独添加/移除；饰品判定只对 {@link CuriosCompat#STACK_SENSITIVE} 中的物品依赖组件。
+     * 其余分类均由 {@link Item} 类型决定，可直接使用 {@link PreservationTable} 中按物品预编译的结论。
+     */
+    public boolean isStackSensitive(ItemStack stack) {
+        return stack.getComponentsPatch().get(DataComponents.FOOD) != null
+                || CuriosCompat.isStackSensitive(stack);
+    }
 
+    /** 合并所有命中的类型策略（不检查总开关）。 */
+    Config.TypeBehavior resolve(ConfigSnapshot config, ItemStack stack) {
         Item item = stack.getItem();
         Config.TypeBehavior result = Config.TypeBehavior.IGNORE;
 
         // 2. 装备类
         if (item instanceof ArmorItem armor) {
             result = result.and(switch (armor.getType()) {
-                case HELMET -> Config.COMMON.HELMETS.get();
-                case CHESTPLATE -> Config.COMMON.CHESTPLATES.get();
-                case LEGGINGS -> Config.COMMON.LEGGINGS.get();
-                case BOOTS -> Config.COMMON.BOOTS.get();
+                case HELMET -> config.helmets();
+                case CHESTPLATE -> config.chestplates();
+                case LEGGINGS -> config.leggings();
+                case BOOTS -> config.boots();
                 default -> Config.TypeBehavior.IGNORE; // Body armor 等
             });
         }
-        if (item instanceof ElytraItem) result = result.and(Config.COMMON.ELYTRAS.get());
-        if (item instanceof ShieldItem) result = result.and(Config.COMMON.SHIELDS.get());
+        if (item instanceof ElytraItem) result = result.and(config.elytras());
+        if (item instanceof ShieldItem) result = result.and(config.shields());
 
         // 3. 饰品 (Curios)
-        if (ModList.get().isLoaded("curios") && CuriosCompat.isCurio(stack)) {
-            result = result.and(Config.COMMON.CURIOS.get());
+        if (CuriosCompat.isCurio(stack)) {
+            result = result.and(config.curios());
         }
 
         // 4. 武器类
@@ -72,59 +128,54 @@ public class ItemTypeChecker {
         boolean rangedWeapon = item instanceof ProjectileWeaponItem;
 
         if (meleeWeapon || rangedWeapon) {
-            result = result.and(Config.COMMON.WEAPONS.get());
+            result = result.and(config.weapons());
         }
         if (meleeWeapon) {
-            result = result.and(Config.COMMON.MELEE_WEAPONS.get());
+            result = result.and(config.meleeWeapons());
         }
         if (rangedWeapon) {
-            result = result.and(Config.COMMON.RANGED_WEAPONS.get());
+            result = result.and(config.rangedWeapons());
         }
 
         // 5. 工具与功能类
         if (item instanceof DiggerItem) {
-            result = result.and(Config.COMMON.TOOLS.get());
+            result = result.and(config.tools());
         }
         if (item instanceof ShearsItem || item instanceof FlintAndSteelItem) {
-            result = result.and(Config.COMMON.UTILITY_TOOLS.get());
+            result = result.and(config.utilityTools());
         }
         if (item instanceof FishingRodItem) {
-            result = result.and(Config.COMMON.FISHING_RODS.get());
+            result = result.and(config.fishingRods());
         }
         if (item instanceof BucketItem || item == Items.MILK_BUCKET) {
-            result = result.and(Config.COMMON.BUCKETS.get());
+            result = result.and(config.buckets());
         }
 
         // 6. 其他常见分类
         if (item instanceof EnchantedBookItem) {
-            result = result.and(Config.COMMON.ENCHANTED_BOOKS.get());
+            result = result.and(config.enchantedBooks());
         }
         if (item == Items.TOTEM_OF_UNDYING) {
-            result = result.and(Config.COMMON.TOTEMS.get());
+            result = result.and(config.totems());
         }
         if (item instanceof BlockItem) {
-            result = result.and(Config.COMMON.BLOCK_ITEMS.get());
+            result = result.and(config.blockItems());
         }
         if (item instanceof SpawnEggItem) {
-            result = result.and(Config.COMMON.SPAWN_EGGS.get());
+            result = result.and(config.spawnEggs());
         }
         if (item instanceof ArrowItem) {
-            result = result.and(Config.COMMON.ARROWS.get());
+            result = result.and(config.arrows());
         }
 
         // 7. 食物和药水
         if (stack.has(DataComponents.FOOD)) {
-            result = result.and(Config.COMMON.FOOD.get());
+            result = result.and(config.food());
         }
         if (item instanceof PotionItem) {
-            result = result.and(Config.COMMON.POTIONS.get());
+            result = result.and(config.potions());
         }
 
-        // 返回结果
-        return switch (result) {
-            case DROP -> false;
-            case PRESERVE -> true;
-            case IGNORE -> null;
-        };
+        return result;
     }
 }
\ No newline at end of file
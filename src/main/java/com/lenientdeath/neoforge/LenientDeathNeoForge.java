@@ -7,6 +7,7 @@ import net.neoforged.fml.config.ModConfig;
 import net.neoforged.fml.event.config.ModConfigEvent;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.TagsUpdatedEvent;
 
 /**
  * LenientDeath 模组入口点：注册配置、附件、命令和事件监听。
@@ -27,9 +28,16 @@ public class LenientDeathNeoForge {
         // 注册附件
         ModAttachments.register(modEventBus);
 
+        // 注册可选的客户端高亮同步通道
+        modEventBus.addListener(DeathDropGlowPayload::register);
+
+        // 注册内置保留规则
+        PreserveItems.registerBuiltinRules();
+
         // 注册运行时命令（服务端）
         NeoForge.EVENT_BUS.addListener(ConfigCommands::onRegisterCommands);
         NeoForge.EVENT_BUS.addListener(ConfigMigration::onServerAboutToStart);
+        NeoForge.EVENT_BUS.addListener(this::onTagsUpdated);
     }
 
     private void commonSetup(final FMLCommonSetupEvent event) {
@@ -53,6 +61,15 @@ public class LenientDeathNeoForge {
         if (modConfig.getSpec() != Config.SPEC) {
             return;
         }
-        ManualAllowAndBlocklist.INSTANCE.refreshItems();
+        Config.refreshSnapshot();
+        PreserveItems.INSTANCE.refresh();
+    }
+
+    /** 标签内容在 /reload 或数据包加载后变化，需重建依赖标签的决策表。 */
+    private void onTagsUpdated(final TagsUpdatedEvent event) {
+        if (event.getUpdateCause() != TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) {
+            return;
+        }
+        PreserveItems.INSTANCE.refreshTags();
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import net.neoforged.fml.ModContainer;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.neoforge.client.gui.ConfigurationScreen;
 import net.neoforged.neoforge.client.gui.IConfigScreenFactory;
+import net.neoforged.neoforge.common.NeoForge;
 
 // This class will not load on dedicated servers. Accessing client side code from here is safe.
 @Mod(value = LenientDeathNeoForge.MODID, dist = Dist.CLIENT)
@@ -15,6 +16,10 @@ public class LenientDeathNeoForgeClient {
         // The config screen is accessed by going to the Mods screen > clicking on your mod > clicking on config.
         // Do not forget to add translations for your config options to the en_us.json file.
         container.registerExtensionPoint(IConfigScreenFactory.class, ConfigurationScreen::new);
+
+        // 本地渲染服务端同步的死亡掉落物高亮
+        NeoForge.EVENT_BUS.addListener(ClientDeathDropGlow.INSTANCE::onClientTick);
+        NeoForge.EVENT_BUS.addListener(ClientDeathDropGlow.INSTANCE::onLoggingOut);
     }
 
 }
@@ -0,0 +1,203 @@
+package com.lenientdeath.neoforge;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.core.UUIDUtil;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 掉落物上的全部模组状态，合并为单个可变附件 {@link ModAttachments#ITEM_STATE}。
+ * <p>
+ * 只持久化原始槽位、安全落地坐标、归属玩家、死亡掉落物标记与全局发光标记（发光标志随实体保存，需要知道是否由本模组设置）；上次恢复 tick 与恢复限流计数基于实体的
+ * {@code tickCount}（不随实体保存），等待落点搜索时的保持位置也只在搜索期间有效，都只保存在内存中。
+ * 没有任何持久化字段的状态不会写入区块 NBT。
+ * <p>
+ * 旧版本的逐项附件在掉落物加入世界时经 {@link #migrateLegacy} 一次性迁移。只在服务端主线程读写。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+public final class LenientItemState {
+    /** 没有记录原始槽位。 */
+    public static final int NO_SLOT = -1;
+
+    public static final Codec<LenientItemState> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+            Codec.INT.optionalFieldOf("slot", NO_SLOT).forGetter(state -> state.originalSlot),
+            GlobalPos.CODEC.optionalFieldOf("safe_pos").forGetter(state -> Optional.ofNullable(state.safePos)),
+            UUIDUtil.CODEC.optionalFieldOf("owner").forGetter(state -> Optional.ofNullable(state.owner)),
+            Codec.BOOL.optionalFieldOf("death_drop", false).forGetter(state -> state.deathDrop),
+            Codec.BOOL.optionalFieldOf("global_glow", false).forGetter(state -> state.globalGlow)
+    ).apply(instance, LenientItemState::new));
+
+    // ── 持久化字段 ──
+    private int originalSlot = NO_SLOT;
+    private GlobalPos safePos;
+    private UUID owner;
+    private boolean deathDrop;
+    private boolean globalGlow;
+
+    // ── 运行时字段（不持久化）──
+    private int recoveredAtTick = -1;
+    private int windowStartTick = -1;
+    private int countInWindow;
+    private int cooldownUntilTick = -1;
+    private Vec3 holdPos;
+
+    public LenientItemState() {}
+
+    private LenientItemState(int originalSlot, Optional<GlobalPos> safePos, Optional<UUID> owner, boolean deathDrop, boolean globalGlow) {
+        this.originalSlot = originalSlot;
+        this.safePos = safePos.orElse(null);
+        this.owner = owner.orElse(null);
+        this.deathDrop = deathDrop;
+        this.globalGlow = globalGlow;
+    }
+
+    /** 读取掉落物的状态，没有附件时返回 {@code null}（不会创建附件）。 */
+    static LenientItemState peek(ItemEntity item) {
+        return item.hasData(ModAttachments.ITEM_STATE) ? item.getData(ModAttachments.ITEM_STATE) : null;
+    }
+
+    /** 读取或创建掉落物的状态。 */
+    static LenientItemState of(ItemEntity item) {
+        return item.getData(ModAttachments.ITEM_STATE);
+    }
+
+    /** 掉落物的归属玩家，没有归属时为 {@code null}。 */
+    static UUID ownerOf(ItemEntity item) {
+        LenientItemState state = peek(item);
+        return state != null ? state.owner : null;
+    }
+
+    static boolean isDeathDrop(ItemEntity item) {
+        LenientItemState state = peek(item);
+        return state != null && state.deathDrop;
+    }
+
+    /** 是否有需要写入区块 NBT 的内容。 */
+    boolean hasPersistentData() {
+        return originalSlot != NO_SLOT || safePos != null || owner != null || deathDrop || globalGlow;
+    }
+
+    int originalSlot() {
+        return originalSlot;
+    }
+
+    void setOriginalSlot(int originalSlot) {
+        this.originalSlot = originalSlot;
+    }
+
+    GlobalPos safePos() {
+        return safePos;
+    }
+
+    void setSafePos(GlobalPos safePos) {
+        this.safePos = safePos;
+    }
+
+    UUID owner() {
+        return owner;
+    }
+
+    boolean deathDrop() {
+        return deathDrop;
+    }
+
+    /** 标记为指定玩家的死亡掉落物。 */
+    void markDeathDrop(UUID owner) {
+        this.owner = owner;
+        this.deathDrop = true;
+    }
+
+    /** 发光标志是否由 {@link GlobalGlow} 设置（而不是命令、数据包或其他模组）。 */
+    boolean globalGlow() {
+        return globalGlow;
+    }
+
+    void setGlobalGlow(boolean globalGlow) {
+        this.globalGlow = globalGlow;
+    }
+
+    /** 同一 tick（及下一 tick）内是否已经恢复过。 */
+    boolean recoveredRecently(int tickCount) {
+        return recoveredAtTick >= 0 && tickCount - recoveredAtTick < 2;
+    }
+
+    void markRecovered(int tickCount) {
+        this.recoveredAtTick = tickCount;
+    }
+
+    /** 等待落点搜索时的保持位置，未在等待时为 {@code null}。 */
+    Vec3 holdPos() {
+        return holdPos;
+    }
+
+    void setHoldPos(Vec3 holdPos) {
+        this.holdPos = holdPos;
+    }
+
+    /**
+     * 限流检查：在时间窗口内限制恢复次数，达到上限后进入冷却。
+     *
+     * @param now 掉落物当前的 {@code tickCount}
+     * @return 是否允许本次恢复
+     */
+    boolean tryConsumeRecovery(int now, int windowTicks, int maxRecoveries, int cooldownTicks) {
+        if (cooldownUntilTick > now) {
+            return false;
+        }
+
+        if (windowStartTick < 0 || now - windowStartTick >= windowTicks) {
+            windowStartTick = now;
+            countInWindow = 0;
+        }
+
+        countInWindow++;
+
+        if (countInWindow >= maxRecoveries) {
+            countInWindow = 0;
+            windowStartTick = now;
+            cooldownUntilTick = now + cooldownTicks;
+        } else {
+            cooldownUntilTick = -1;
+        }
+        return true;
+    }
+
+    /**
+     * 把旧版本的逐项附件迁移到合并状态并移除旧附件（掉落物加入世界时调用，没有旧附件时几乎无开销）。
+     */
+    @SuppressWarnings("deprecation") // 迁移需要读取旧附件
+    static void migrateLegacy(ItemEntity item) {
+        if (!item.hasAttachments()) return;
+        boolean hasSlot = item.hasData(ModAttachments.ORIGINAL_SLOT);
+        boolean hasSafePos = item.hasData(ModAttachments.SAFE_RECOVERY_POS);
+        boolean hasOwner = item.hasData(ModAttachments.OWNER_UUID);
+        boolean hasDeathDrop = item.hasData(ModAttachments.IS_DEATH_DROP);
+        if (!hasSlot && !hasSafePos && !hasOwner && !hasDeathDrop
+                && !item.hasData(ModAttachments.VOID_RECOVERED)
+                && !item.hasData(ModAttachments.VOID_RECOVERY_WINDOW_START_TICK)
+                && !item.hasData(ModAttachments.VOID_RECOVERY_COUNT_IN_WINDOW)
+                && !item.hasData(ModAttachments.VOID_RECOVERY_COOLDOWN_UNTIL_TICK)) {
+            return;
+        }
+
+        LenientItemState state = of(item);
+        if (hasSlot) state.originalSlot = item.getData(ModAttachments.ORIGINAL_SLOT);
+        if (hasSafePos) state.safePos = item.getData(ModAttachments.SAFE_RECOVERY_POS);
+        if (hasOwner) state.owner = item.getData(ModAttachments.OWNER_UUID);
+        if (hasDeathDrop) state.deathDrop = item.getData(ModAttachments.IS_DEATH_DROP);
+
+        item.removeData(ModAttachments.ORIGINAL_SLOT);
+        item.removeData(ModAttachments.SAFE_RECOVERY_POS);
+        item.removeData(ModAttachments.OWNER_UUID);
+        item.removeData(ModAttachments.IS_DEATH_DROP);
+        item.removeData(ModAttachments.VOID_RECOVERED);
+        item.removeData(ModAttachments.VOID_RECOVERY_WINDOW_START_TICK);
+        item.removeData(ModAttachments.VOID_RECOVERY_COUNT_IN_WINDOW);
+        item.removeData(ModAttachments.VOID_RECOVERY_COOLDOWN_UNTIL_TICK);
+    }
+}
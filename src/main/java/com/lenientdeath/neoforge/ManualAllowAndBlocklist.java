@@ -3,127 +3,241 @@ package com.lenientdeath.neoforge;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.tags.TagKey;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.Item;
-import net.minecraft.world.item.ItemStack; // shouldKeep() 参数类型
+import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * 手动配置的始终保留/始终掉落物品列表（按 Item ID 和 Tag 筛选）。
+ * <p>
+ * 每个列表条目解析后的物品集合以注册表 ID 为下标的 {@link BitSet} 缓存：
+ * 配置变更时只解析新增条目；标签重载（/reload 或数据包加载）时只重新读取标签条目，内容未变的标签沿用缓存，
+ * 物品 ID 条目保留（物品注册表在启动后不再变化）。解析失败的物品 ID 不缓存，下次刷新时重试。
+ * 合并结果封装为不可变的 {@link Lists}，通过 volatile 引用整体替换，读取方无需加锁。
  */
 @SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
-public class ManualAllowAndBlocklist {
+public class ManualAllowAndBlocklist implements BuiltinPreservationRule {
     private static final Logger LOGGER = LoggerFactory.getLogger("LenientDeath/Item Filtering");
     public static final ManualAllowAndBlocklist INSTANCE = new ManualAllowAndBlocklist();
+    private static final ResourceLocation ID = ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "manual_lists");
     private ManualAllowAndBlocklist() {}
 
-    private final Set<Item> alwaysPreserved = new HashSet<>();
-    private final Set<Item> alwaysDroppedItems = new HashSet<>();
+    /** 合并后的列表（注册表 ID → 是否命中），构建后不再修改。 */
+    private record Lists(BitSet alwaysPreserved, BitSet alwaysDropped) {
+        static final Lists EMPTY = new Lists(new BitSet(), new BitSet());
+    }
+
+    /** 刷新原因，用于调试状态显示。 */
+    public enum ReloadCause { NONE, CONFIG, TAGS }
+
+    /** 最近一次刷新的统计：耗时、重新解析的条目数、条目总数。 */
+    public record ReloadStats(ReloadCause cause, long durationNanos, int resolvedEntries, int totalEntries) {
+        static final ReloadStats NEVER = new ReloadStats(ReloadCause.NONE, 0L, 0, 0);
+    }
+
+    private volatile Lists lists = Lists.EMPTY;
+    private volatile ReloadStats lastReload = ReloadStats.NEVER;
+
+    // 以下缓存只在 synchronized 刷新方法中访问
+    /** 物品 ID 条目 → 解析结果（只缓存解析成功的条目）。 */
+    private final Map<String, BitSet> itemEntryCache = new HashMap<>();
+    /** 标签条目 → 解析结果，标签重载时与新的标签内容比较后更新。 */
+    private final Map<String, BitSet> tagEntryCache = new HashMap<>();
+    /** 上次合并时使用的配置列表，未变化且标签未重载时跳过合并。 */
+    private @Nullable List<List<String>> appliedEntries;
+    /** 本次刷新中新解析或内容变化的条目数。 */
+    private int resolvedCount;
 
     public void setup() {
         // 配置值仅在 ModConfig 加载后可读取。
-        // 实际刷新由 LenientDeathNeoForge 的配置事件监听触发。
+        // 实际刷新由 LenientDeathNeoForge 的配置事件与标签重载事件触发。
     }
 
-    protected @Nullable Boolean shouldKeep(ItemStack stack) {
-        if (alwaysDroppedItems.contains(stack.getItem())) return false;
-        if (alwaysPreserved.contains(stack.getItem())) return true;
+    @Override
+    public ResourceLocation id() {
+        return ID;
+    }
+
+    @Override
+    public int priority() {
+        return 200;
+    }
+
+    @Override
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack) {
+        Boolean keep = shouldKeep(stack.getItem());
+        if (keep == null) return null;
+        return keep ? stack.getCount() : 0;
+    }
+
+    /** 列表只与物品本身有关，可预编译进 {@link PreservationTable}。 */
+    @Override
+    public boolean isItemStatic() {
+        return true;
+    }
+
+    @Override
+    public @Nullable Boolean shouldKeepItem(ConfigSnapshot config, Item item) {
+        return shouldKeep(item);
+    }
+
+    /** 按物品判断。 */
+    protected @Nullable Boolean shouldKeep(Item item) {
+        Lists current = this.lists;
+        int id = BuiltInRegistries.ITEM.getId(item);
+        if (id < 0) return null;
+        if (current.alwaysDropped().get(id)) return false;
+        if (current.alwaysPreserved().get(id)) return true;
         return null;
     }
 
+    /** 最近一次刷新的统计（供调试命令显示）。 */
+    public ReloadStats getLastReload() {
+        return lastReload;
+    }
+
     /**
-     * Load items from the current tag set and config.
+     * 配置变化后刷新：只解析此前未出现过的条目。
+     *
+     * @param config Config snapshot to read the lists from
      */
-    public void refreshItems() {
-        this.alwaysPreserved.clear();
-        this.alwaysDroppedItems.clear();
-
-        LOGGER.debug("Creating always preserved list");
-
-        List<? extends String> alwaysPreservedItems = Config.COMMON.ALWAYS_PRESERVED_ITEMS.get();
-        List<? extends String> alwaysPreservedTags = Config.COMMON.ALWAYS_PRESERVED_TAGS.get();
-
-        for (String itemId : alwaysPreservedItems) {
-            try {
-                ResourceLocation id = ResourceLocation.parse(itemId);
-                Item item = BuiltInRegistries.ITEM.get(id);
-                if (item == Items.AIR) {
-                    LOGGER.warn("Unknown item ID: {}", itemId);
-                    continue;
-                }
-                LOGGER.debug("Adding item {}", itemId);
-                this.alwaysPreserved.add(item);
-            } catch (Exception e) {
-                LOGGER.warn("Invalid item ID: {}", itemId);
+    public synchronized void refreshItems(ConfigSnapshot config) {
+        refresh(config, ReloadCause.CONFIG, System.nanoTime(), 0);
+    }
+
+    /**
+     * 标签重载后刷新：重新读取已缓存的标签条目，只有内容变化的条目替换缓存并触发重新合并；物品 ID 条目沿用缓存，
+     * 只重试此前解析失败的条目。
+     *
+     * @param config Config snapshot to read the lists from
+     */
+    public synchronized void refreshTags(ConfigSnapshot config) {
+        long startNanos = System.nanoTime();
+        int changed = 0;
+        for (var entry : tagEntryCache.entrySet()) {
+            BitSet resolved = resolveTag(entry.getKey());
+            if (!resolved.equals(entry.getValue())) {
+                entry.setValue(resolved);
+                changed++;
             }
         }
+        // 此前解析失败的物品 ID 未缓存，也需要重新合并才会重试
+        if (changed > 0 || !itemEntryCache.keySet().containsAll(union(config.alwaysPreservedItems(), config.alwaysDroppedItems()))) {
+            appliedEntries = null;
+        }
+        refresh(config, ReloadCause.TAGS, startNanos, changed);
+    }
 
-        for (String tagStr : alwaysPreservedTags) {
-            try {
-                TagKey<Item> tagKey = TagKey.create(BuiltInRegistries.ITEM.key(), ResourceLocation.parse(tagStr));
-                // 直接从标签注册表查找，避免遍历所有注册物品
-                var tagHolder = BuiltInRegistries.ITEM.getTag(tagKey);
-                if (tagHolder.isPresent()) {
-                    for (var holder : tagHolder.get()) {
-                        this.alwaysPreserved.add(holder.value());
-                        LOGGER.debug("Adding tag {} item {}", tagStr, BuiltInRegistries.ITEM.getKey(holder.value()));
-                    }
-                } else {
-                    LOGGER.warn("Tag not found in registry: {}", tagStr);
-                }
-                LOGGER.debug("Adding tag {}", tagStr);
-            } catch (Exception e) {
-                LOGGER.warn("Invalid tag ID: {}", tagStr);
-            }
+    private void refresh(ConfigSnapshot config, ReloadCause cause, long startNanos, int alreadyResolved) {
+        List<List<String>> entries = List.of(
+                config.alwaysPreservedItems(), config.alwaysPreservedTags(),
+                config.alwaysDroppedItems(), config.alwaysDroppedTags());
+        if (entries.equals(appliedEntries)) {
+            LOGGER.debug("Manual item lists unchanged, skipping refresh");
+            return;
+        }
+
+        resolvedCount = alreadyResolved;
+
+        // 只保留当前配置仍引用的条目，避免缓存无限增长
+        itemEntryCache.keySet().retainAll(union(config.alwaysPreservedItems(), config.alwaysDroppedItems()));
+        tagEntryCache.keySet().retainAll(union(config.alwaysPreservedTags(), config.alwaysDroppedTags()));
+
+        BitSet alwaysPreserved = new BitSet();
+        BitSet alwaysDropped = new BitSet();
+        for (String itemId : config.alwaysPreservedItems()) {
+            alwaysPreserved.or(cached(itemEntryCache, itemId, ManualAllowAndBlocklist::resolveItem));
+        }
+        for (String tagStr : config.alwaysPreservedTags()) {
+            alwaysPreserved.or(cached(tagEntryCache, tagStr, ManualAllowAndBlocklist::resolveTag));
+        }
+        for (String itemId : config.alwaysDroppedItems()) {
+            alwaysDropped.or(cached(itemEntryCache, itemId, ManualAllowAndBlocklist::resolveItem));
+        }
+        for (String tagStr : config.alwaysDroppedTags()) {
+            alwaysDropped.or(cached(tagEntryCache, tagStr, ManualAllowAndBlocklist::resolveTag));
         }
 
-        LOGGER.debug("Total for always preserved: {}", this.alwaysPreserved.size());
+        this.lists = new Lists(alwaysPreserved, alwaysDropped);
+        this.appliedEntries = entries;
 
-        LOGGER.debug("Creating always dropped list");
+        int total = entries.stream().mapToInt(List::size).sum();
+        long durationNanos = System.nanoTime() - startNanos;
+        this.lastReload = new ReloadStats(cause, durationNanos, resolvedCount, total);
 
-        List<? extends String> alwaysDroppedItems = Config.COMMON.ALWAYS_DROPPED_ITEMS.get();
-        List<? extends String> alwaysDroppedTags = Config.COMMON.ALWAYS_DROPPED_TAGS.get();
+        LOGGER.debug("Total for always preserved: {}", alwaysPreserved.cardinality());
+        LOGGER.debug("Total for always dropped: {}", alwaysDropped.cardinality());
+        LOGGER.debug("Refreshed manual item lists ({}): re-resolved {}/{} entries, took {} us",
+                cause, resolvedCount, total, durationNanos / 1000L);
+    }
 
-        for (String itemId : alwaysDroppedItems) {
-            try {
-                ResourceLocation id = ResourceLocation.parse(itemId);
-                Item item = BuiltInRegistries.ITEM.get(id);
-                if (item == Items.AIR) {
-                    LOGGER.warn("Unknown item ID: {}", itemId);
-                    continue;
-                }
-                LOGGER.debug("Adding item {}", itemId);
-                this.alwaysDroppedItems.add(item);
-            } catch (Exception e) {
-                LOGGER.warn("Invalid item ID: {}", itemId);
+    /** 解析单个物品 ID 条目；无效或未知时返回 {@code null}（不缓存）。 */
+    private static @Nullable BitSet resolveItem(String itemId) {
+        try {
+            ResourceLocation id = ResourceLocation.parse(itemId);
+            Item item = BuiltInRegistries.ITEM.get(id);
+            if (item == Items.AIR) {
+                LOGGER.warn("Unknown item ID: {}", itemId);
+                return null;
             }
+            LOGGER.debug("Adding item {}", itemId);
+            BitSet result = new BitSet();
+            result.set(BuiltInRegistries.ITEM.getId(item));
+            return result;
+        } catch (Exception e) {
+            LOGGER.warn("Invalid item ID: {}", itemId);
+            return null;
         }
+    }
 
-        for (String tagStr : alwaysDroppedTags) {
-            try {
-                TagKey<Item> tagKey = TagKey.create(BuiltInRegistries.ITEM.key(), ResourceLocation.parse(tagStr));
-                // 直接从标签注册表查找，避免遍历所有注册物品
-                var tagHolder = BuiltInRegistries.ITEM.getTag(tagKey);
-                if (tagHolder.isPresent()) {
-                    for (var holder : tagHolder.get()) {
-                        this.alwaysDroppedItems.add(holder.value());
-                        LOGGER.debug("Adding tag {} item {}", tagStr, BuiltInRegistries.ITEM.getKey(holder.value()));
-                    }
-                } else {
-                    LOGGER.warn("Tag not found in registry: {}", tagStr);
+    /** 解析单个标签条目；无效或标签不存在时返回空集合。 */
+    private static BitSet resolveTag(String tagStr) {
+        BitSet result = new BitSet();
+        try {
+            TagKey<Item> tagKey = TagKey.create(BuiltInRegistries.ITEM.key(), ResourceLocation.parse(tagStr));
+            // 直接从标签注册表查找，避免遍历所有注册物品
+            var tagHolder = BuiltInRegistries.ITEM.getTag(tagKey);
+            if (tagHolder.isPresent()) {
+                for (var holder : tagHolder.get()) {
+                    result.set(BuiltInRegistries.ITEM.getId(holder.value()));
                 }
-                LOGGER.debug("Adding tag {}", tagStr);
-            } catch (Exception e) {
-                LOGGER.warn("Invalid tag ID: {}", tagStr);
+                LOGGER.debug("Adding tag {} ({} items)", tagStr, result.cardinality());
+            } else {
+                LOGGER.warn("Tag not found in registry: {}", tagStr);
             }
+        } catch (Exception e) {
+            LOGGER.warn("Invalid tag ID: {}", tagStr);
         }
+        return result;
+    }
+
+    /** 读取缓存的条目解析结果，未命中时解析并计数；解析失败（{@code null}）时不缓存，按空集合处理。 */
+    private BitSet cached(Map<String, BitSet> cache, String entry, Function<String, BitSet> resolver) {
+        BitSet result = cache.get(entry);
+        if (result == null) {
+            resolvedCount++;
+            result = resolver.apply(entry);
+            if (result == null) return new BitSet();
+            cache.put(entry, result);
+        }
+        return result;
+    }
 
-        LOGGER.debug("Total for always dropped: {}", this.alwaysDroppedItems.size());
+    private static Set<String> union(List<String> first, List<String> second) {
+        Set<String> result = new HashSet<>(first);
+        result.addAll(second);
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -16,7 +16,9 @@ import java.util.function.Supplier;
 /**
  * 注册所有 NeoForge 附件类型（Attachment），用于在实体上存储额外数据。
  * <p>
- * 附件通过 {@link ModEntityData} 的 put/get/has 方法进行读写。
+ * 掉落物上的数据统一存放在 {@link #ITEM_STATE}；玩家上的安全点使用 {@link #SAFE_RECOVERY_POS}，
+ * 通过 {@link ModEntityData} 的 put/get/has 方法进行读写。其余逐项附件仅为读取旧存档保留注册，
+ * 掉落物加入世界时由 {@link LenientItemState#migrateLegacy} 迁移。
  */
 @SuppressWarnings("null")
 public final class ModAttachments {
@@ -27,14 +29,21 @@ public final class ModAttachments {
     public static final DeferredRegister<AttachmentType<?>> ATTACHMENT_TYPES =
             DeferredRegister.create(NeoForgeRegistries.Keys.ATTACHMENT_TYPES, LenientDeathNeoForge.MODID);
 
-    /** 记录物品原始槽位索引，用于死亡掉落物拾取时还原到原始背包位置。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 掉落物的合并状态（原始槽位、安全点、归属玩家、死亡掉落物标记与运行时恢复状态）。 */
+    public static final Supplier<AttachmentType<LenientItemState>> ITEM_STATE = ATTACHMENT_TYPES.register(
+            "item_state",
+            () -> AttachmentType.builder(LenientItemState::new)
+                    .serialize(LenientItemState.CODEC, LenientItemState::hasPersistentData).build()
+    );
+
+    /** 旧版：记录物品原始槽位索引。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<Integer>> ORIGINAL_SLOT = ATTACHMENT_TYPES.register(
             "original_slot",
             () -> AttachmentType.builder(() -> -1).serialize(com.mojang.serialization.Codec.INT).build()
     );
 
-    /** 记录安全落地坐标（维度 + 坐标），用于虚空/危险恢复时传送物品。 */
+    /** 记录玩家的安全落地坐标（维度 + 坐标），死亡时写入掉落物用于虚空/危险恢复。旧存档中的掉落物上也可能存在，加入世界时迁移。 */
     @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
     public static final Supplier<AttachmentType<GlobalPos>> SAFE_RECOVERY_POS = ATTACHMENT_TYPES.register(
             "safe_recovery_pos",
@@ -42,43 +51,43 @@ public final class ModAttachments {
                     .serialize(GlobalPos.CODEC).build()
     );
 
-    /** 记录掉落物归属玩家 UUID，用于私有高亮（仅归属玩家可见发光效果）。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 旧版：记录掉落物归属玩家 UUID，用于私有高亮（仅归属玩家可见发光效果）。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<UUID>> OWNER_UUID = ATTACHMENT_TYPES.register(
             "owner_uuid",
             () -> AttachmentType.builder(() -> new UUID(0L, 0L)).serialize(UUIDUtil.CODEC).build()
     );
 
-    /** 虚空恢复限流：当前窗口起始 tick。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 旧版虚空恢复限流：当前窗口起始 tick。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<Integer>> VOID_RECOVERY_WINDOW_START_TICK = ATTACHMENT_TYPES.register(
             "void_recovery_window_start_tick",
             () -> AttachmentType.builder(() -> -1).serialize(com.mojang.serialization.Codec.INT).build()
     );
 
-    /** 虚空恢复限流：当前窗口内已恢复次数。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 旧版虚空恢复限流：当前窗口内已恢复次数。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<Integer>> VOID_RECOVERY_COUNT_IN_WINDOW = ATTACHMENT_TYPES.register(
             "void_recovery_count_in_window",
             () -> AttachmentType.builder(() -> 0).serialize(com.mojang.serialization.Codec.INT).build()
     );
 
-    /** 虚空恢复限流：冷却截止 tick，在此之前不再触发恢复。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 旧版虚空恢复限流：冷却截止 tick，在此之前不再触发恢复。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<Integer>> VOID_RECOVERY_COOLDOWN_UNTIL_TICK = ATTACHMENT_TYPES.register(
             "void_recovery_cooldown_until_tick",
             () -> AttachmentType.builder(() -> -1).serialize(com.mojang.serialization.Codec.INT).build()
     );
 
-    /** 标记是否为玩家死亡产生的掉落物，用于按恢复模式过滤非死亡掉落物。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 旧版：标记是否为玩家死亡产生的掉落物，用于按恢复模式过滤非死亡掉落物。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<Boolean>> IS_DEATH_DROP = ATTACHMENT_TYPES.register(
             "is_death_drop",
             () -> AttachmentType.builder(() -> false).serialize(com.mojang.serialization.Codec.BOOL).build()
     );
 
-    /** 记录上次恢复时的 tick，防止同 tick 重复处理，但允许之后再次被拯救。 */
-    @SuppressWarnings("unused") // 由 DeathEventHandler 通过 ModEntityData 引用
+    /** 旧版：记录上次恢复时的 tick，防止同 tick 重复处理，但允许之后再次被拯救。已并入 {@link #ITEM_STATE}，仅用于迁移旧存档。 */
+    @Deprecated
     public static final Supplier<AttachmentType<Integer>> VOID_RECOVERED = ATTACHMENT_TYPES.register(
             "void_recovered",
             () -> AttachmentType.builder(() -> -1).serialize(com.mojang.serialization.Codec.INT).build()
@@ -1,25 +1,60 @@
 package com.lenientdeath.neoforge;
 
 import net.minecraft.core.component.DataComponents;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 /**
  * 根据物品的 CustomData NBT 标记判断是否保留（类似灵魂绑定）。
+ * <p>
+ * 直接读取 {@code CustomData} 内部的只读标签，不做深拷贝：
+ * 模组装备的自定义数据可能有数 KB，每次死亡逐堆叠 {@code copyTag()} 的开销不可忽略。
  */
 @SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
-public class NbtChecker {
+public class NbtChecker implements BuiltinPreservationRule {
     public static final NbtChecker INSTANCE = new NbtChecker();
+    private static final ResourceLocation ID = ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "nbt");
 
     private NbtChecker() {}
 
-    public @Nullable Boolean shouldKeep(ItemStack stack) {
-        var config = Config.COMMON;
-        if (!config.NBT_ENABLED.get()) return null;
+    @Override
+    public ResourceLocation id() {
+        return ID;
+    }
+
+    @Override
+    public int priority() {
+        return 100;
+    }
+
+    @Override
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack) {
+        Boolean keep = shouldKeep(config, stack);
+        if (keep == null) return null;
+        return keep ? stack.getCount() : 0;
+    }
+
+    /**
+     * @return 任一配置键为 {@code true} 时返回 {@code true}；物品有 CustomData 但均不为真时返回 {@code false}；
+     *         无 CustomData 或功能关闭时返回 {@code null}
+     */
+    @SuppressWarnings("deprecation") // getUnsafe: 仅读取，不修改内部标签
+    public @Nullable Boolean shouldKeep(ConfigSnapshot config, ItemStack stack) {
+        if (!config.nbtEnabled()) return null;
 
-        var tag = stack.get(DataComponents.CUSTOM_DATA);
-        if (tag == null) return null;
+        var data = stack.get(DataComponents.CUSTOM_DATA);
+        if (data == null) return null;
 
-        return tag.copyTag().getBoolean(config.NBT_KEY.get());
+        CompoundTag tag = data.getUnsafe();
+        List<String> keys = config.nbtKeys();
+        for (int i = 0, size = keys.size(); i < size; i++) {
+            if (tag.getBoolean(keys.get(i))) return true;
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.scores.PlayerTeam;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 掉落物归属玩家的队伍缓存，供 {@code DEAD_PLAYER_AND_TEAM} 可见性判定使用。
+ * <p>
+ * 解析一次归属玩家的队伍（在线时按玩家、离线时按记分板条目），之后的判定只需与观察者的队伍做引用比较。
+ * 原版与 NeoForge 都没有队伍变更事件，因此缓存在以下时机失效：
+ * <ul>
+ *   <li>执行 {@code /team} 命令（含 {@code /execute ... run team}，按解析后的命令节点匹配）时全部失效</li>
+ *   <li>归属玩家登录/登出时失效该玩家</li>
+ *   <li>条目超过 {@value #TTL_TICKS} tick 后重新解析，覆盖数据包函数或其他模组直接修改记分板的情况</li>
+ * </ul>
+ * TRACKING 模式不会逐 tick 查询队伍，改为每个有效期周期调用 {@link #revalidate} 重新解析所有条目，
+ * 只有队伍引用实际变化的玩家需要重新判定。
+ * 只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class OwnerTeamCache {
+    static final OwnerTeamCache INSTANCE = new OwnerTeamCache();
+
+    /** 条目有效期（tick）。 */
+    static final int TTL_TICKS = 200;
+
+    private record Entry(@Nullable PlayerTeam team, long expiresAt) {}
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private OwnerTeamCache() {}
+
+    /**
+     * 归属玩家当前所在的队伍。
+     *
+     * @param now 当前服务器 tick
+     * @return 队伍，无队伍时为 {@code null}
+     */
+    @Nullable PlayerTeam teamOf(ServerLevel level, UUID ownerId, long now) {
+        Entry entry = entries.get(ownerId);
+        if (entry != null && entry.expiresAt() > now) {
+            hits.increment();
+            return entry.team();
+        }
+        misses.increment();
+        PlayerTeam team = resolve(level.getServer(), ownerId);
+        entries.put(ownerId, new Entry(team, now + TTL_TICKS));
+        return team;
+    }
+
+    /** 尚未缓存时解析并登记玩家的队伍，之后的 {@link #revalidate} 才能发现其变化。 */
+    void watch(MinecraftServer server, UUID playerId, long now) {
+        if (!entries.containsKey(playerId)) {
+            entries.put(playerId, new Entry(resolve(server, playerId), now + TTL_TICKS));
+        }
+    }
+
+    /**
+     * 重新解析所有条目并续期。
+     *
+     * @param now 当前服务器 tick
+     * @return 队伍引用发生变化的玩家
+     */
+    Set<UUID> revalidate(MinecraftServer server, long now) {
+        Set<UUID> changed = new HashSet<>();
+        for (var entry : entries.entrySet()) {
+            PlayerTeam team = resolve(server, entry.getKey());
+            if (team != entry.getValue().team()) {
+                changed.add(entry.getKey());
+            }
+            entry.setValue(new Entry(team, now + TTL_TICKS));
+        }
+        return changed;
+    }
+
+    private static @Nullable PlayerTeam resolve(MinecraftServer server, UUID ownerId) {
+        ServerPlayer ownerPlayer = server.getPlayerList().getPlayer(ownerId);
+        if (ownerPlayer != null) {
+            return ownerPlayer.getTeam() instanceof PlayerTeam pt ? pt : null;
+        }
+        // 玩家离线，从记分板查找
+        return server.getScoreboard().getPlayersTeam(ownerId.toString());
+    }
+
+    void invalidate(UUID ownerId) {
+        entries.remove(ownerId);
+    }
+
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    String getStats() {
+        return "entries=" + entries.size() + ", hits=" + hits.sum() + ", misses=" + misses.sum();
+    }
+}
@@ -0,0 +1,352 @@
+package com.lenientdeath.neoforge;
+
+import com.lenientdeath.neoforge.api.PreservationRule;
+import com.lenientdeath.neoforge.api.PreservationRules;
+import net.minecraft.util.Mth;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 编译后的保留规则链。
+ * <p>
+ * 由 {@link PreservationRules} 中的规则按优先级排序而成：相邻的物品静态规则合并为一个 {@link PreservationTable}，
+ * 其余规则逐堆叠调用。规则链在配置加载/重载、配置命令修改、标签重载后重新编译，
+ * 规则注册表变化时在下一次使用前重新编译；编译结果通过 volatile 引用整体替换。
+ * <p>
+ * 开启 {@link #setStatsEnabled 统计}后，每一步记录调用次数、命中次数与耗时，按名称累计（重新编译后保留），
+ * 供 {@code /lenientdeath debug rules} 显示；关闭时判定路径上不计时也不计数。
+ */
+public final class PreservationChain {
+    private static final Logger LOGGER = LoggerFactory.getLogger("LenientDeath/PreservationChain");
+
+    /** 步骤名称 → 统计，跨编译保留。 */
+    private static final Map<String, RuleStats> STATS = new ConcurrentHashMap<>();
+
+    private static volatile PreservationChain current = new PreservationChain(List.of(), -1);
+
+    /** 是否记录规则统计（运行时开关，不保存到配置）。 */
+    private static volatile boolean statsEnabled = false;
+
+    private final List<Step> steps;
+    private final int rulesVersion;
+    /** 随机规则是否全部位于确定性规则之后（批量判定可先分组求确定性结论，再逐堆叠随机）。 */
+    private final boolean randomLast;
+
+    private PreservationChain(List<Step> steps, int rulesVersion) {
+        this.steps = steps;
+        this.rulesVersion = rulesVersion;
+        boolean seenRandom = false;
+        boolean ordered = true;
+        for (Step step : steps) {
+            if (step.isRandom()) {
+                seenRandom = true;
+            } else if (seenRandom) {
+                ordered = false;
+            }
+        }
+        this.randomLast = ordered;
+    }
+
+    /** 当前规则链；规则注册表在上次编译后发生变化时先重新编译。 */
+    public static PreservationChain get() {
+        PreservationChain chain = current;
+        if (chain.rulesVersion != PreservationRules.getVersion() && Config.SPEC.isLoaded()) {
+            compile(Config.snapshot());
+            chain = current;
+        }
+        return chain;
+    }
+
+    /**
+     * 按当前规则、配置与标签编译规则链。
+     * <p>
+     * 调用前需保证手动列表等规则依赖的数据已刷新。
+     */
+    public static synchronized void compile(ConfigSnapshot config) {
+        long startNanos = System.nanoTime();
+        int version = PreservationRules.getVersion();
+        List<PreservationRule> rules = PreservationRules.getRules();
+
+        List<Step> steps = new ArrayList<>();
+        List<PreservationRule> segment = new ArrayList<>();
+        int tables = 0;
+        for (PreservationRule rule : rules) {
+            if (rule.isItemStatic()) {
+                segment.add(rule);
+                if (segment.size() == PreservationTable.MAX_RULES) {
+                    steps.add(compileTable(config, segment));
+                    segment.clear();
+                    tables++;
+                }
+                continue;
+            }
+            if (!segment.isEmpty()) {
+                steps.add(compileTable(config, segment));
+                segment.clear();
+                tables++;
+            }
+            steps.add(new RuleStep(rule));
+        }
+        if (!segment.isEmpty()) {
+            steps.add(compileTable(config, segment));
+            tables++;
+        }
+
+        current = new PreservationChain(List.copyOf(steps), version);
+        LOGGER.debug("Compiled preservation chain: {} rules into {} steps ({} tables), took {} us",
+                rules.size(), steps.size(), tables, (System.nanoTime() - startNanos) / 1000L);
+    }
+
+    private static TableStep compileTable(ConfigSnapshot config, List<PreservationRule> segment) {
+        TableStep step = new TableStep(PreservationTable.compile(config, segment));
+        LOGGER.debug("Compiled {}: {} items, {} decided", step.name, step.table.size(), step.table.decidedCount());
+        return step;
+    }
+
+    /**
+     * 依次询问规则链，返回第一个结论。
+     *
+     * @param skipRandom 为 {@code true} 时跳过随机规则
+     * @return 保留数量，{@code null} 表示没有规则命中
+     */
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack, boolean skipRandom) {
+        for (Step step : steps) {
+            if (skipRandom && step.isRandom()) continue;
+            Integer result = step.evaluate(config, player, stack);
+            if (result != null) return Mth.clamp(result, 0, stack.getCount());
+        }
+        return null;
+    }
+
+    /**
+     * 只询问随机规则，供批量判定在确定性结论未命中后逐堆叠调用。
+     * 仅在 {@link #isRandomLast()} 为 {@code true} 时与完整规则链等价。
+     */
+    public @Nullable Integer howManyToKeepRandom(ConfigSnapshot config, Player player, ItemStack stack) {
+        for (Step step : steps) {
+            if (!step.isRandom()) continue;
+            Integer result = step.evaluate(config, player, stack);
+            if (result != null) return Mth.clamp(result, 0, stack.getCount());
+        }
+        return null;
+    }
+
+    public boolean isRandomLast() {
+        return randomLast;
+    }
+
+    /** 步骤统计（按执行顺序），决策表之后缩进列出段内各规则。 */
+    public List<Map.Entry<String, RuleStats>> stats() {
+        List<Map.Entry<String, RuleStats>> result = new ArrayList<>();
+        for (Step step : steps) {
+            result.add(Map.entry(step.name(), step.stats()));
+            if (step instanceof TableStep table) {
+                for (int i = 0; i < table.rules.size(); i++) {
+                    result.add(Map.entry("  " + table.rules.get(i).id(), table.ruleStats[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    public static void resetStats() {
+        STATS.values().forEach(RuleStats::reset);
+    }
+
+    public static boolean isStatsEnabled() {
+        return statsEnabled;
+    }
+
+    public static void setStatsEnabled(boolean enabled) {
+        statsEnabled = enabled;
+    }
+
+    private static RuleStats statsFor(String name) {
+        return STATS.computeIfAbsent(name, key -> new RuleStats());
+    }
+
+    /** 单个规则或决策表的调用统计。 */
+    public static final class RuleStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder decided = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long elapsedNanos, boolean hit) {
+            calls.increment();
+            nanos.add(elapsedNanos);
+            if (hit) decided.increment();
+        }
+
+        void recordDecision() {
+            decided.increment();
+        }
+
+        void reset() {
+            calls.reset();
+            decided.reset();
+            nanos.reset();
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getDecided() {
+            return decided.sum();
+        }
+
+        public long getTotalNanos() {
+            return nanos.sum();
+        }
+
+        public long getAverageNanos() {
+            long count = calls.sum();
+            return count == 0 ? 0 : nanos.sum() / count;
+        }
+    }
+
+    // ── 步骤 ──
+
+    private sealed interface Step permits RuleStep, TableStep {
+        String name();
+
+        RuleStats stats();
+
+        boolean isRandom();
+
+        @Nullable Integer evaluate(ConfigSnapshot config, Player player, ItemStack stack);
+    }
+
+    /** 逐堆叠调用的规则。 */
+    private static final class RuleStep implements Step {
+        private final PreservationRule rule;
+        private final String name;
+        private final RuleStats stats;
+
+        RuleStep(PreservationRule rule) {
+            this.rule = rule;
+            this.name = rule.id().toString();
+            this.stats = statsFor(name);
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public RuleStats stats() {
+            return stats;
+        }
+
+        @Override
+        public boolean isRandom() {
+            return rule.isRandom();
+        }
+
+        @Override
+        public @Nullable Integer evaluate(ConfigSnapshot config, Player player, ItemStack stack) {
+            if (!statsEnabled) return rule.howManyToKeep(config, player, stack);
+            long start = System.nanoTime();
+            Integer result = rule.howManyToKeep(config, player, stack);
+            stats.record(System.nanoTime() - start, result != null);
+            return result;
+        }
+    }
+
+    /** 一段预编译的物品静态规则。 */
+    private static final class TableStep implements Step {
+        private final PreservationTable table;
+        private final List<PreservationRule> rules;
+        private final String name;
+        private final RuleStats stats;
+        /** 段内各规则的命中统计（查表命中与逐堆叠回退均计入）。 */
+        private final RuleStats[] ruleStats;
+
+        TableStep(PreservationTable table) {
+            this.table = table;
+            this.rules = table.rules();
+            this.name = "table" + rules.stream().map(rule -> rule.id().toString())
+                    .collect(Collectors.joining(", ", "[", "]"));
+            this.stats = statsFor(name);
+            this.ruleStats = new RuleStats[rules.size()];
+            for (int i = 0; i < rules.size(); i++) {
+                ruleStats[i] = statsFor(rules.get(i).id().toString());
+            }
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public RuleStats stats() {
+            return stats;
+        }
+
+        @Override
+        public boolean isRandom() {
+            return false;
+        }
+
+        @Override
+        public @Nullable Integer evaluate(ConfigSnapshot config, Player player, ItemStack stack) {
+            if (!statsEnabled) return lookup(config, player, stack);
+            long start = System.nanoTime();
+            Integer result = lookup(config, player, stack);
+            stats.record(System.nanoTime() - start, result != null);
+            return result;
+        }
+
+        private @Nullable Integer lookup(ConfigSnapshot config, Player player, ItemStack stack) {
+            int entry = table.lookup(stack.getItem());
+            if (entry == PreservationTable.NOT_COMPILED) {
+                // 物品不在表中（表构建后才注册的物品），逐规则判定
+                return evaluateFrom(0, config, player, stack);
+            }
+
+            int verdict = PreservationTable.verdict(entry);
+            int decider = verdict == PreservationTable.UNDECIDED ? rules.size() - 1 : PreservationTable.ruleIndex(entry);
+            // 给出结论的规则及其之前的规则中，任一规则的结论受堆叠组件影响时，从该规则起逐堆叠判定
+            for (int i = 0; i <= decider; i++) {
+                if (rules.get(i).needsStackCheck(stack)) {
+                    return evaluateFrom(i, config, player, stack);
+                }
+            }
+
+            return switch (verdict) {
+                case PreservationTable.KEEP -> {
+                    if (statsEnabled) ruleStats[decider].recordDecision();
+                    yield stack.getCount();
+                }
+                case PreservationTable.DROP -> {
+                    if (statsEnabled) ruleStats[decider].recordDecision();
+                    yield 0;
+                }
+                default -> null;
+            };
+        }
+
+        private @Nullable Integer evaluateFrom(int first, ConfigSnapshot config, Player player, ItemStack stack) {
+            boolean recordStats = statsEnabled;
+            for (int i = first; i < rules.size(); i++) {
+                long start = recordStats ? System.nanoTime() : 0L;
+                Integer result = rules.get(i).howManyToKeep(config, player, stack);
+                if (recordStats) ruleStats[i].record(System.nanoTime() - start, result != null);
+                if (result != null) return result;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.lenientdeath.neoforge;
+
+import com.lenientdeath.neoforge.api.PreservationRule;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.Item;
+
+import java.util.List;
+
+/**
+ * 预编译的按物品决策表：把规则链中一段连续的物品静态规则（{@link PreservationRule#isItemStatic()}）
+ * 的合并结论存入按物品注册表 ID 索引的数组。
+ * <p>
+ * 表在规则链编译时构建，构建后不再修改；死亡时每个堆叠只需一次数组读取。
+ * 每项的低两位为结论，其余位为给出结论的规则在本段中的下标。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class PreservationTable {
+    /** 未命中任何规则。 */
+    static final int UNDECIDED = 0;
+    /** 保留。 */
+    static final int KEEP = 1;
+    /** 掉落。 */
+    static final int DROP = 2;
+    /** 物品不在表中（注册表 ID 越界），需逐规则判定。 */
+    static final int NOT_COMPILED = -1;
+    /** 结论掩码（低两位）。 */
+    private static final int VERDICT_MASK = 0x3;
+    private static final int RULE_SHIFT = 2;
+    /** 单段最多容纳的规则数（规则下标需放入一个字节的高六位）。 */
+    static final int MAX_RULES = 0xFF >>> RULE_SHIFT;
+
+    private final List<PreservationRule> rules;
+    /** 注册表 ID → 结论 | 规则下标。 */
+    private final byte[] verdicts;
+    private final int decidedCount;
+
+    private PreservationTable(List<PreservationRule> rules, byte[] verdicts, int decidedCount) {
+        this.rules = rules;
+        this.verdicts = verdicts;
+        this.decidedCount = decidedCount;
+    }
+
+    /**
+     * 按当前配置与标签编译一段物品静态规则。
+     *
+     * @param config 用于编译的配置快照
+     * @param rules  按执行顺序排列的物品静态规则，数量不超过 {@link #MAX_RULES}
+     */
+    static PreservationTable compile(ConfigSnapshot config, List<PreservationRule> rules) {
+        byte[] verdicts = new byte[BuiltInRegistries.ITEM.size()];
+        int decided = 0;
+
+        for (Item item : BuiltInRegistries.ITEM) {
+            int id = BuiltInRegistries.ITEM.getId(item);
+            if (id < 0 || id >= verdicts.length) continue;
+            for (int i = 0; i < rules.size(); i++) {
+                Boolean keep = rules.get(i).shouldKeepItem(config, item);
+                if (keep != null) {
+                    verdicts[id] = (byte) ((keep ? KEEP : DROP) | (i << RULE_SHIFT));
+                    decided++;
+                    break;
+                }
+            }
+        }
+        return new PreservationTable(List.copyOf(rules), verdicts, decided);
+    }
+
+    List<PreservationRule> rules() {
+        return rules;
+    }
+
+    int size() {
+        return verdicts.length;
+    }
+
+    int decidedCount() {
+        return decidedCount;
+    }
+
+    /** 查询物品的原始表项；物品不在表中时返回 {@link #NOT_COMPILED}。 */
+    int lookup(Item item) {
+        int id = BuiltInRegistries.ITEM.getId(item);
+        if (id < 0 || id >= verdicts.length) return NOT_COMPILED;
+        return verdicts[id] & 0xFF;
+    }
+
+    /** 表项中的结论：{@link #UNDECIDED}、{@link #KEEP} 或 {@link #DROP}。 */
+    static int verdict(int entry) {
+        return entry & VERDICT_MASK;
+    }
+
+    /** 表项中给出结论的规则下标（仅在已判定时有意义）。 */
+    static int ruleIndex(int entry) {
+        return entry >>> RULE_SHIFT;
+    }
+}
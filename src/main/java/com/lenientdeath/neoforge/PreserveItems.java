@@ -1,15 +1,21 @@
 package com.lenientdeath.neoforge;
 
+import com.lenientdeath.neoforge.api.PreservationRules;
 import com.lenientdeath.neoforge.compat.CuriosCompat;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
-import net.neoforged.fml.ModList;
+import net.minecraft.world.item.ItemStackLinkedSet;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * 物品保留入口：判断死亡时应保留多少个物品。
  * <p>
- * 优先级：NBT 标记 → 手动列表 → 物品类型规则 → 随机保留。
+ * 判定由 {@link PreservationChain} 完成，内置规则的优先级：NBT 标记 → 数据包标签 → 手动列表 → 物品类型规则 → 随机保留。
+ * 其他模组可通过 {@link PreservationRules} 注册额外规则。
  */
 public class PreserveItems {
     public static final PreserveItems INSTANCE = new PreserveItems();
@@ -17,35 +23,113 @@ public class PreserveItems {
     private PreserveItems() {}
 
     public static int howManyToPreserve(Player player, ItemStack stack) {
+        return howManyToPreserve(Config.snapshot(), player, stack);
+    }
+
+    /**
+     * 计算应保留的数量。
+     *
+     * @param config 本次死亡事件使用的配置快照
+     */
+    public static int howManyToPreserve(ConfigSnapshot config, Player player, ItemStack stack) {
         // 主开关：关闭时直接不保留
-        if (Config.COMMON.PRESERVE_ITEMS_ENABLED.get()) {
-            var test = INSTANCE.shouldPreserve(player, stack, false);
+        if (config.preserveItemsEnabled()) {
+            var test = INSTANCE.shouldPreserve(config, player, stack, false);
             if (test != null) return test;
         }
         return 0;
     }
 
-    public void setup() {
-        ManualAllowAndBlocklist.INSTANCE.setup();
+    /**
+     * 一组堆叠已询问过的确定性规则结论。规则可能与数量有关（例如保留上限），只对数量相同的堆叠复用。
+     *
+     * @param verdict 确定性规则的保留数量，未命中时为 {@code null}（交给随机规则）
+     */
+    private record GroupVerdict(int count, @Nullable Integer verdict) {}
+
+    /**
+     * 批量计算一次死亡全部掉落物的保留数量。
+     * <p>
+     * 按物品 + 组件分组（不含数量），同组且数量相同的堆叠只询问一次确定性规则；
+     * 确定性规则未命中的堆叠仍逐个交给随机规则，每个堆叠的随机概率不变。
+     *
+     * @param config 本次死亡事件使用的配置快照
+     * @param stacks 掉落物堆叠（只读）
+     * @return 与 {@code stacks} 顺序一一对应的保留数量
+     */
+    public static int[] howManyToPreserve(ConfigSnapshot config, Player player, List<ItemStack> stacks) {
+        int[] result = new int[stacks.size()];
+        // 主开关：关闭时直接不保留
+        if (!config.preserveItemsEnabled()) return result;
+
+        PreservationChain chain = PreservationChain.get();
+        if (!chain.isRandomLast()) {
+            // 随机规则穿插在确定性规则之间时无法拆分，逐堆叠完整判定
+            for (int i = 0; i < result.length; i++) {
+                result[i] = orZero(chain.howManyToKeep(config, player, stacks.get(i), false));
+            }
+            return result;
+        }
 
-        // Curios 兼容初始化（当前版本无额外注册逻辑，保留扩展点）
-        if (ModList.get().isLoaded("curios")) {
-            CuriosCompat.setup();
+        Map<ItemStack, GroupVerdict> groups = new Object2ObjectOpenCustomHashMap<>(ItemStackLinkedSet.TYPE_AND_TAG);
+        for (int i = 0; i < result.length; i++) {
+            ItemStack stack = stacks.get(i);
+            GroupVerdict group = groups.get(stack);
+            if (group == null || group.count() != stack.getCount()) {
+                group = new GroupVerdict(stack.getCount(), chain.howManyToKeep(config, player, stack, true));
+                groups.put(stack, group);
+            }
+            result[i] = group.verdict() != null
+                    ? group.verdict()
+                    : orZero(chain.howManyToKeepRandom(config, player, stack));
         }
+        return result;
     }
 
-    public @Nullable Integer shouldPreserve(Player player, ItemStack stack, boolean skipRandom) {
-        var nbtPreserveTest = NbtChecker.INSTANCE.shouldKeep(stack);
-        if (nbtPreserveTest != null) return nbtPreserveTest ? stack.getCount() : 0;
+    private static int orZero(@Nullable Integer value) {
+        return value != null ? value : 0;
+    }
 
-        var configPreserveTest = ManualAllowAndBlocklist.INSTANCE.shouldKeep(stack);
-        if (configPreserveTest != null) return configPreserveTest ? stack.getCount() : 0;
+    /** 注册内置规则。在模组构造阶段调用，使其他模组可在之后替换或移除内置规则。 */
+    public static void registerBuiltinRules() {
+        PreservationRules.register(NbtChecker.INSTANCE);
+        PreservationRules.register(DatapackTagRule.INSTANCE);
+        PreservationRules.register(ManualAllowAndBlocklist.INSTANCE);
+        PreservationRules.register(ItemTypeChecker.INSTANCE);
+        PreservationRules.register(Randomizer.INSTANCE);
+    }
 
-        var itemTypeTest = ItemTypeChecker.INSTANCE.shouldKeep(player, stack);
-        if (itemTypeTest != null) return itemTypeTest ? stack.getCount() : 0;
+    public void setup() {
+        ManualAllowAndBlocklist.INSTANCE.setup();
 
-        if (!skipRandom) return Randomizer.INSTANCE.howManyToKeep(stack, player);
+        // Curios 兼容初始化：解析一次模组是否加载
+        CuriosCompat.setup();
+    }
+
+    /**
+     * 配置变化后刷新手动列表并重新编译规则链。
+     * <p>
+     * 在配置加载/重载和配置命令修改后调用。配置尚未加载时跳过。
+     */
+    public void refresh() {
+        if (!Config.SPEC.isLoaded()) return;
+        ConfigSnapshot config = Config.snapshot();
+        ManualAllowAndBlocklist.INSTANCE.refreshItems(config);
+        PreservationChain.compile(config);
+    }
+
+    /**
+     * 标签重载后重新解析手动列表中的标签条目并重新编译规则链。配置尚未加载时跳过。
+     */
+    public void refreshTags() {
+        if (!Config.SPEC.isLoaded()) return;
+        ConfigSnapshot config = Config.snapshot();
+        ManualAllowAndBlocklist.INSTANCE.refreshTags(config);
+        CuriosCompat.invalidate();
+        PreservationChain.compile(config);
+    }
 
-        return null;
+    public @Nullable Integer shouldPreserve(ConfigSnapshot config, Player player, ItemStack stack, boolean skipRandom) {
+        return PreservationChain.get().howManyToKeep(config, player, stack, skipRandom);
     }
-}
\ No newline at end of file
+}
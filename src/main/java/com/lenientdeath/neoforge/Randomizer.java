@@ -1,6 +1,8 @@
 package com.lenientdeath.neoforge;
 
+import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Mth;
+import net.minecraft.util.RandomSource;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.Nullable;
@@ -8,41 +10,64 @@ import org.jetbrains.annotations.Nullable;
 /**
  * 随机保留器：对未被其他规则命中的物品，按基础概率 + 幸运修正随机判定保留数量。
  */
-public class Randomizer {
+public class Randomizer implements BuiltinPreservationRule {
     private Randomizer() {}
 
     public static final Randomizer INSTANCE = new Randomizer();
+    private static final ResourceLocation ID = ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "randomizer");
+
+    @Override
+    public ResourceLocation id() {
+        return ID;
+    }
+
+    @Override
+    public int priority() {
+        return 1000;
+    }
+
+    @Override
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, Player player, ItemStack stack) {
+        // 关闭时不给出结论，交给优先级更低的规则
+        if (!config.randomizerEnabled()) return null;
+        return howManyToKeep(config, stack, player);
+    }
+
+    @Override
+    public boolean isRandom() {
+        return true;
+    }
 
     /**
      * Get the chance that a player keeps an item, accounting for luck if needed.
+     * @param config Config snapshot for the current event
      * @param player Player to test
      * @return Float value from 0 to 1 that an item should be kept.
      */
-    public float getChanceToKeep(@Nullable Player player) {
-        var config = Config.COMMON;
-        if (!config.RANDOMIZER_ENABLED.get()) return 0f;
-        float chance = config.RANDOMIZER_CHANCE.get() / 100f;
+    public float getChanceToKeep(ConfigSnapshot config, @Nullable Player player) {
+        if (!config.randomizerEnabled()) return 0f;
+        float chance = config.randomizerChancePercent() / 100f;
         if (player == null) return chance;
 
         float luck = player.getLuck();
-        float luckAddFactor = config.LUCK_ADDITIVE.get() / 100f;
-        float luckMultiFactor = config.LUCK_MULTIPLIER.get().floatValue();
+        float luckAddFactor = config.luckAdditivePercent() / 100f;
+        float luckMultiFactor = (float) config.luckMultiplier();
 
         return Mth.clamp(chance * (1 + (luckMultiFactor * luck)) + (luckAddFactor * luck), 0f, 1f);
     }
 
-    public @Nullable Integer howManyToKeep(ItemStack stack, Player player) {
-        float chance = getChanceToKeep(player);
+    /**
+     * 按保留概率随机决定堆叠中保留的数量。
+     * <p>
+     * 等价于对每个物品独立掷骰，但通过 {@link BinomialSampler} 一次采样得到结果，开销与堆叠数量无关。
+     */
+    public @Nullable Integer howManyToKeep(ConfigSnapshot config, ItemStack stack, Player player) {
+        float chance = getChanceToKeep(config, player);
 
         if (chance == 1f) return stack.getCount();
         if (chance == 0f) return 0;
 
-        int keepCount = 0;
-        for (int i = 0; i < stack.getCount(); i++) {
-            if (player.getRandom().nextFloat() < chance) {
-                keepCount++;
-            }
-        }
-        return keepCount;
+        RandomSource random = player.getRandom();
+        return BinomialSampler.sample(stack.getCount(), chance, random::nextDouble);
     }
 }
\ No newline at end of file
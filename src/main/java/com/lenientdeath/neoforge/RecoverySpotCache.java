@@ -0,0 +1,186 @@
+package com.lenientdeath.neoforge;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按维度 + 区块段缓存恢复落点搜索的结果（"附近最近"），以及每个维度出生点附近的落点（"出生点附近"）。
+ * <p>
+ * 同一岩浆湖或虚空洞中连续掉落的物品只需要对缓存的落点重新校验，而不必再次搜索。附近搜索没有找到落点时也会缓存
+ * （{@link Entry#pos()} 为 {@code null}），直接改用出生点附近的缓存。缓存命中后总会在主线程重新校验落点，
+ * 所以失效只需要处理"可能出现了更近的落点"：方块被放置/破坏时，移除搜索范围可能覆盖该方块的所有区块段条目；
+ * 区块卸载时移除该区块内的条目。活塞、爆炸、流体、{@code /setblock} 等不触发这些事件的改动最多让缓存的落点不是最近的一个；
+ * "附近没有落点"的条目无法重新校验，只保留 {@value #NEGATIVE_TTL_TICKS} tick，过期后重新搜索，
+ * 这类改动产生的新落点最迟在过期后被发现。
+ * <p>
+ * 附近条目按访问顺序 LRU 淘汰。只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class RecoverySpotCache {
+    static final RecoverySpotCache INSTANCE = new RecoverySpotCache();
+
+    /** 最多缓存的区块段条目数。 */
+    static final int CAPACITY = 256;
+
+    /** 方块变化向外失效的区块段数：覆盖水平 16、垂直 20 格的搜索范围。 */
+    private static final int INVALIDATION_RADIUS = 2;
+
+    /** "附近没有落点"条目的有效期（游戏刻）。 */
+    static final int NEGATIVE_TTL_TICKS = 100;
+
+    /**
+     * 区块段的附近搜索结果。
+     *
+     * @param pos       落点，附近没有落点时为 {@code null}
+     * @param expiresAt {@code pos} 为 {@code null} 时的过期游戏刻，否则不使用
+     */
+    record Entry(BlockPos pos, long expiresAt) {}
+
+    private record Key(ResourceKey<Level> level, long section) {}
+
+    private record SpawnEntry(long section, BlockPos pos) {}
+
+    private final Map<Key, Entry> nearby = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() <= CAPACITY) return false;
+            evictions++;
+            return true;
+        }
+    };
+    private final Map<ResourceKey<Level>, SpawnEntry> spawn = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long expirations;
+
+    private RecoverySpotCache() {}
+
+    /** 以 {@code center} 为中心的附近搜索结果，没有缓存或"附近没有落点"已过期时返回 {@code null}。 */
+    Entry nearby(ServerLevel level, BlockPos center) {
+        Key key = new Key(level.dimension(), SectionPos.asLong(center));
+        Entry entry = nearby.get(key);
+        if (entry != null && entry.pos() == null && level.getGameTime() >= entry.expiresAt()) {
+            nearby.remove(key);
+            expirations++;
+            entry = null;
+        }
+        if (entry != null) hits++; else misses++;
+        return entry;
+    }
+
+    void putNearby(ServerLevel level, BlockPos center, BlockPos pos) {
+        long expiresAt = pos == null ? level.getGameTime() + NEGATIVE_TTL_TICKS : Long.MAX_VALUE;
+        nearby.put(new Key(level.dimension(), SectionPos.asLong(center)), new Entry(pos, expiresAt));
+    }
+
+    void invalidateNearby(ServerLevel level, BlockPos center) {
+        if (nearby.remove(new Key(level.dimension(), SectionPos.asLong(center))) != null) {
+            invalidations++;
+        }
+    }
+
+    /** 当前出生点附近的落点，没有缓存或出生点已移动时返回 {@code null}。 */
+    BlockPos spawn(ServerLevel level) {
+        BlockPos pos = peekSpawn(level);
+        if (pos != null) hits++; else misses++;
+        return pos;
+    }
+
+    /** 同 {@link #spawn}，但不计入命中统计（工作线程搜索前判断能否跳过出生点区域）。 */
+    BlockPos peekSpawn(ServerLevel level) {
+        SpawnEntry entry = spawn.get(level.dimension());
+        return entry != null && entry.section() == SectionPos.asLong(level.getSharedSpawnPos()) ? entry.pos() : null;
+    }
+
+    void putSpawn(ServerLevel level, BlockPos pos) {
+        spawn.put(level.dimension(), new SpawnEntry(SectionPos.asLong(level.getSharedSpawnPos()), pos));
+    }
+
+    void invalidateSpawn(ServerLevel level) {
+        if (spawn.remove(level.dimension()) != null) {
+            invalidations++;
+        }
+    }
+
+    /** 方块被放置或破坏：移除搜索范围可能覆盖该位置的条目。 */
+    void onBlockChanged(ServerLevel level, BlockPos pos) {
+        if (nearby.isEmpty() && spawn.isEmpty()) return;
+        ResourceKey<Level> dimension = level.dimension();
+        int sectionX = SectionPos.blockToSectionCoord(pos.getX());
+        int sectionY = SectionPos.blockToSectionCoord(pos.getY());
+        int sectionZ = SectionPos.blockToSectionCoord(pos.getZ());
+
+        if (!nearby.isEmpty()) {
+            for (int dx = -INVALIDATION_RADIUS; dx <= INVALIDATION_RADIUS; dx++) {
+                for (int dy = -INVALIDATION_RADIUS; dy <= INVALIDATION_RADIUS; dy++) {
+                    for (int dz = -INVALIDATION_RADIUS; dz <= INVALIDATION_RADIUS; dz++) {
+                        long section = SectionPos.asLong(sectionX + dx, sectionY + dy, sectionZ + dz);
+                        if (nearby.remove(new Key(dimension, section)) != null) {
+                            invalidations++;
+                        }
+                    }
+                }
+            }
+        }
+
+        SpawnEntry spawnEntry = spawn.get(dimension);
+        if (spawnEntry != null
+                && Math.abs(SectionPos.x(spawnEntry.section()) - sectionX) <= INVALIDATION_RADIUS
+                && Math.abs(SectionPos.y(spawnEntry.section()) - sectionY) <= INVALIDATION_RADIUS
+                && Math.abs(SectionPos.z(spawnEntry.section()) - sectionZ) <= INVALIDATION_RADIUS) {
+            spawn.remove(dimension);
+            invalidations++;
+        }
+    }
+
+    /** 区块卸载：移除该区块内所有区块段的条目。 */
+    void onChunkUnload(ServerLevel level, ChunkPos chunkPos) {
+        if (nearby.isEmpty() && spawn.isEmpty()) return;
+        ResourceKey<Level> dimension = level.dimension();
+        nearby.keySet().removeIf(key -> {
+            boolean unloaded = key.level() == dimension
+                    && SectionPos.x(key.section()) == chunkPos.x
+                    && SectionPos.z(key.section()) == chunkPos.z;
+            if (unloaded) invalidations++;
+            return unloaded;
+        });
+
+        SpawnEntry spawnEntry = spawn.get(dimension);
+        if (spawnEntry != null && SectionPos.x(spawnEntry.section()) == chunkPos.x && SectionPos.z(spawnEntry.section()) == chunkPos.z) {
+            spawn.remove(dimension);
+            invalidations++;
+        }
+    }
+
+    /** 维度卸载时丢弃该维度的全部条目。 */
+    void unload(ServerLevel level) {
+        ResourceKey<Level> dimension = level.dimension();
+        nearby.keySet().removeIf(key -> key.level() == dimension);
+        spawn.remove(dimension);
+    }
+
+    void clear() {
+        nearby.clear();
+        spawn.clear();
+    }
+
+    // ── 调试状态 ──
+
+    String getStats() {
+        long lookups = hits + misses;
+        String hitRate = lookups == 0 ? "n/a" : String.format("%.1f%%", hits * 100.0 / lookups);
+        return "entries=" + nearby.size() + ", spawnEntries=" + spawn.size() + ", hits=" + hits + ", misses=" + misses
+                + ", hitRate=" + hitRate + ", evictions=" + evictions + ", invalidations=" + invalidations + ", expirations=" + expirations;
+    }
+}
@@ -0,0 +1,84 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.level.Level;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 按维度维护的虚空/危险恢复候选掉落物。
+ * <p>
+ * 只收录可能需要恢复的 ItemEntity：死亡掉落物在加入世界时收录，{@code ALL_DROPS} 模式下所有掉落物都收录
+ * （切换到该模式时补录已加载的掉落物），离开世界时移除。{@link DeathEventHandler} 每个维度 tick 结束时遍历一次，
+ * 不再为农场等场景中成千上万的普通掉落物逐个分发实体 tick 事件。
+ * <p>
+ * 所有方法只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class RecoveryWatchlist {
+    private static final Map<ResourceKey<Level>, RecoveryWatchlist> WATCHLISTS = new ConcurrentHashMap<>();
+
+    private final Set<ItemEntity> items = new ReferenceLinkedOpenHashSet<>();
+
+    private RecoveryWatchlist() {}
+
+    static RecoveryWatchlist of(ServerLevel level) {
+        return WATCHLISTS.computeIfAbsent(level.dimension(), ignored -> new RecoveryWatchlist());
+    }
+
+    /** 维度卸载时丢弃整份列表。 */
+    static void unload(ServerLevel level) {
+        WATCHLISTS.remove(level.dimension());
+    }
+
+    /** 切换到 {@code ALL_DROPS} 模式：补录所有维度中已加载的掉落物。 */
+    static void watchAllLoadedItems(MinecraftServer server) {
+        for (ServerLevel level : server.getAllLevels()) {
+            RecoveryWatchlist watchlist = of(level);
+            for (Entity entity : level.getAllEntities()) {
+                if (entity instanceof ItemEntity item && item.isAlive()) {
+                    watchlist.add(item);
+                }
+            }
+        }
+    }
+
+    void add(ItemEntity item) {
+        items.add(item);
+    }
+
+    void remove(ItemEntity item) {
+        items.remove(item);
+    }
+
+    /**
+     * 处理列表中的每个掉落物；回调返回 {@code false} 的掉落物不再跟踪。
+     * 遍历的是副本，回调中恢复传送等操作触发的加入/离开事件不会影响本次遍历。
+     */
+    void process(Predicate<ItemEntity> keepWatching) {
+        if (items.isEmpty()) return;
+        for (ItemEntity item : items.toArray(new ItemEntity[0])) {
+            if (item.isRemoved() || !keepWatching.test(item)) {
+                items.remove(item);
+            }
+        }
+    }
+
+    // ── 调试状态 ──
+
+    static String getStats() {
+        int total = 0;
+        for (RecoveryWatchlist watchlist : WATCHLISTS.values()) {
+            total += watchlist.items.size();
+        }
+        return "levels=" + WATCHLISTS.size() + ", items=" + total;
+    }
+}
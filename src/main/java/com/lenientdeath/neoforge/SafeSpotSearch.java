@@ -0,0 +1,526 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.phys.Vec3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 在工作线程上搜索恢复落点（{@link DeathEventHandler} 恢复策略中的"附近最近"与"出生点附近"）。
+ * <p>
+ * 三维环形搜索最多检查数万个位置，放在主线程上会在稀疏区域的虚空死亡时造成明显卡顿。这里在主线程上
+ * 复制搜索范围内已加载区块段的方块容器（全空气的区块段不复制）与地表高度图，工作线程在副本上按列搜索；同一 tick 内位于同一区块段的
+ * 请求合并为一次搜索，物品附近与出生点附近两块区域并行搜索。等待期间掉落物固定在调用方给出的保持位置
+ * （每 tick 复位、速度清零），结果在之后的服务器 tick 取回，由主线程重新校验（包括实体碰撞）后传送。
+ * <p>
+ * 保持只记录在 {@link LenientItemState} 的运行时字段中，不修改会随实体保存的无重力、无敌标志；
+ * 等待期间区块卸载或存档时，掉落物以保持位置保存，重新加载后会再次触发恢复。
+ * <p>
+ * 副本只用于判断方块与流体；未加载的区块视为不可用。除工作线程内的 {@link #findNearest} 外，所有方法只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class SafeSpotSearch {
+    private static final Logger LOGGER = LoggerFactory.getLogger("LenientDeath/SafeSpotSearch");
+
+    static final SafeSpotSearch INSTANCE = new SafeSpotSearch();
+
+    /** 物品附近的水平搜索半径。 */
+    static final int NEARBY_RADIUS = 16;
+    /** 出生点附近的水平搜索半径。 */
+    static final int SPAWN_RADIUS = 8;
+    /** 垂直搜索范围（上下各此值）。 */
+    static final int VERTICAL_RANGE = 20;
+
+    private static final int WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 4));
+    private static final ForkJoinPool POOL = new ForkJoinPool(WORKERS, SafeSpotSearch::newWorker, null, true);
+
+    /** 一个等待恢复的掉落物及其触发原因。 */
+    record Request(ItemEntity item, String reason) {}
+
+    /**
+     * 一次搜索的结果。
+     *
+     * @param center 搜索中心（首个请求的掉落物位置）
+     * @param pos    找到的落点，找不到时为 {@code null}（由调用方回退到出生点）
+     * @param source 落点来源（{@code nearest_3d} / {@code spawn_nearest}）
+     */
+    record Result(ServerLevel level, BlockPos center, List<Request> requests, BlockPos pos, String source) {}
+
+    private record Found(BlockPos pos, String source) {}
+
+    /** 搜索区域：水平半径内、[minY, maxY] 之间的落脚位置。 */
+    record Area(BlockPos center, int radius, int minY, int maxY) {
+        static Area around(ServerLevel level, BlockPos center, int radius) {
+            return new Area(center, radius,
+                    Math.max(level.getMinBuildHeight() + 1, center.getY() - VERTICAL_RANGE),
+                    Math.min(level.getMaxBuildHeight() - 2, center.getY() + VERTICAL_RANGE));
+        }
+    }
+
+    private record GroupKey(ResourceKey<Level> level, long section) {}
+
+    private static final class Group {
+        final ServerLevel level;
+        final BlockPos center;
+        final List<Request> requests = new ArrayList<>();
+
+        Group(ServerLevel level, BlockPos center) {
+            this.level = level;
+            this.center = center;
+        }
+    }
+
+    private record Job(Group group, CompletableFuture<Found> future) {}
+
+    /** 正在等待搜索结果的掉落物，保持位置记录在各自的 {@link LenientItemState} 中。 */
+    private final Set<ItemEntity> held = new ReferenceLinkedOpenHashSet<>();
+    /** 本 tick 累积、尚未提交的请求。 */
+    private final Map<GroupKey, Group> open = new LinkedHashMap<>();
+    private final List<Job> inFlight = new ArrayList<>();
+
+    private long jobs;
+    private long requests;
+    private long copiedSections;
+    private long failed;
+    /** 工作线程累计读取的方块数。 */
+    private final AtomicLong blockReads = new AtomicLong();
+
+    private SafeSpotSearch() {}
+
+    /** 掉落物是否正在等待搜索结果。 */
+    boolean isPending(ItemEntity item) {
+        return held.contains(item);
+    }
+
+    /**
+     * 把掉落物固定在 {@code holdPos}，并在本 tick 结束时以掉落物当前位置为中心提交搜索。
+     *
+     * @param holdPos 等待期间的保持位置，应在世界底部丢弃高度之上
+     */
+    void request(ServerLevel level, ItemEntity item, String reason, Vec3 holdPos) {
+        if (!held.add(item)) return;
+        BlockPos center = item.blockPosition();
+        LenientItemState.of(item).setHoldPos(holdPos);
+        pin(item, holdPos);
+
+        open.computeIfAbsent(new GroupKey(level.dimension(), SectionPos.asLong(center)), ignored -> new Group(level, center))
+                .requests.add(new Request(item, reason));
+        requests++;
+    }
+
+    /** 结束保持（掉落物离开世界时调用，结果返回时跳过该掉落物）。 */
+    void release(ItemEntity item) {
+        if (held.remove(item)) {
+            LenientItemState.of(item).setHoldPos(null);
+        }
+    }
+
+    private static void pin(ItemEntity item, Vec3 holdPos) {
+        item.setPos(holdPos);
+        item.setDeltaMovement(Vec3.ZERO);
+        item.fallDistance = 0.0f;
+    }
+
+    /**
+     * 每个服务器 tick 调用：先应用已完成的搜索（结束保持后交给 {@code apply}），把仍在等待的掉落物复位到保持位置，
+     * 再提交本 tick 累积的请求。
+     */
+    void tick(Consumer<Result> apply) {
+        Iterator<Job> iterator = inFlight.iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            if (!job.future().isDone()) continue;
+            iterator.remove();
+
+            Found found;
+            try {
+                found = job.future().join();
+            } catch (RuntimeException e) {
+                LOGGER.error("Safe spot search failed", e);
+                failed++;
+                found = null;
+            }
+
+            List<Request> pending = new ArrayList<>(job.group().requests.size());
+            for (Request request : job.group().requests) {
+                if (held.contains(request.item())) {
+                    release(request.item());
+                    pending.add(request);
+                }
+            }
+            if (!pending.isEmpty()) {
+                apply.accept(new Result(job.group().level, job.group().center, pending,
+                        found != null ? found.pos() : null, found != null ? found.source() : null));
+            }
+        }
+
+        // 实体 tick 中的重力与移动在这里撤销，掉落物不会落到世界底部以下被丢弃
+        for (ItemEntity item : held) {
+            Vec3 holdPos = LenientItemState.of(item).holdPos();
+            if (holdPos != null) {
+                pin(item, holdPos);
+            }
+        }
+
+        for (Group group : open.values()) {
+            inFlight.add(new Job(group, submit(group)));
+        }
+        open.clear();
+    }
+
+    private CompletableFuture<Found> submit(Group group) {
+        jobs++;
+        ServerLevel level = group.level;
+        Area nearby = Area.around(level, group.center, NEARBY_RADIUS);
+        Area spawn = Area.around(level, level.getSharedSpawnPos(), SPAWN_RADIUS);
+        // 出生点附近的落点已缓存时不再复制与搜索出生点区域（应用结果时仍会重新校验）
+        BlockPos cachedSpawn = RecoverySpotCache.INSTANCE.peekSpawn(level);
+
+        SectionSnapshot snapshot = new SectionSnapshot(level.getMinBuildHeight(), level.getHeight());
+        copySections(level, nearby, snapshot);
+        if (cachedSpawn == null) {
+            copySections(level, spawn, snapshot);
+        }
+
+        CompletableFuture<BlockPos> nearbySearch = CompletableFuture.supplyAsync(() -> search(snapshot, nearby), POOL);
+        CompletableFuture<BlockPos> spawnSearch = cachedSpawn != null
+                ? CompletableFuture.completedFuture(cachedSpawn)
+                : CompletableFuture.supplyAsync(() -> search(snapshot, spawn), POOL);
+        return nearbySearch.thenCombine(spawnSearch, (nearest, spawnNearest) -> {
+            if (nearest != null) return new Found(nearest, "nearest_3d");
+            if (spawnNearest != null) return new Found(spawnNearest, "spawn_nearest");
+            return null;
+        });
+    }
+
+    /** 复制区域（含地板与头顶各一格）覆盖的已加载区块段与区块的地表高度图；全空气的区块段不复制方块。 */
+    private void copySections(ServerLevel level, Area area, SectionSnapshot snapshot) {
+        if (area.minY() > area.maxY()) return;
+        int minSectionY = SectionPos.blockToSectionCoord(area.minY() - 1);
+        int maxSectionY = SectionPos.blockToSectionCoord(area.maxY() + 1);
+        int minChunkX = SectionPos.blockToSectionCoord(area.center().getX() - area.radius());
+        int maxChunkX = SectionPos.blockToSectionCoord(area.center().getX() + area.radius());
+        int minChunkZ = SectionPos.blockToSectionCoord(area.center().getZ() - area.radius());
+        int maxChunkZ = SectionPos.blockToSectionCoord(area.center().getZ() + area.radius());
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(chunkX, chunkZ);
+                if (chunk == null) continue;
+                if (!snapshot.hasSurface(chunkX, chunkZ)) {
+                    int[] surface = new int[16 * 16];
+                    for (int localZ = 0; localZ < 16; localZ++) {
+                        for (int localX = 0; localX < 16; localX++) {
+                            surface[localZ * 16 + localX] = chunk.getHeight(Heightmap.Types.WORLD_SURFACE, localX, localZ);
+                        }
+                    }
+                    snapshot.putSurface(chunkX, chunkZ, surface);
+                }
+                for (int sectionY = minSectionY; sectionY <= maxSectionY; sectionY++) {
+                    int index = chunk.getSectionIndexFromSectionY(sectionY);
+                    if (snapshot.hasSection(chunkX, sectionY, chunkZ) || index < 0 || index >= chunk.getSectionsCount()) continue;
+                    LevelChunkSection section = chunk.getSection(index);
+                    if (section.hasOnlyAir()) {
+                        snapshot.putSection(chunkX, sectionY, chunkZ, null);
+                    } else {
+                        snapshot.putSection(chunkX, sectionY, chunkZ, section.getStates().copy());
+                        copiedSections++;
+                    }
+                }
+            }
+        }
+    }
+
+    private BlockPos search(SectionSnapshot snapshot, Area area) {
+        SearchResult result = findNearest(snapshot, area);
+        blockReads.addAndGet(result.blockReads());
+        return result.pos();
+    }
+
+    /**
+     * 在区域内搜索距离中心最近的落点。
+     * <p>
+     * 采用由中心向外扩展的环形搜索策略：每次仅检查当前半径 r 的外环列，当已找到安全点且其距离的平方 &lt; r² 时提前终止。
+     * 每一列按 |dy| 由近到远检查（同距离时先下后上），第一个可用位置即该列最优，距离不可能优于当前最优时停止；
+     * 列的上限取地表高度图（最高非空气方块之上一格），地板所在区块段没有可遮挡方块、或脚/头所在区块段没有空气时不读取方块。
+     */
+    static SearchResult findNearest(SectionSnapshot level, Area area) {
+        ColumnScan scan = new ColumnScan(level);
+        BlockPos center = area.center();
+        int centerY = center.getY();
+        BlockPos best = null;
+        long bestDistanceSq = Long.MAX_VALUE;
+
+        for (int r = 0; r <= area.radius(); r++) {
+            // 任何水平距离 >= r 的候选点不可能比当前最优更近
+            if (best != null && bestDistanceSq < (long) r * r) {
+                break;
+            }
+
+            for (int dx = -r; dx <= r; dx++) {
+                for (int dz = -r; dz <= r; dz++) {
+                    // 只检查半径 r 的外环边界（内部已在更小半径时检查过）
+                    if (r > 0 && Math.abs(dx) < r && Math.abs(dz) < r) continue;
+
+                    long horizontalSq = (long) dx * dx + (long) dz * dz;
+                    if (horizontalSq >= bestDistanceSq) continue;
+
+                    int x = center.getX() + dx;
+                    int z = center.getZ() + dz;
+                    int surface = level.surfaceAt(x, z);
+                    if (surface == SectionSnapshot.NOT_LOADED) continue;
+                    int minY = area.minY();
+                    int maxY = Math.min(area.maxY(), surface + 1);
+                    if (minY > maxY) continue;
+                    scan.loadColumn(x, z, minY - 1, maxY + 1);
+
+                    for (int dy = 0; ; dy++) {
+                        long distanceSq = horizontalSq + (long) dy * dy;
+                        if (distanceSq >= bestDistanceSq) break;
+                        int up = centerY + dy;
+                        int down = centerY - dy;
+                        if (up > maxY && down < minY) break;
+
+                        // 同距离时先检查下方，与逐格从低到高扫描时取最低位置的结果一致
+                        int found = Integer.MIN_VALUE;
+                        if (down >= minY && down <= maxY && scan.isOpen(x, down, z)) {
+                            found = down;
+                        } else if (dy > 0 && up >= minY && up <= maxY && scan.isOpen(x, up, z)) {
+                            found = up;
+                        }
+                        if (found != Integer.MIN_VALUE) {
+                            best = new BlockPos(x, found, z);
+                            bestDistanceSq = distanceSq;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return new SearchResult(best, scan.blockReads);
+    }
+
+    /**
+     * 方块层面的落点检查：实心地板 + 空气脚/头 + 无流体源。可用于世界或区块段副本。
+     *
+     * @param feetPos 物品将被放置的位置（地板上方的空气方块）
+     */
+    static boolean isOpenSpot(BlockGetter level, BlockPos feetPos) {
+        BlockPos floorPos = feetPos.below();
+        BlockPos headPos = feetPos.above();
+
+        BlockState floor = level.getBlockState(floorPos);
+        if (!floor.isSolidRender(level, floorPos)) {
+            return false;
+        }
+        if (!level.getBlockState(feetPos).isAir() || !level.getBlockState(headPos).isAir()) {
+            return false;
+        }
+        return !level.getFluidState(floorPos).isSource()
+                && !level.getFluidState(feetPos).isSource()
+                && !level.getFluidState(headPos).isSource();
+    }
+
+    /** 服务器关闭：结束所有保持（掉落物以保持位置保存），丢弃进行中的搜索。 */
+    void clear() {
+        for (ItemEntity item : new ArrayList<>(held)) {
+            release(item);
+        }
+        open.clear();
+        inFlight.clear();
+    }
+
+    // ── 调试状态 ──
+
+    String getStats() {
+        return "workers=" + WORKERS + ", jobs=" + jobs + ", requests=" + requests + ", inFlight=" + inFlight.size()
+                + ", held=" + held.size() + ", copiedSections=" + copiedSections + ", blockReads=" + blockReads.get()
+                + ", failed=" + failed;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("LenientDeath-SafeSpot-" + thread.getPoolIndex());
+        thread.setContextClassLoader(SafeSpotSearch.class.getClassLoader());
+        return thread;
+    }
+
+    /**
+     * 搜索结果。
+     *
+     * @param pos        最近的落点，找不到时为 {@code null}
+     * @param blockReads 从区块段容器读取的方块数
+     */
+    record SearchResult(BlockPos pos, long blockReads) {}
+
+    /**
+     * 复制的区块段及其调色板摘要。
+     *
+     * @param states   方块容器，全空气时为 {@code null}
+     * @param hasAir   是否可能含空气（可作为脚/头位置）
+     * @param hasFloor 是否可能含可遮挡的方块（实心渲染方块必然可遮挡，可作为地板）
+     */
+    record Section(PalettedContainer<BlockState> states, boolean hasAir, boolean hasFloor) {
+        static final Section ALL_AIR = new Section(null, true, false);
+
+        static Section of(PalettedContainer<BlockState> states) {
+            return states == null ? ALL_AIR : new Section(states, states.maybeHas(BlockState::isAir), states.maybeHas(BlockState::canOcclude));
+        }
+    }
+
+    /** 逐列检查时缓存当前列的区块段，并统计读取的方块数。 */
+    private static final class ColumnScan {
+        private final SectionSnapshot level;
+        private final BlockPos.MutableBlockPos floorPos = new BlockPos.MutableBlockPos();
+        private Section[] column = new Section[4];
+        private int columnMinSectionY;
+        long blockReads;
+
+        ColumnScan(SectionSnapshot level) {
+            this.level = level;
+        }
+
+        void loadColumn(int x, int z, int minY, int maxY) {
+            columnMinSectionY = SectionPos.blockToSectionCoord(minY);
+            int count = SectionPos.blockToSectionCoord(maxY) - columnMinSectionY + 1;
+            if (column.length < count) {
+                column = new Section[count];
+            }
+            int chunkX = SectionPos.blockToSectionCoord(x);
+            int chunkZ = SectionPos.blockToSectionCoord(z);
+            for (int i = 0; i < count; i++) {
+                column[i] = level.section(chunkX, columnMinSectionY + i, chunkZ);
+            }
+        }
+
+        /** 与 {@link #isOpenSpot} 等价：空气的流体状态为空，所以只需检查地板的流体。 */
+        boolean isOpen(int x, int y, int z) {
+            Section floor = sectionAt(y - 1);
+            Section feet = sectionAt(y);
+            Section head = sectionAt(y + 1);
+            if (floor == null || feet == null || head == null) return false;
+            if (!floor.hasFloor() || !feet.hasAir() || !head.hasAir()) return false;
+
+            if (!read(feet, x, y, z).isAir() || !read(head, x, y + 1, z).isAir()) return false;
+            BlockState floorState = read(floor, x, y - 1, z);
+            return floorState.isSolidRender(level, floorPos.set(x, y - 1, z)) && !floorState.getFluidState().isSource();
+        }
+
+        private Section sectionAt(int y) {
+            return column[SectionPos.blockToSectionCoord(y) - columnMinSectionY];
+        }
+
+        private BlockState read(Section section, int x, int y, int z) {
+            if (section.states() == null) return SectionSnapshot.AIR;
+            blockReads++;
+            return section.states().get(x & 15, y & 15, z & 15);
+        }
+    }
+
+    /** 区块段方块容器与地表高度图的只读副本；不在副本中的位置视为未加载（虚空空气）。 */
+    static final class SectionSnapshot implements BlockGetter {
+        /** {@link #surfaceAt} 的返回值：区块未加载。 */
+        static final int NOT_LOADED = Integer.MIN_VALUE;
+
+        private static final BlockState AIR = Blocks.AIR.defaultBlockState();
+        private static final BlockState UNLOADED = Blocks.VOID_AIR.defaultBlockState();
+
+        private final Long2ObjectMap<Section> sections = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectMap<int[]> surfaces = new Long2ObjectOpenHashMap<>();
+        private final int minBuildHeight;
+        private final int height;
+
+        SectionSnapshot(int minBuildHeight, int height) {
+            this.minBuildHeight = minBuildHeight;
+            this.height = height;
+        }
+
+        /** 写入区块段副本，{@code states} 为 {@code null} 表示全空气。 */
+        void putSection(int sectionX, int sectionY, int sectionZ, PalettedContainer<BlockState> states) {
+            sections.put(SectionPos.asLong(sectionX, sectionY, sectionZ), Section.of(states));
+        }
+
+        boolean hasSection(int sectionX, int sectionY, int sectionZ) {
+            return sections.containsKey(SectionPos.asLong(sectionX, sectionY, sectionZ));
+        }
+
+        /** 写入区块的地表高度（每列最高非空气方块的 y，按 {@code z * 16 + x} 排列）。 */
+        void putSurface(int chunkX, int chunkZ, int[] surface) {
+            surfaces.put(ChunkPos.asLong(chunkX, chunkZ), surface);
+        }
+
+        boolean hasSurface(int chunkX, int chunkZ) {
+            return surfaces.containsKey(ChunkPos.asLong(chunkX, chunkZ));
+        }
+
+        /** 列的最高非空气方块 y，区块未加载时为 {@link #NOT_LOADED}。 */
+        int surfaceAt(int x, int z) {
+            int[] surface = surfaces.get(ChunkPos.asLong(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(z)));
+            return surface == null ? NOT_LOADED : surface[(z & 15) * 16 + (x & 15)];
+        }
+
+        /** 区块段副本，未加载时为 {@code null}。 */
+        Section section(int sectionX, int sectionY, int sectionZ) {
+            return sections.get(SectionPos.asLong(sectionX, sectionY, sectionZ));
+        }
+
+        @Override
+        public BlockState getBlockState(BlockPos pos) {
+            Section section = section(SectionPos.blockToSectionCoord(pos.getX()),
+                    SectionPos.blockToSectionCoord(pos.getY()), SectionPos.blockToSectionCoord(pos.getZ()));
+            if (section == null) return UNLOADED;
+            if (section.states() == null) return AIR;
+            return section.states().get(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos) {
+            return getBlockState(pos).getFluidState();
+        }
+
+        @Override
+        public BlockEntity getBlockEntity(BlockPos pos) {
+            return null;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinBuildHeight() {
+            return minBuildHeight;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.lenientdeath.neoforge;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.core.RegistryAccess;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundSetPlayerTeamPacket;
+import net.minecraft.network.syncher.EntityDataSerializers;
+import net.minecraft.network.syncher.SynchedEntityData;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 同一 tick 内在观察者之间共享的高亮数据包。
+ * <p>
+ * 同一可见性类别（同队伍）的观察者在同一 tick 收到的发光标志包与队伍成员包内容完全相同：
+ * 发光包只由实体 ID 与标志字节决定，队伍成员包只由队伍、操作与成员列表决定。这里按内容缓存，
+ * 每种包只构造一次，同一个不可变实例放进每个观察者的 bundle。
+ * <p>
+ * 原版连接在各自的 netty 管线中编码、压缩和加密，已编码的字节无法跨连接复用；共享的是包对象的构造，
+ * 字节统计用于估算：{@code uniqueBytes} 是每个不同的包编码一次的大小之和，{@code deliveredBytes}
+ * 是按接收者累计的未压缩大小。统计需要额外编码一次，只在开启 {@link #setByteStatsEnabled 字节统计}时进行。
+ * 缓存每 tick 清空。只在服务端主线程调用。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class SharedGlowPackets {
+    static final SharedGlowPackets INSTANCE = new SharedGlowPackets();
+
+    private record TeamKey(String team, int method, List<String> members) {}
+
+    /** (实体 ID, 标志字节) → 发光标志包。 */
+    private final Long2ObjectMap<ClientboundSetEntityDataPacket> glowPackets = new Long2ObjectOpenHashMap<>();
+    private final Map<TeamKey, ClientboundSetPlayerTeamPacket> teamPackets = new HashMap<>();
+    /** 本 tick 构造的包 → 编码后大小。 */
+    private final Reference2IntMap<Packet<?>> encodedSizes = new Reference2IntOpenHashMap<>();
+
+    /** 是否统计编码字节数（运行时开关，不保存到配置）。 */
+    private volatile boolean byteStatsEnabled = false;
+
+    private long built;
+    private long delivered;
+    private long uniqueBytes;
+    private long deliveredBytes;
+
+    private SharedGlowPackets() {}
+
+    /** 每个服务器 tick 开始时丢弃上一 tick 的包。 */
+    void beginTick() {
+        glowPackets.clear();
+        teamPackets.clear();
+        encodedSizes.clear();
+    }
+
+    /** 把实体共享标志设为 {@code flags} 的数据包。 */
+    ClientboundSetEntityDataPacket glow(int entityId, int dataId, byte flags, RegistryAccess registryAccess) {
+        long key = ((long) entityId << 8) | (flags & 0xFF);
+        ClientboundSetEntityDataPacket packet = glowPackets.get(key);
+        if (packet == null) {
+            packet = new ClientboundSetEntityDataPacket(entityId, List.of(
+                    new SynchedEntityData.DataValue<>(dataId, EntityDataSerializers.BYTE, flags)));
+            glowPackets.put(key, packet);
+            built(packet, ClientboundSetEntityDataPacket.STREAM_CODEC, registryAccess);
+        }
+        delivered(packet);
+        return packet;
+    }
+
+    /**
+     * 队伍成员加入/离开包。
+     *
+     * @param factory 缓存未命中时构造数据包，返回 {@code null} 表示无法构造（不缓存）
+     */
+    ClientboundSetPlayerTeamPacket teamMembers(String team, int method, List<String> members, RegistryAccess registryAccess,
+                                               Supplier<ClientboundSetPlayerTeamPacket> factory) {
+        TeamKey key = new TeamKey(team, method, members);
+        ClientboundSetPlayerTeamPacket packet = teamPackets.get(key);
+        if (packet == null) {
+            packet = factory.get();
+            if (packet == null) return null;
+            teamPackets.put(new TeamKey(team, method, List.copyOf(members)), packet);
+            built(packet, ClientboundSetPlayerTeamPacket.STREAM_CODEC, registryAccess);
+        }
+        delivered(packet);
+        return packet;
+    }
+
+    private <T extends Packet<?>> void built(T packet, StreamCodec<? super RegistryFriendlyByteBuf, T> codec, RegistryAccess registryAccess) {
+        built++;
+        if (!byteStatsEnabled) return;
+        RegistryFriendlyByteBuf buffer = new RegistryFriendlyByteBuf(Unpooled.buffer(), registryAccess);
+        try {
+            codec.encode(buffer, packet);
+            int size = buffer.readableBytes();
+            encodedSizes.put(packet, size);
+            uniqueBytes += size;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void delivered(Packet<?> packet) {
+        delivered++;
+        // 开关在 tick 中途打开时，本 tick 已缓存的包没有大小记录，计为 0
+        if (byteStatsEnabled) deliveredBytes += encodedSizes.getInt(packet);
+    }
+
+    // ── 调试状态 ──
+
+    boolean isByteStatsEnabled() {
+        return byteStatsEnabled;
+    }
+
+    void setByteStatsEnabled(boolean enabled) {
+        byteStatsEnabled = enabled;
+    }
+
+    String getStats() {
+        String stats = "built=" + built + ", delivered=" + delivered;
+        if (!byteStatsEnabled) return stats + ", bytes=off";
+        return stats + ", uniqueBytes=" + uniqueBytes + ", deliveredBytes=" + deliveredBytes;
+    }
+}
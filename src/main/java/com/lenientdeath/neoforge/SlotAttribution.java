@@ -0,0 +1,108 @@
+package com.lenientdeath.neoforge;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 死亡掉落物的原始槽位归属（用于拾取时还原槽位）。
+ * <p>
+ * 死亡瞬间只记录背包中各堆叠的引用，不做复制：原版 {@code Inventory.dropAll} 会把槽位中的堆叠实例
+ * 直接交给掉落物，因此掉落时绝大多数堆叠按引用 O(1) 命中。
+ * 其他模组替换了堆叠实例时，按物品 + 组件指纹索引查找同物品同组件的未认领槽位；
+ * 被替换的原实例已离开背包、不会再被修改，可以直接用于比较。指纹索引在首次未命中时才构建。
+ */
+@SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
+final class SlotAttribution {
+    private static final LongAdder IDENTITY_HITS = new LongAdder();
+    private static final LongAdder FINGERPRINT_HITS = new LongAdder();
+    private static final LongAdder UNMATCHED = new LongAdder();
+
+    /** 槽位 → 死亡时的堆叠引用（空槽为 {@code null}）。 */
+    private final ItemStack[] stacks;
+    private final Map<ItemStack, Integer> slotsByIdentity;
+    private final boolean[] claimed;
+    /** 指纹 → 候选槽位（升序），首次引用未命中时构建。 */
+    private @Nullable Int2ObjectMap<IntArrayList> slotsByFingerprint;
+
+    private SlotAttribution(ItemStack[] stacks, Map<ItemStack, Integer> slotsByIdentity) {
+        this.stacks = stacks;
+        this.slotsByIdentity = slotsByIdentity;
+        this.claimed = new boolean[stacks.length];
+    }
+
+    /** 记录背包中所有非空堆叠的引用。 */
+    static SlotAttribution capture(Inventory inventory) {
+        int size = inventory.getContainerSize();
+        ItemStack[] stacks = new ItemStack[size];
+        Map<ItemStack, Integer> slotsByIdentity = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = inventory.getItem(i);
+            if (!stack.isEmpty()) {
+                stacks[i] = stack;
+                slotsByIdentity.put(stack, i);
+            }
+        }
+        return new SlotAttribution(stacks, slotsByIdentity);
+    }
+
+    /**
+     * 为掉落的堆叠认领原始槽位。每个槽位只能被认领一次。
+     *
+     * @return 槽位下标，未匹配时返回 -1
+     */
+    int claim(ItemStack drop) {
+        Integer slot = slotsByIdentity.get(drop);
+        if (slot != null && !claimed[slot]) {
+            claimed[slot] = true;
+            IDENTITY_HITS.increment();
+            return slot;
+        }
+
+        int matched = claimByFingerprint(drop);
+        if (matched >= 0) {
+            FINGERPRINT_HITS.increment();
+        } else {
+            UNMATCHED.increment();
+        }
+        return matched;
+    }
+
+    private int claimByFingerprint(ItemStack drop) {
+        if (slotsByFingerprint == null) {
+            slotsByFingerprint = buildFingerprintIndex();
+        }
+        IntArrayList candidates = slotsByFingerprint.get(ItemStack.hashItemAndComponents(drop));
+        if (candidates == null) return -1;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            int slot = candidates.getInt(i);
+            if (!claimed[slot] && ItemStack.isSameItemSameComponents(stacks[slot], drop)) {
+                claimed[slot] = true;
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private Int2ObjectMap<IntArrayList> buildFingerprintIndex() {
+        Int2ObjectMap<IntArrayList> index = new Int2ObjectOpenHashMap<>();
+        for (int slot = 0; slot < stacks.length; slot++) {
+            if (stacks[slot] == null || claimed[slot]) continue;
+            index.computeIfAbsent(ItemStack.hashItemAndComponents(stacks[slot]), key -> new IntArrayList()).add(slot);
+        }
+        return index;
+    }
+
+    /** 累计匹配统计（供调试命令显示）。 */
+    static String getStats() {
+        return "identity=" + IDENTITY_HITS.sum() + ", fingerprint=" + FINGERPRINT_HITS.sum() + ", unmatched=" + UNMATCHED.sum();
+    }
+}
@@ -0,0 +1,151 @@
+package com.lenientdeath.neoforge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮：按 tick 调度到期事件，插入、取消均为 O(1)，推进一个 tick 的开销只与到期和级联的条目数有关。
+ * <p>
+ * 共 {@value #LEVELS} 层，每层 {@value #SLOTS} 个槽位：第 0 层每槽 1 tick，第 n 层每槽 64ⁿ tick，
+ * 可直接表示约 64⁴ tick（约 9.7 天）以内的到期时间；更远的条目先放在最高层，级联时重新计算。
+ * 高层槽位在其覆盖区间开始时整体下放到低层。
+ * <p>
+ * 每个键最多对应一个条目，重复调度会替换旧条目（旧条目惰性删除）。非线程安全。
+ *
+ * @param <K> 键类型，按 {@code equals}/{@code hashCode} 区分
+ */
+final class TimingWheel<K> {
+    static final int LEVELS = 4;
+    static final int SLOTS = 64;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+    /** 可直接表示的最大延迟（tick）。 */
+    static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private static final class Entry<K> {
+        final K key;
+        final long deadline;
+        boolean cancelled;
+
+        Entry(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+    private final List<List<Entry<K>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private long current;
+
+    /** @param startTick 当前 tick，之后的 {@link #advance} 从下一 tick 开始推进 */
+    TimingWheel(long startTick) {
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.current = startTick;
+    }
+
+    /**
+     * 在指定 tick 触发键；已到期或早于下一 tick 的时间按下一 tick 处理。
+     * 已调度的同一键会被替换。
+     */
+    void schedule(K key, long deadline) {
+        cancel(key);
+        Entry<K> entry = new Entry<>(key, Math.max(deadline, current + 1));
+        entries.put(key, entry);
+        insert(entry);
+    }
+
+    /** 取消键的调度，返回是否存在。 */
+    boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) return false;
+        entry.cancelled = true;
+        return true;
+    }
+
+    boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long currentTick() {
+        return current;
+    }
+
+    /**
+     * 推进到指定 tick（含），按到期顺序回调到期的键。回调中可以重新调度（包括同一键）。
+     */
+    void advance(long now, Consumer<K> expired) {
+        while (current < now) {
+            current++;
+            cascade();
+            List<Entry<K>> slot = slot(0, (int) (current & SLOT_MASK));
+            if (slot.isEmpty()) continue;
+
+            // 先取出：回调中的重新调度不会落回正在遍历的槽位
+            List<Entry<K>> due = new ArrayList<>(slot);
+            slot.clear();
+            for (Entry<K> entry : due) {
+                if (entry.cancelled) continue;
+                if (entry.deadline > current) {
+                    insert(entry);
+                    continue;
+                }
+                entries.remove(entry.key);
+                expired.accept(entry.key);
+            }
+        }
+    }
+
+    /** 当前 tick 位于高层槽位边界时，把对应槽位下放到低层（先高后低）。 */
+    private void cascade() {
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            long unitMask = (1L << (SLOT_BITS * level)) - 1;
+            if ((current & unitMask) != 0) continue;
+
+            List<Entry<K>> slot = slot(level, (int) ((current >>> (SLOT_BITS * level)) & SLOT_MASK));
+            if (slot.isEmpty()) continue;
+            List<Entry<K>> moved = new ArrayList<>(slot);
+            slot.clear();
+            for (Entry<K> entry : moved) {
+                if (!entry.cancelled) insert(entry);
+            }
+        }
+    }
+
+    private void insert(Entry<K> entry) {
+        long delay = entry.deadline - current;
+        if (delay < SLOTS) {
+            // delay 为 0 只发生在级联时，落在即将处理的当前槽位
+            slot(0, (int) (entry.deadline & SLOT_MASK)).add(entry);
+            return;
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            if (delay < 1L << (SLOT_BITS * (level + 1))) {
+                slot(level, (int) ((entry.deadline >>> (SLOT_BITS * level)) & SLOT_MASK)).add(entry);
+                return;
+            }
+        }
+        // 超出表示范围：放在最高层最远的槽位，级联时重新计算
+        long parked = current + SPAN - 1;
+        slot(LEVELS - 1, (int) ((parked >>> (SLOT_BITS * (LEVELS - 1))) & SLOT_MASK)).add(entry);
+    }
+
+    private List<Entry<K>> slot(int level, int index) {
+        return slots.get(level * SLOTS + index);
+    }
+
+    void clear() {
+        for (List<Entry<K>> slot : slots) {
+            slot.clear();
+        }
+        entries.clear();
+    }
+}
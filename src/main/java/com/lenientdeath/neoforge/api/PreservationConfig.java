@@ -0,0 +1,25 @@
+package com.lenientdeath.neoforge.api;
+
+import java.util.List;
+
+/**
+ * 规则判定时可读取的配置：本次死亡事件使用的配置快照的只读视图。
+ * <p>
+ * 只包含其他规则可能需要配合的保留相关设置；同一次死亡事件中的所有规则看到同一份值。
+ */
+public interface PreservationConfig {
+    /** 随机保留是否开启。关闭时内置随机规则不给出结论，交给优先级更低的规则。 */
+    boolean randomizerEnabled();
+
+    /** 随机保留的基础概率（百分比，未计入幸运修正）。 */
+    int randomizerChancePercent();
+
+    /** 按自定义数据键保留（灵魂绑定等）是否开启。 */
+    boolean nbtEnabled();
+
+    /** 视为保留标记的自定义数据键名（已去重，不含空白项）。 */
+    List<String> nbtKeys();
+
+    /** 按物品类型保留是否开启。 */
+    boolean byItemTypeEnabled();
+}
@@ -0,0 +1,76 @@
+package com.lenientdeath.neoforge.api;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 死亡物品保留规则。
+ * <p>
+ * 规则通过 {@link PreservationRules#register(PreservationRule)} 注册，按 {@link #priority()} 升序组成规则链；
+ * 死亡时对每个堆叠依次询问，第一个给出结论的规则决定保留数量。
+ * <p>
+ * 结论只取决于 {@link Item} 的规则应覆盖 {@link #isItemStatic()} 与 {@link #shouldKeepItem}：
+ * 相邻的此类规则会在配置加载和标签重载时预编译为按物品注册表 ID 索引的决策表，死亡时只需一次数组读取。
+ * <p>
+ * 一次死亡的全部掉落物会按物品 + 组件分组，非随机规则对同组且数量相同的堆叠只调用一次，结论复用于这些堆叠；
+ * 数量不同的堆叠重新判定，因此结论可以与数量有关。
+ * <p>
+ * 内置规则的优先级：
+ * <ul>
+ *   <li>{@code lenientdeath:nbt} = 100</li>
+ *   <li>{@code lenientdeath:datapack_tags} = 150</li>
+ *   <li>{@code lenientdeath:manual_lists} = 200</li>
+ *   <li>{@code lenientdeath:item_type} = 300</li>
+ *   <li>{@code lenientdeath:randomizer} = 1000（随机保留关闭时不给出结论）</li>
+ * </ul>
+ */
+public interface PreservationRule {
+    /** 规则唯一 ID。 */
+    ResourceLocation id();
+
+    /** 执行顺序，数值越小越先执行；相同优先级按 ID 排序。 */
+    int priority();
+
+    /**
+     * 按堆叠判定保留数量。
+     *
+     * @param config 本次死亡事件使用的配置（只读视图）
+     * @param player 死亡的玩家
+     * @param stack  待判定的堆叠（只读）
+     * @return 保留数量（0 ~ 堆叠数量），{@code null} 表示未命中，交给后续规则
+     */
+    @Nullable Integer howManyToKeep(PreservationConfig config, Player player, ItemStack stack);
+
+    /**
+     * 结论是否只取决于物品本身。为 {@code true} 时规则可被预编译，
+     * 死亡时不再调用 {@link #howManyToKeep}（除非 {@link #needsStackCheck} 返回 {@code true}）。
+     */
+    default boolean isItemStatic() {
+        return false;
+    }
+
+    /**
+     * 按物品给出结论，仅在 {@link #isItemStatic()} 为 {@code true} 时于预编译阶段调用。
+     *
+     * @return {@code true} 全部保留，{@code false} 全部掉落，{@code null} 未命中
+     */
+    default @Nullable Boolean shouldKeepItem(PreservationConfig config, Item item) {
+        return null;
+    }
+
+    /**
+     * 该堆叠的结论是否可能与物品默认实例不同（例如由组件决定）。
+     * 返回 {@code true} 时跳过预编译结论，对该堆叠调用 {@link #howManyToKeep}。
+     */
+    default boolean needsStackCheck(ItemStack stack) {
+        return false;
+    }
+
+    /** 是否为随机规则：只需确定性结论的调用方会跳过随机规则。 */
+    default boolean isRandom() {
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package com.lenientdeath.neoforge.api;
+
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link PreservationRule} 注册表。
+ * <p>
+ * 其他模组可在构造或通用初始化阶段注册规则；注册表变化后，规则链会在下一次使用时重新编译。
+ * 数据包可通过 {@code lenientdeath:always_preserved} / {@code lenientdeath:always_dropped} 物品标签参与判定。
+ */
+public final class PreservationRules {
+    private PreservationRules() {}
+
+    private static final Map<ResourceLocation, PreservationRule> RULES = new LinkedHashMap<>();
+    /** 注册表版本号，每次变化递增，用于判断规则链是否需要重新编译。 */
+    private static volatile int version;
+
+    /**
+     * 注册规则。
+     *
+     * @throws IllegalArgumentException 已存在相同 ID 的规则
+     */
+    public static synchronized void register(PreservationRule rule) {
+        if (RULES.containsKey(rule.id())) {
+            throw new IllegalArgumentException("Duplicate preservation rule: " + rule.id());
+        }
+        RULES.put(rule.id(), rule);
+        version++;
+    }
+
+    /**
+     * 移除规则（例如替换内置规则）。
+     *
+     * @return 是否存在并已移除
+     */
+    public static synchronized boolean unregister(ResourceLocation id) {
+        boolean removed = RULES.remove(id) != null;
+        if (removed) version++;
+        return removed;
+    }
+
+    /** 按执行顺序排列的当前规则。 */
+    public static synchronized List<PreservationRule> getRules() {
+        List<PreservationRule> rules = new ArrayList<>(RULES.values());
+        rules.sort(Comparator.comparingInt(PreservationRule::priority)
+                .thenComparing(rule -> rule.id().toString()));
+        return rules;
+    }
+
+    public static int getVersion() {
+        return version;
+    }
+}
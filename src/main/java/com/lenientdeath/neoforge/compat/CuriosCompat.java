@@ -1,27 +1,111 @@
 package com.lenientdeath.neoforge.compat;
 
+import com.lenientdeath.neoforge.LenientDeathNeoForge;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.neoforged.fml.ModList;
 import top.theillusivec4.curios.api.CuriosCapability;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Curios 模组兼容层：检测物品是否为 Curios 饰品。
+ * <p>
+ * Curios 的 ITEM Capability 绝大多数由物品本身（{@code ICurioItem} 或饰品槽标签）决定，
+ * 因此按物品注册表 ID 缓存默认实例的查询结果，标签重载时清空。
+ * 只有列在 {@link #STACK_SENSITIVE} 标签中、且带有组件改动的堆叠才逐堆叠查询 Capability。
  */
 @SuppressWarnings("null") // Minecraft API 的 @Nullable 注解误报
 public class CuriosCompat {
     private CuriosCompat() {}
 
+    /** 饰品判定依赖堆叠组件的物品（默认为空，由数据包/整合包按需填写）。 */
+    public static final TagKey<Item> STACK_SENSITIVE = TagKey.create(Registries.ITEM,
+            ResourceLocation.fromNamespaceAndPath(LenientDeathNeoForge.MODID, "stack_sensitive_curios"));
+
+    private static final byte UNKNOWN = 0;
+    private static final byte NOT_CURIO = 1;
+    private static final byte CURIO = 2;
+
+    /** Curios 是否已加载，在 {@link #setup()} 中解析一次。 */
+    private static volatile boolean loaded;
+    /** 注册表 ID → 饰品判定缓存；并发写入的值相同，无需加锁。 */
+    private static volatile byte[] cache = new byte[0];
+
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    private static final LongAdder CACHE_MISSES = new LongAdder();
+    private static final LongAdder STACK_LOOKUPS = new LongAdder();
+
+    /** 解析 Curios 是否加载。在通用初始化阶段调用。 */
+    public static void setup() {
+        loaded = ModList.get().isLoaded("curios");
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
     /**
      * 检查物品是否拥有 Curios ITEM Capability。
      * <p>
      * 内部已做模组加载检查，可安全调用。
      */
     public static boolean isCurio(ItemStack stack) {
-        if (!ModList.get().isLoaded("curios")) return false;
-        return stack.getCapability(CuriosCapability.ITEM) != null;
+        if (!loaded) return false;
+
+        if (isStackSensitive(stack)) {
+            STACK_LOOKUPS.increment();
+            return stack.getCapability(CuriosCapability.ITEM) != null;
+        }
+
+        Item item = stack.getItem();
+        int id = BuiltInRegistries.ITEM.getId(item);
+        byte[] table = cache;
+        if (id < 0) {
+            STACK_LOOKUPS.increment();
+            return stack.getCapability(CuriosCapability.ITEM) != null;
+        }
+        if (id >= table.length) {
+            table = grow(id);
+        }
+
+        byte cached = table[id];
+        if (cached != UNKNOWN) {
+            CACHE_HITS.increment();
+            return cached == CURIO;
+        }
+
+        CACHE_MISSES.increment();
+        boolean curio = item.getDefaultInstance().getCapability(CuriosCapability.ITEM) != null;
+        table[id] = curio ? CURIO : NOT_CURIO;
+        return curio;
     }
 
-    /** 预留扩展入口：当前 Curios API 无额外注册需求。 */
-    public static void setup() {
+    /** 该堆叠的饰品判定是否需要逐堆叠查询（物品在 {@link #STACK_SENSITIVE} 中且带组件改动）。 */
+    public static boolean isStackSensitive(ItemStack stack) {
+        return loaded && !stack.isComponentsPatchEmpty() && stack.is(STACK_SENSITIVE);
+    }
+
+    /** 清空按物品缓存（标签重载后饰品槽标签可能变化）。 */
+    public static void invalidate() {
+        cache = new byte[BuiltInRegistries.ITEM.size()];
+    }
+
+    /** 缓存统计（供调试命令显示）：命中、未命中、逐堆叠查询次数。 */
+    public static String getCacheStats() {
+        return "hits=" + CACHE_HITS.sum() + ", misses=" + CACHE_MISSES.sum() + ", stackLookups=" + STACK_LOOKUPS.sum();
+    }
+
+    private static synchronized byte[] grow(int id) {
+        byte[] table = cache;
+        if (id < table.length) return table;
+        byte[] next = new byte[Math.max(id + 1, BuiltInRegistries.ITEM.size())];
+        System.arraycopy(table, 0, next, 0, table.length);
+        cache = next;
+        return next;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,208 @@
+package com.lenientdeath.neoforge;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link BinomialSampler} 的统计检验：对逆变换法与 BTPE 两个分支分别做卡方拟合优度检验，
+ * 并与原先逐个掷骰的循环做同分布检验。所有随机源使用固定种子，结果可复现。
+ */
+public class BinomialSamplerTest {
+
+    private static final int SAMPLES = 200_000;
+    /** 标准正态分布 0.999 分位数，用于卡方临界值的 Wilson–Hilferty 近似。 */
+    private static final double Z_999 = 3.090232;
+
+    @Test
+    public void testDegenerateParameters() {
+        SplittableRandom random = new SplittableRandom(1L);
+        assertEquals(0, BinomialSampler.sample(0, 0.5, random::nextDouble));
+        assertEquals(0, BinomialSampler.sample(-3, 0.5, random::nextDouble));
+        assertEquals(0, BinomialSampler.sample(64, 0.0, random::nextDouble));
+        assertEquals(0, BinomialSampler.sample(64, -0.1, random::nextDouble));
+        assertEquals(0, BinomialSampler.sample(64, Double.NaN, random::nextDouble));
+        assertEquals(64, BinomialSampler.sample(64, 1.0, random::nextDouble));
+        assertEquals(64, BinomialSampler.sample(64, 1.5, random::nextDouble));
+    }
+
+    @Test
+    public void testResultStaysInRange() {
+        SplittableRandom random = new SplittableRandom(2L);
+        int[] counts = {1, 2, 16, 64, 99, 1000, 65_536};
+        double[] chances = {0.001, 0.05, 0.25, 0.5, 0.75, 0.95, 0.999};
+        for (int n : counts) {
+            for (double p : chances) {
+                for (int i = 0; i < 2_000; i++) {
+                    int x = BinomialSampler.sample(n, p, random::nextDouble);
+                    assertTrue(x >= 0 && x <= n, "n=" + n + " p=" + p + " x=" + x);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInversionMatchesBinomialPmf() {
+        // n·p < 30：逆变换法
+        assertFitsBinomial(1, 0.3, 11L);
+        assertFitsBinomial(16, 0.5, 12L);
+        assertFitsBinomial(64, 0.25, 13L);
+        assertFitsBinomial(64, 0.9, 14L);
+        assertFitsBinomial(1000, 0.01, 15L);
+    }
+
+    @Test
+    public void testBtpeMatchesBinomialPmf() {
+        // n·p >= 30：BTPE
+        assertFitsBinomial(64, 0.5, 21L);
+        assertFitsBinomial(200, 0.3, 22L);
+        assertFitsBinomial(1000, 0.05, 23L);
+        assertFitsBinomial(5000, 0.9, 24L);
+        assertFitsBinomial(100_000, 0.42, 25L);
+    }
+
+    @Test
+    public void testMeanAndVariance() {
+        int[] counts = {64, 1000, 50_000};
+        double[] chances = {0.1, 0.5, 0.8};
+        long seed = 31L;
+        for (int n : counts) {
+            for (double p : chances) {
+                SplittableRandom random = new SplittableRandom(seed++);
+                double sum = 0, sumSq = 0;
+                for (int i = 0; i < SAMPLES; i++) {
+                    int x = BinomialSampler.sample(n, p, random::nextDouble);
+                    sum += x;
+                    sumSq += (double) x * x;
+                }
+                double mean = sum / SAMPLES;
+                double variance = sumSq / SAMPLES - mean * mean;
+                double expectedMean = n * p;
+                double expectedVariance = n * p * (1 - p);
+
+                // 均值误差 < 5 个标准误；方差相对误差 < 3%
+                double meanTolerance = 5 * Math.sqrt(expectedVariance / SAMPLES);
+                assertEquals(expectedMean, mean, meanTolerance, "mean n=" + n + " p=" + p);
+                assertEquals(expectedVariance, variance, expectedVariance * 0.03, "variance n=" + n + " p=" + p);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesPerItemLoop() {
+        // 与原实现（每个物品一次 nextFloat）做两样本同分布检验
+        assertMatchesLoop(64, 0.3f, 41L);
+        assertMatchesLoop(64, 0.75f, 42L);
+        assertMatchesLoop(512, 0.5f, 43L);
+    }
+
+    // ── 辅助方法 ──
+
+    private static void assertFitsBinomial(int n, double p, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] observed = new long[n + 1];
+        for (int i = 0; i < SAMPLES; i++) {
+            observed[BinomialSampler.sample(n, p, random::nextDouble)]++;
+        }
+
+        double[] pmf = binomialPmf(n, p);
+        double[] tail = suffixSums(pmf);
+        // 合并期望频数过小的区间，保证每格期望频数 >= 5
+        double chiSquare = 0;
+        int bins = 0;
+        double expectedAcc = 0, observedAcc = 0;
+        for (int k = 0; k <= n; k++) {
+            expectedAcc += pmf[k] * SAMPLES;
+            observedAcc += observed[k];
+            if (expectedAcc >= 5 && tail[k + 1] * SAMPLES >= 5) {
+                chiSquare += sq(observedAcc - expectedAcc) / expectedAcc;
+                bins++;
+                expectedAcc = 0;
+                observedAcc = 0;
+            }
+        }
+        if (expectedAcc > 0) {
+            chiSquare += sq(observedAcc - expectedAcc) / expectedAcc;
+            bins++;
+        }
+
+        int df = Math.max(1, bins - 1);
+        double critical = chiSquareCritical(df);
+        assertTrue(chiSquare < critical,
+                "n=" + n + " p=" + p + " chi2=" + chiSquare + " df=" + df + " critical=" + critical);
+    }
+
+    private static void assertMatchesLoop(int n, float chance, long seed) {
+        SplittableRandom samplerRandom = new SplittableRandom(seed);
+        java.util.Random loopRandom = new java.util.Random(seed);
+        long[] sampler = new long[n + 1];
+        long[] loop = new long[n + 1];
+        int samples = SAMPLES / 4;
+        for (int i = 0; i < samples; i++) {
+            sampler[BinomialSampler.sample(n, chance, samplerRandom::nextDouble)]++;
+
+            int keep = 0;
+            for (int j = 0; j < n; j++) {
+                if (loopRandom.nextFloat() < chance) keep++;
+            }
+            loop[keep]++;
+        }
+
+        // 两样本卡方同质性检验（合并小频数区间）
+        double chiSquare = 0;
+        int bins = 0;
+        long a = 0, b = 0;
+        for (int k = 0; k <= n; k++) {
+            a += sampler[k];
+            b += loop[k];
+            if (a + b >= 20) {
+                chiSquare += sq(a - b) / (a + b);
+                bins++;
+                a = 0;
+                b = 0;
+            }
+        }
+        if (a + b > 0) {
+            chiSquare += sq(a - b) / (a + b);
+            bins++;
+        }
+
+        int df = Math.max(1, bins - 1);
+        double critical = chiSquareCritical(df);
+        assertTrue(chiSquare < critical,
+                "n=" + n + " chance=" + chance + " chi2=" + chiSquare + " df=" + df + " critical=" + critical);
+    }
+
+    /** 在对数空间递推计算二项分布概率质量函数，避免大 n 时 q^n 下溢。 */
+    private static double[] binomialPmf(int n, double p) {
+        double[] pmf = new double[n + 1];
+        double logP = Math.log(p);
+        double logQ = Math.log1p(-p);
+        double logPmf = n * logQ;
+        pmf[0] = Math.exp(logPmf);
+        for (int k = 0; k < n; k++) {
+            logPmf += Math.log(n - k) - Math.log(k + 1) + logP - logQ;
+            pmf[k + 1] = Math.exp(logPmf);
+        }
+        return pmf;
+    }
+
+    /** {@code tail[k]} 为 {@code pmf[k..n]} 之和，末尾额外一格为 0。 */
+    private static double[] suffixSums(double[] pmf) {
+        double[] tail = new double[pmf.length + 1];
+        for (int k = pmf.length - 1; k >= 0; k--) tail[k] = tail[k + 1] + pmf[k];
+        return tail;
+    }
+
+    /** 卡方分布 0.999 分位数的 Wilson–Hilferty 近似。 */
+    private static double chiSquareCritical(int df) {
+        double h = 2.0 / (9.0 * df);
+        return df * Math.pow(1.0 - h + Z_999 * Math.sqrt(h), 3);
+    }
+
+    private static double sq(double x) {
+        return x * x;
+    }
+}
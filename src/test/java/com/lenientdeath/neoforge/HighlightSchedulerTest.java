@@ -0,0 +1,133 @@
+package com.lenientdeath.neoforge;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link HighlightScheduler} 的调度行为：相位分布、每 tick 上限、延后队列与滞后统计。
+ */
+public class HighlightSchedulerTest {
+
+    private static List<UUID> randomViewers(int count, long seed) {
+        Random random = new Random(seed);
+        List<UUID> viewers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            viewers.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return viewers;
+    }
+
+    @Test
+    public void testEveryViewerRefreshedOncePerInterval() {
+        HighlightScheduler scheduler = new HighlightScheduler();
+        List<UUID> viewers = randomViewers(100, 1L);
+        viewers.forEach(scheduler::add);
+
+        Map<UUID, Integer> counts = new HashMap<>();
+        for (long tick = 0; tick < 10; tick++) {
+            scheduler.tick(tick, 10, 1024, viewer -> counts.merge(viewer, 1, Integer::sum));
+        }
+
+        assertEquals(100, counts.size());
+        counts.values().forEach(count -> assertEquals(1, count));
+        assertEquals(0, scheduler.getMaxLagTicks());
+    }
+
+    @Test
+    public void testViewersSpreadAcrossInterval() {
+        HighlightScheduler scheduler = new HighlightScheduler();
+        randomViewers(1000, 2L).forEach(scheduler::add);
+        scheduler.tick(0, 10, 1024, viewer -> {});
+
+        // 1000 个随机 UUID 分到 10 个相位，期望每相位 100，允许 ±40
+        for (int size : scheduler.phaseSizes()) {
+            assertTrue(size > 60 && size < 140, "phase size " + size);
+        }
+    }
+
+    @Test
+    public void testPhaseIndependentOfJoinOrder() {
+        List<UUID> viewers = randomViewers(50, 3L);
+        HighlightScheduler forward = new HighlightScheduler();
+        HighlightScheduler reversed = new HighlightScheduler();
+        viewers.forEach(forward::add);
+        for (int i = viewers.size() - 1; i >= 0; i--) {
+            reversed.add(viewers.get(i));
+        }
+        forward.tick(0, 7, 1024, viewer -> {});
+        reversed.tick(0, 7, 1024, viewer -> {});
+        assertArrayEquals(forward.phaseSizes(), reversed.phaseSizes());
+    }
+
+    @Test
+    public void testOverflowCarriesOverToNextTick() {
+        HighlightScheduler scheduler = new HighlightScheduler();
+        // interval = 1：所有观察者每 tick 都到期
+        randomViewers(10, 4L).forEach(scheduler::add);
+
+        List<UUID> first = new ArrayList<>();
+        scheduler.tick(0, 1, 4, first::add);
+        assertEquals(4, first.size());
+        assertEquals(6, scheduler.backlogSize());
+
+        List<UUID> second = new ArrayList<>();
+        scheduler.tick(1, 1, 4, second::add);
+        assertEquals(4, second.size());
+        // 延后的观察者优先处理，滞后 1 tick
+        second.forEach(viewer -> assertFalse(first.contains(viewer)));
+        assertEquals(1, scheduler.getMaxLagTicks());
+    }
+
+    @Test
+    public void testQueuedViewerNotDuplicated() {
+        HighlightScheduler scheduler = new HighlightScheduler();
+        randomViewers(10, 5L).forEach(scheduler::add);
+
+        for (long tick = 0; tick < 20; tick++) {
+            scheduler.tick(tick, 1, 3, viewer -> {});
+            assertTrue(scheduler.backlogSize() <= 10, "backlog " + scheduler.backlogSize());
+        }
+    }
+
+    @Test
+    public void testRemovedViewerDroppedFromBacklog() {
+        HighlightScheduler scheduler = new HighlightScheduler();
+        List<UUID> viewers = randomViewers(5, 6L);
+        viewers.forEach(scheduler::add);
+
+        List<UUID> refreshed = new ArrayList<>();
+        scheduler.tick(0, 1, 1, refreshed::add);
+        assertEquals(4, scheduler.backlogSize());
+
+        viewers.forEach(scheduler::remove);
+        assertEquals(0, scheduler.size());
+        assertEquals(0, scheduler.backlogSize());
+
+        refreshed.clear();
+        scheduler.tick(1, 1, 1, refreshed::add);
+        assertTrue(refreshed.isEmpty());
+    }
+
+    @Test
+    public void testIntervalChangeRebuildsPhases() {
+        HighlightScheduler scheduler = new HighlightScheduler();
+        List<UUID> viewers = randomViewers(40, 7L);
+        viewers.forEach(scheduler::add);
+        scheduler.tick(0, 10, 1024, viewer -> {});
+
+        Map<UUID, Integer> counts = new HashMap<>();
+        for (long tick = 1; tick <= 4; tick++) {
+            scheduler.tick(tick, 4, 1024, viewer -> counts.merge(viewer, 1, Integer::sum));
+        }
+        assertEquals(4, scheduler.phaseSizes().length);
+        assertEquals(40, counts.size());
+    }
+}
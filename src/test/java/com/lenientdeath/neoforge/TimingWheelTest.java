@@ -0,0 +1,139 @@
+package com.lenientdeath.neoforge;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link TimingWheel} 的到期时间正确性：与逐条记录到期 tick 的朴素实现对照，覆盖各层级联与超范围条目。
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void testFiresExactlyAtDeadlineAcrossLevels() {
+        long start = 1_000_003L;
+        TimingWheel<Integer> wheel = new TimingWheel<>(start);
+        long[] delays = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 262_143, 262_144, 262_145, 1_000_000};
+        for (int i = 0; i < delays.length; i++) {
+            wheel.schedule(i, start + delays[i]);
+        }
+
+        Map<Integer, Long> firedAt = new HashMap<>();
+        long end = start + 1_000_000;
+        // 分多段推进，覆盖 advance 跨越槽位边界的情况
+        for (long tick = start; tick < end; tick += 997) {
+            long target = Math.min(end, tick + 997);
+            wheel.advance(target, key -> firedAt.put(key, wheel.currentTick()));
+        }
+
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals(start + delays[i], firedAt.get(i));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testMatchesNaiveScheduleWithRandomOperations() {
+        Random random = new Random(42L);
+        TimingWheel<Integer> wheel = new TimingWheel<>(0L);
+        Map<Integer, Long> expected = new HashMap<>();
+        List<String> mismatches = new ArrayList<>();
+
+        for (long tick = 0; tick < 50_000; tick++) {
+            int ops = random.nextInt(4);
+            for (int op = 0; op < ops; op++) {
+                int key = random.nextInt(500);
+                if (random.nextInt(5) == 0) {
+                    wheel.cancel(key);
+                    expected.remove(key);
+                } else {
+                    long delay = 1 + (random.nextBoolean() ? random.nextInt(100) : random.nextInt(20_000));
+                    wheel.schedule(key, tick + delay);
+                    expected.put(key, tick + delay);
+                }
+            }
+            long next = tick + 1;
+            wheel.advance(next, key -> {
+                Long deadline = expected.remove(key);
+                if (deadline == null || deadline != next) {
+                    mismatches.add("key " + key + " fired at " + next + ", expected " + deadline);
+                }
+            });
+            for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+                if (entry.getValue() <= next) {
+                    mismatches.add("key " + entry.getKey() + " missed deadline " + entry.getValue());
+                }
+            }
+            assertTrue(mismatches.isEmpty(), String.valueOf(mismatches));
+        }
+        assertEquals(expected.size(), wheel.size());
+    }
+
+    @Test
+    public void testRescheduleReplacesPreviousEntry() {
+        TimingWheel<String> wheel = new TimingWheel<>(0L);
+        wheel.schedule("a", 10);
+        wheel.schedule("a", 500);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(1_000, key -> fired.add(wheel.currentTick()));
+        assertEquals(1, fired.size());
+        assertEquals(500L, fired.get(0));
+    }
+
+    @Test
+    public void testCancelledEntryNeverFires() {
+        TimingWheel<String> wheel = new TimingWheel<>(0L);
+        wheel.schedule("a", 5_000);
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        assertFalse(wheel.contains("a"));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(10_000, fired::add);
+        assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    public void testPastDeadlineFiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100L);
+        wheel.schedule("late", 50L);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(200L, key -> fired.add(wheel.currentTick()));
+        assertEquals(1, fired.size());
+        assertEquals(101L, fired.get(0));
+    }
+
+    @Test
+    public void testCallbackCanRescheduleSameKey() {
+        TimingWheel<String> wheel = new TimingWheel<>(0L);
+        wheel.schedule("blink", 10L);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(100L, key -> {
+            fired.add(wheel.currentTick());
+            wheel.schedule(key, wheel.currentTick() + 10);
+        });
+        assertEquals(List.of(10L, 20L, 30L, 40L, 50L, 60L, 70L, 80L, 90L, 100L), fired);
+        assertTrue(wheel.contains("blink"));
+    }
+
+    @Test
+    public void testDeadlineBeyondSpan() {
+        TimingWheel<String> wheel = new TimingWheel<>(7L);
+        long deadline = 7L + TimingWheel.SPAN + 12_345L;
+        wheel.schedule("far", deadline);
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advance(deadline + 10, key -> fired.add(wheel.currentTick()));
+        assertEquals(1, fired.size());
+        assertEquals(deadline, fired.get(0));
+    }
+}